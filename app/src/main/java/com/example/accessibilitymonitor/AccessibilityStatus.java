@@ -0,0 +1,110 @@
+package com.example.accessibilitymonitor;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+import android.text.TextUtils;
+import android.view.accessibility.AccessibilityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide, cached answer to whether {@link AppMonitorService} is enabled. The setting
+ * is read and parsed once when the first listener registers and again only when the system
+ * reports a change, through a {@link ContentObserver} on the enabled services setting and
+ * {@link AccessibilityManager}'s state listener, instead of on every screen resume.
+ * Main-thread only; listeners are called on the main thread.
+ */
+final class AccessibilityStatus {
+    interface Listener {
+        void onAccessibilityStatusChanged(boolean serviceEnabled);
+    }
+
+    private static AccessibilityStatus instance;
+
+    private final Context context;
+    private final AccessibilityManager accessibilityManager;
+    private final String serviceName;
+    private final List<Listener> listeners = new ArrayList<>();
+    private boolean serviceEnabled;
+
+    private final ContentObserver settingObserver = new ContentObserver(new Handler(Looper.getMainLooper())) {
+        @Override
+        public void onChange(boolean selfChange) {
+            refresh();
+        }
+    };
+    private final AccessibilityManager.AccessibilityStateChangeListener stateListener = enabled -> refresh();
+
+    private AccessibilityStatus(Context context) {
+        this.context = context;
+        this.accessibilityManager = (AccessibilityManager) context.getSystemService(Context.ACCESSIBILITY_SERVICE);
+        this.serviceName = new ComponentName(context, AppMonitorService.class).flattenToString();
+    }
+
+    static synchronized AccessibilityStatus get(Context context) {
+        if (instance == null) {
+            instance = new AccessibilityStatus(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /** The last known state; current while at least one listener is registered. */
+    boolean isServiceEnabled() {
+        return serviceEnabled;
+    }
+
+    /** Starts watching with the first listener, which is told the current state right away. */
+    void addListener(Listener listener) {
+        if (listeners.isEmpty()) {
+            context.getContentResolver().registerContentObserver(
+                    Settings.Secure.getUriFor(Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES), false, settingObserver);
+            accessibilityManager.addAccessibilityStateChangeListener(stateListener);
+            serviceEnabled = readServiceEnabled();
+        }
+        listeners.add(listener);
+        listener.onAccessibilityStatusChanged(serviceEnabled);
+    }
+
+    void removeListener(Listener listener) {
+        if (listeners.remove(listener) && listeners.isEmpty()) {
+            context.getContentResolver().unregisterContentObserver(settingObserver);
+            accessibilityManager.removeAccessibilityStateChangeListener(stateListener);
+        }
+    }
+
+    private void refresh() {
+        boolean enabled = readServiceEnabled();
+        if (enabled == serviceEnabled) {
+            return;
+        }
+        serviceEnabled = enabled;
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onAccessibilityStatusChanged(enabled);
+        }
+    }
+
+    private boolean readServiceEnabled() {
+        if (!accessibilityManager.isEnabled()) {
+            return false;
+        }
+        String enabledServices = Settings.Secure.getString(context.getContentResolver(),
+                Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES);
+        if (enabledServices == null) {
+            return false;
+        }
+        TextUtils.SimpleStringSplitter splitter = new TextUtils.SimpleStringSplitter(':');
+        splitter.setString(enabledServices);
+        for (String enabledService : splitter) {
+            ComponentName componentName = ComponentName.unflattenFromString(enabledService);
+            if (componentName != null && componentName.flattenToString().equals(serviceName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.accessibilitymonitor;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.os.Build;
+import android.provider.Settings;
+import android.util.Log;
+
+import com.example.accessibilitymonitor.core.CatalogEntry;
+import com.example.accessibilitymonitor.core.CatalogFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Launchable apps, served from a persisted cache and brought up to date incrementally.
+ * On Android O+ only the packages reported by {@link PackageManager#getChangedPackages}
+ * are re-resolved; otherwise installed packages are diffed against the cached version code
+ * and update time, and labels are reloaded only for entries that changed.
+ * All methods except {@link #loadCached()} do PackageManager work and belong off the UI thread.
+ */
+final class AppCatalog {
+    private static final String TAG = "AppCatalog";
+    private static final int PROGRESS_CHUNK_SIZE = 24;
+
+    interface Listener {
+        /** Receives a snapshot of the entries resolved so far. */
+        void onProgress(List<CatalogEntry> entries);
+    }
+
+    static final Comparator<CatalogEntry> BY_LABEL = (a, b) -> {
+        int byLabel = a.label.compareToIgnoreCase(b.label);
+        return byLabel != 0 ? byLabel : a.packageName.compareTo(b.packageName);
+    };
+
+    private final Context context;
+    private final PackageManager packageManager;
+    private final CatalogFile file;
+    private CatalogFile.Contents contents = CatalogFile.EMPTY;
+
+    AppCatalog(Context context) {
+        this.context = context.getApplicationContext();
+        this.packageManager = context.getPackageManager();
+        this.file = new CatalogFile(new File(context.getFilesDir(), "app_catalog.bin"));
+    }
+
+    List<CatalogEntry> loadCached() {
+        contents = file.read();
+        return contents.entries;
+    }
+
+    List<CatalogEntry> refresh(Listener listener) {
+        int bootCount = Settings.Global.getInt(context.getContentResolver(), Settings.Global.BOOT_COUNT, -1);
+        List<CatalogEntry> entries;
+        int sequenceNumber = -1;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bootCount >= 0
+                && bootCount == contents.bootCount && contents.sequenceNumber >= 0 && !contents.entries.isEmpty()) {
+            ChangedPackages changed = packageManager.getChangedPackages(contents.sequenceNumber);
+            if (changed == null) {
+                Log.d(TAG, "Catalog cache is current");
+                return contents.entries;
+            }
+            entries = contents.entries;
+            for (String packageName : changed.getPackageNames()) {
+                entries = applyPackageChange(entries, packageName);
+            }
+            sequenceNumber = changed.getSequenceNumber();
+            Log.d(TAG, "Catalog updated incrementally: " + changed.getPackageNames().size() + " packages changed");
+        } else {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                ChangedPackages sinceBoot = packageManager.getChangedPackages(0);
+                sequenceNumber = sinceBoot != null ? sinceBoot.getSequenceNumber() : 0;
+            }
+            entries = fullDiff(contents.entries, listener);
+        }
+        save(new CatalogFile.Contents(bootCount, sequenceNumber, entries));
+        return entries;
+    }
+
+    /**
+     * Re-resolves one package after an install, update or removal and returns the updated
+     * list. The list passed in is not modified.
+     */
+    List<CatalogEntry> applyPackageChange(List<CatalogEntry> current, String packageName) {
+        List<CatalogEntry> updated = new ArrayList<>(current.size() + 1);
+        CatalogEntry previous = null;
+        for (CatalogEntry entry : current) {
+            if (entry.packageName.equals(packageName)) {
+                previous = entry;
+            } else {
+                updated.add(entry);
+            }
+        }
+        Intent launcherIntent = launcherIntent().setPackage(packageName);
+        List<ResolveInfo> resolved = packageManager.queryIntentActivities(launcherIntent, 0);
+        if (!resolved.isEmpty()) {
+            CatalogEntry entry = resolve(resolved.get(0), previous);
+            if (entry != null) {
+                updated.add(entry);
+            }
+        }
+        Collections.sort(updated, BY_LABEL);
+        return updated;
+    }
+
+    void save(List<CatalogEntry> entries) {
+        save(new CatalogFile.Contents(contents.bootCount, contents.sequenceNumber, entries));
+    }
+
+    private List<CatalogEntry> fullDiff(List<CatalogEntry> cached, Listener listener) {
+        Map<String, CatalogEntry> byPackage = new HashMap<>(cached.size() * 2);
+        for (CatalogEntry entry : cached) {
+            byPackage.put(entry.packageName, entry);
+        }
+        List<ResolveInfo> resolvedApps = packageManager.queryIntentActivities(launcherIntent(), 0);
+        Map<String, CatalogEntry> result = new LinkedHashMap<>(resolvedApps.size() * 2);
+        int reloaded = 0;
+        for (ResolveInfo resolveInfo : resolvedApps) {
+            String packageName = resolveInfo.activityInfo.packageName;
+            if (result.containsKey(packageName)) {
+                continue; // Several launcher activities in one package
+            }
+            CatalogEntry previous = byPackage.get(packageName);
+            CatalogEntry entry = resolve(resolveInfo, previous);
+            if (entry == null) {
+                continue;
+            }
+            if (entry != previous) {
+                reloaded++;
+            }
+            result.put(packageName, entry);
+            // Only worth streaming when labels are actually being loaded
+            if (cached.isEmpty() && listener != null && result.size() % PROGRESS_CHUNK_SIZE == 0) {
+                listener.onProgress(new ArrayList<>(result.values()));
+            }
+        }
+        List<CatalogEntry> entries = new ArrayList<>(result.values());
+        Collections.sort(entries, BY_LABEL);
+        Log.d(TAG, "Catalog rebuilt: " + entries.size() + " apps, " + reloaded + " labels reloaded");
+        return entries;
+    }
+
+    /** Returns {@code previous} itself when the package has not changed since it was cached. */
+    private CatalogEntry resolve(ResolveInfo resolveInfo, CatalogEntry previous) {
+        String packageName = resolveInfo.activityInfo.packageName;
+        PackageInfo info;
+        try {
+            info = packageManager.getPackageInfo(packageName, 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+        long versionCode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+                ? info.getLongVersionCode() : info.versionCode;
+        if (previous != null && previous.isCurrent(versionCode, info.lastUpdateTime)) {
+            return previous;
+        }
+        return new CatalogEntry(packageName, resolveInfo.loadLabel(packageManager).toString(),
+                versionCode, info.lastUpdateTime);
+    }
+
+    private void save(CatalogFile.Contents updated) {
+        contents = updated;
+        try {
+            file.write(updated);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to persist app catalog", e);
+        }
+    }
+
+    private static Intent launcherIntent() {
+        Intent mainIntent = new Intent(Intent.ACTION_MAIN, null);
+        mainIntent.addCategory(Intent.CATEGORY_LAUNCHER);
+        return mainIntent;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.accessibilitymonitor;
+
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Decodes launcher icons on demand, scaled to the row size, and keeps them in an LRU cache
+ * bounded by bitmap bytes rather than entry count.
+ */
+final class AppIconCache {
+    private final PackageManager packageManager;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final int iconSizePx;
+    private final LruCache<String, Bitmap> cache;
+
+    AppIconCache(PackageManager packageManager, ExecutorService executor, int iconSizePx) {
+        this.packageManager = packageManager;
+        this.executor = executor;
+        this.iconSizePx = iconSizePx;
+        // Sized in KiB: one sixteenth of the heap is plenty for a screenful of icons plus scroll slack
+        int maxKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 16);
+        this.cache = new LruCache<String, Bitmap>(maxKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount() / 1024;
+            }
+        };
+    }
+
+    /**
+     * Shows the cached icon immediately or loads it in the background. The view's tag is
+     * used to drop results that arrive after the row was rebound to another package.
+     */
+    void bind(ImageView view, String packageName) {
+        view.setTag(packageName);
+        Bitmap cached = cache.get(packageName);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+        view.setImageDrawable(null);
+        executor.execute(() -> {
+            Bitmap bitmap = load(packageName);
+            if (bitmap == null) {
+                return;
+            }
+            cache.put(packageName, bitmap);
+            mainHandler.post(() -> {
+                if (packageName.equals(view.getTag())) {
+                    view.setImageBitmap(bitmap);
+                }
+            });
+        });
+    }
+
+    void clear() {
+        cache.evictAll();
+    }
+
+    private Bitmap load(String packageName) {
+        Drawable drawable;
+        try {
+            drawable = packageManager.getApplicationIcon(packageName);
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap source = ((BitmapDrawable) drawable).getBitmap();
+            if (source.getWidth() == iconSizePx && source.getHeight() == iconSizePx) {
+                return source;
+            }
+            return Bitmap.createScaledBitmap(source, iconSizePx, iconSizePx, true);
+        }
+        // Adaptive and vector icons have to be rasterised at the target size
+        Bitmap bitmap = Bitmap.createBitmap(iconSizePx, iconSizePx, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        drawable.setBounds(0, 0, iconSizePx, iconSizePx);
+        drawable.draw(canvas);
+        return bitmap;
+    }
+}
@@ -1,179 +1,643 @@
 package com.example.accessibilitymonitor;
 
 import android.accessibilityservice.AccessibilityService;
-import android.annotation.SuppressLint;
-import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
+import android.accessibilityservice.AccessibilityServiceInfo;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
-import android.net.wifi.WifiManager;
-import android.os.Build;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
-import android.widget.Toast;
-
-import androidx.core.app.NotificationCompat;
-import java.util.HashSet;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.core.content.ContextCompat;
+
+import com.example.accessibilitymonitor.core.ActionExecutor;
+import com.example.accessibilitymonitor.core.ArchiveStore;
+import com.example.accessibilitymonitor.core.ConfigStore;
+import com.example.accessibilitymonitor.core.ContentRules;
+import com.example.accessibilitymonitor.core.EnforcementEngine;
+import com.example.accessibilitymonitor.core.EnforcementStrategy;
+import com.example.accessibilitymonitor.core.EventJournal;
+import com.example.accessibilitymonitor.core.EventPipeline;
+import com.example.accessibilitymonitor.core.EventRing;
+import com.example.accessibilitymonitor.core.JournalRecord;
+import com.example.accessibilitymonitor.core.LegacyLogParser;
+import com.example.accessibilitymonitor.core.MaintenanceScheduler;
+import com.example.accessibilitymonitor.core.MonitorConfig;
+import com.example.accessibilitymonitor.core.MonitorStats;
+import com.example.accessibilitymonitor.core.PackageNameTable;
+import com.example.accessibilitymonitor.core.PolicySnapshot;
+import com.example.accessibilitymonitor.core.ProfileSet;
+import com.example.accessibilitymonitor.core.StatusFeed;
+import com.example.accessibilitymonitor.core.WeeklySchedule;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AppMonitorService extends AccessibilityService {
-    private SharedPreferences preferences;
+    // Process-wide so the diagnostics screen can read it; outlives service restarts
+    static final MonitorStats STATS = new MonitorStats();
+    // Process-wide live state for the main screen's status panel
+    static final StatusFeed STATUS = new StatusFeed(10);
+    private static final long NOTIFICATION_TIMEOUT_MS = 100;
+    private static final int SCOPE_ALL = 0;
+    private static final int SCOPE_RESTRICTED = 1;
+    private static final int EVENT_RING_CAPACITY = 256;
+    // Far more apps than a device has installed; names past this are copied per event
+    private static final int PACKAGE_NAME_TABLE_SIZE = 1024;
+    // Shows the notification shade, and recents on devices whose launcher does not
+    private static final String SYSTEM_UI_PACKAGE = "com.android.systemui";
+    private static final int ACTION_MAX_ATTEMPTS = 4;
+    private static final long ACTION_INITIAL_BACKOFF_MS = 500;
+    private static final long ACTION_MAX_BACKOFF_MS = 8000;
+    // Base periods; stretched while the device is idle
+    private static final long HEALTH_CHECK_INTERVAL_MS = 30 * 60 * 1000;
+    private static final long JOURNAL_SYNC_INTERVAL_MS = 60 * 60 * 1000;
+    private static final long USAGE_INGEST_INTERVAL_MS = 2 * 60 * 60 * 1000;
+    private static final long ARCHIVE_INTERVAL_MS = 6 * 60 * 60 * 1000;
+    // Content scans run on their own thread; the budget bounds how stale their answer gets
+    private static final int CONTENT_SCAN_MAX_NODES = 1000;
+    private static final long CONTENT_SCAN_MAX_NANOS = 20_000_000;
+    private static final int CONTENT_SCAN_CHANGE_TYPES = AccessibilityEvent.CONTENT_CHANGE_TYPE_SUBTREE
+            | AccessibilityEvent.CONTENT_CHANGE_TYPE_TEXT | AccessibilityEvent.CONTENT_CHANGE_TYPE_CONTENT_DESCRIPTION;
+    // A matched app is scanned again after this even if no leave was seen, in case one was missed
+    private static final long CONTENT_MATCH_HOLD_MS = 60_000;
+
+    private ConfigStore configStore;
+    private TraceRecorder traceRecorder;
+    private EventJournal journal;
+    private EventPipeline pipeline;
+    private RestrictedAlertNotifier alertNotifier;
+    private WifiStateTracker wifiState;
+    private WifiRestorer wifiRestorer;
+    private ScheduledExecutorService actionThread;
+    // Maintenance work that does I/O, kept off the main thread and away from enforcement
+    private ExecutorService maintenanceThread;
+    // Walks windows for content rules; every node fetched is a binder call, so not on the main thread
+    private ExecutorService contentThread;
+    // The next scan for contentThread; a newer request replaces it, so scans never queue up
+    private final AtomicReference<ContentScan> pendingScan = new AtomicReference<>();
+    private ActionExecutor actionExecutor;
+    private EnforcementActions enforcementActions;
+    // contentThread only
+    private final WindowContentScanner contentScanner =
+            new WindowContentScanner(CONTENT_SCAN_MAX_NODES, CONTENT_SCAN_MAX_NANOS);
+    // Main-thread only: the app whose content already matched, left alone until another app
+    // (the launcher and System UI are always in scope) comes up or CONTENT_MATCH_HOLD_MS passes
+    private String contentMatchedPackage;
+    private long contentMatchedAt;
+    // Main-thread only: the app of the latest scan requested, to drop matches the user has moved on from
+    private String contentScanPackage;
+    private final PackageNameTable packageNames = new PackageNameTable(PACKAGE_NAME_TABLE_SIZE);
+    // Main-thread only: events received and time spent under each event scope
+    private final long[] eventsByScope = new long[2];
+    private final long[] millisByScope = new long[2];
+    private int scopeMode = SCOPE_ALL;
+    private long scopeSince = SystemClock.elapsedRealtime();
+    private String[] appliedScope;
+    // Launchers and System UI, whose windows show that the user left an app; see PolicySnapshot.eventScope
+    private Set<String> exitPackages = Collections.emptySet();
+    private int appliedEventTypes;
+    private boolean scopeApplied;
+    private boolean connected;
+    private final AtomicReference<PolicySnapshot> policy = new AtomicReference<>(PolicySnapshot.EMPTY);
     private final Handler handler = new Handler();
-    private final Runnable keepAliveRunnable = new Runnable() {
+    // Updates may come from any thread; the event scope is only touched on the main thread
+    private final ConfigStore.Listener configListener = config -> handler.post(this::reloadPolicy);
+    private final MaintenanceScheduler maintenance = new MaintenanceScheduler(new MaintenanceScheduler.Timer() {
         @Override
-        public void run() {
-            Log.d("AppMonitorService", "Service keep-alive ping");
+        public void schedule(long delayMs) {
+            handler.removeCallbacks(maintenanceWakeup);
+            handler.postDelayed(maintenanceWakeup, delayMs);
+        }
 
-            handler.postDelayed(this, 10 * 60 * 1000); // Ping every 10 minutes
+        @Override
+        public void cancel() {
+            handler.removeCallbacks(maintenanceWakeup);
         }
+    }, STATS);
+    private long eventsAtLastWakeup;
+    private final Runnable maintenanceWakeup = () -> {
+        long events = STATS.eventCount();
+        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        boolean active = events != eventsAtLastWakeup && !powerManager.isDeviceIdleMode();
+        eventsAtLastWakeup = events;
+        maintenance.onWakeup(SystemClock.elapsedRealtime(), active);
     };
+    // Main-thread only, for the health check
+    private long batchesAtLastCheck;
 
     @Override
     public void onServiceConnected() {
         super.onServiceConnected();
         Log.d("AppMonitorService", "Service connected");
-        // Start the keep-alive mechanism
-        handler.post(keepAliveRunnable);
+        connected = true;
+        exitPackages = resolveExitPackages();
+        publishState();
+        applyEventScope(policy.get());
+        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        maintenance.setScreenOn(powerManager.isInteractive(), SystemClock.elapsedRealtime());
+        maintenance.start(SystemClock.elapsedRealtime());
     }
 
     @Override
     public void onCreate() {
         super.onCreate();
         Log.d("AppMonitorService ","THIS APPS MONITOR");
-        preferences = getSharedPreferences("AppPrefs", MODE_PRIVATE);
-
-        // Register BroadcastReceiver for real-time updates
-        Intent filter = new Intent("com.example.ACCESSIBILITY_UPDATE");
-
-        filter.putExtra("monitoring_enabled", true); // or false
+        traceRecorder = new TraceRecorder(new File(getFilesDir(), "traces"));
+        configStore = MonitorConfigStore.get(this);
+        configStore.addListener(configListener);
+        reloadPolicy();
+        try {
+            journal = MonitorJournal.get(this);
+            migrateLegacyLogs();
+        } catch (IOException e) {
+            Log.e("AppMonitorService", "Event journal unavailable", e);
+        }
+        alertNotifier = new RestrictedAlertNotifier(this);
+        wifiState = new WifiStateTracker(this);
+        wifiState.start();
+        actionThread = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "EnforcementActions"));
+        maintenanceThread = Executors.newSingleThreadExecutor(r -> new Thread(r, "MaintenanceWorker"));
+        contentThread = Executors.newSingleThreadExecutor(r -> new Thread(r, "ContentScanner"));
+        actionExecutor = new ActionExecutor(actionThread, ACTION_MAX_ATTEMPTS, ACTION_INITIAL_BACKOFF_MS, ACTION_MAX_BACKOFF_MS, STATS);
+        MonitorConfig config = configStore.get();
+        wifiRestorer = new WifiRestorer(this, wifiState, actionThread, () -> handler.post(this::refreshEventScope));
+        wifiRestorer.configure(config.wifiRestoreGraceMs, config.maxWifiTogglesPerMinute);
+        wifiRestorer.start();
+        enforcementActions = new EnforcementActions(this, wifiState, wifiRestorer, alertNotifier);
+        // Enforcement runs once per foreground session, not per window
+        EnforcementEngine engine = new EnforcementEngine(policy::get, enforcementActions, actionExecutor, STATS, engineListener);
+        pipeline = new EventPipeline("AppMonitorWorker", EVENT_RING_CAPACITY, engine, STATS.queue);
+        pipeline.start();
+        maintenance.addTask("health", HEALTH_CHECK_INTERVAL_MS, this::checkHealth);
+        // fsync holds the journal lock the pipeline worker appends under, so keep it off the event thread
+        maintenance.addTask("journal-sync", JOURNAL_SYNC_INTERVAL_MS, () -> maintenanceThread.execute(this::syncJournal));
+        maintenance.addTask("usage-ingest", USAGE_INGEST_INTERVAL_MS,
+                () -> maintenanceThread.execute(UsageTracker.get(this)::ingest));
+        maintenance.addTask("archive", ARCHIVE_INTERVAL_MS, () -> maintenanceThread.execute(this::archiveJournal));
+
+        // Schedule windows are in local time
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+        ContextCompat.registerReceiver(this, timeZoneReceiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+        IntentFilter screenFilter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+        screenFilter.addAction(Intent.ACTION_SCREEN_OFF);
+        ContextCompat.registerReceiver(this, screenReceiver, screenFilter, ContextCompat.RECEIVER_NOT_EXPORTED);
+    }
 
+    @Override
+    public void onAccessibilityEvent(AccessibilityEvent event) {
+        long start = System.nanoTime();
+        STATS.countEvent();
+        eventsByScope[scopeMode]++;
+        // Nothing below allocates for an event that matches no rule; see HotPathAllocationTest
+        int eventType = event.getEventType();
+        if (eventType == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
+            PolicySnapshot snapshot = policy.get();
+            long now = System.currentTimeMillis();
+            String packageName = packageNames.intern(event.getPackageName());
+            if (traceRecorder.isRecording()) {
+                traceRecorder.record(now, packageName,
+                        event.getClassName() != null ? event.getClassName().toString() : null, eventType);
+            }
+            if (snapshot.monitoringEnabled) {
+                if (!pipeline.publish(now, packageName, eventType)) {
+                    STATS.countDrop();
+                }
+            }
+            if (!packageName.equals(contentMatchedPackage)) {
+                contentMatchedPackage = null;
+            }
+            if (shouldScanContent(snapshot, packageName, now)) {
+                requestContentScan(snapshot, packageName, getRootInActiveWindow(), now);
+            }
+        } else if (eventType == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED) {
+            int changes = event.getContentChangeTypes();
+            // Only the changed subtree; the rest of the window was scanned when it last changed
+            if (changes == AccessibilityEvent.CONTENT_CHANGE_TYPE_UNDEFINED || (changes & CONTENT_SCAN_CHANGE_TYPES) != 0) {
+                PolicySnapshot snapshot = policy.get();
+                long now = System.currentTimeMillis();
+                String packageName = packageNames.intern(event.getPackageName());
+                if (shouldScanContent(snapshot, packageName, now)) {
+                    requestContentScan(snapshot, packageName, event.getSource(), now);
+                }
+            }
+        }
+        STATS.dispatch.recordSince(start);
+    }
 
+    // Checked before fetching any node, since every node is a binder call and an allocation
+    private boolean shouldScanContent(PolicySnapshot snapshot, String packageName, long now) {
+        if (packageName.equals(contentMatchedPackage) && now - contentMatchedAt >= CONTENT_MATCH_HOLD_MS) {
+            contentMatchedPackage = null;
+        }
+        return snapshot.contentRules().appliesTo(packageName) && !packageName.equals(contentMatchedPackage)
+                && snapshot.isEnforcing(now);
+    }
 
+    /** Hands {@code root} to contentThread, replacing a scan still waiting there. */
+    private void requestContentScan(PolicySnapshot snapshot, String packageName, AccessibilityNodeInfo root, long now) {
+        if (root == null) {
+            return;
+        }
+        contentScanPackage = packageName;
+        ContentScan replaced = pendingScan.getAndSet(new ContentScan(snapshot.contentRules(), packageName, root, now));
+        if (replaced != null) {
+            contentScanner.release(replaced.root);
+        } else {
+            contentThread.execute(this::runContentScan);
+        }
+    }
 
+    /** Looks for content-rule keywords in the latest requested window and reports a match to the main thread. */
+    private void runContentScan() {
+        ContentScan scan = pendingScan.getAndSet(null);
+        if (scan == null) {
+            return;
+        }
+        // Windows of other apps, such as the keyboard, can be the active one; their text is not this app's
+        CharSequence rootPackage = scan.root.getPackageName();
+        if (rootPackage == null || !scan.packageName.contentEquals(rootPackage)) {
+            contentScanner.release(scan.root);
+            return;
+        }
+        long start = System.nanoTime();
+        String keyword = contentScanner.scan(scan.root, scan.rules, scan.packageName);
+        STATS.contentScan.recordSince(start);
+        if (keyword != null) {
+            Log.d("AppMonitorService", "Content rule \"" + keyword + "\" matched in " + scan.packageName);
+            handler.post(() -> onContentMatched(scan.packageName, scan.timestamp));
+        }
+    }
 
+    // The pipeline has a single producer, the main thread, so matches are published from here
+    private void onContentMatched(String packageName, long timestamp) {
+        if (!packageName.equals(contentScanPackage)) {
+            return;
+        }
+        contentMatchedPackage = packageName;
+        contentMatchedAt = timestamp;
+        if (!pipeline.publish(timestamp, packageName, EnforcementEngine.EVENT_CONTENT_MATCH)) {
+            STATS.countDrop();
+        }
+    }
 
-//        registerReceiver(updateReceiver, filter);
-        sendBroadcast(filter);
+    private static final class ContentScan {
+        final ContentRules rules;
+        final String packageName;
+        final AccessibilityNodeInfo root;
+        final long timestamp;
+
+        ContentScan(ContentRules rules, String packageName, AccessibilityNodeInfo root, long timestamp) {
+            this.rules = rules;
+            this.packageName = packageName;
+            this.root = root;
+            this.timestamp = timestamp;
+        }
     }
 
-    @Override
-    public void onAccessibilityEvent(AccessibilityEvent event) {
-        if (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
-            String packageName = event.getPackageName() != null ? event.getPackageName().toString() : "";
+    // Called on the pipeline worker thread
+    private final EnforcementEngine.Listener engineListener = new EnforcementEngine.Listener() {
+        @Override
+        public void onRestricted(String packageName, long timestamp, EnforcementStrategy strategy) {
+            STATUS.onDecision(packageName, timestamp, JournalRecord.ACTION_RESTRICTED_APP);
+            logEvent(packageName, JournalRecord.ACTION_RESTRICTED_APP, timestamp);
+        }
 
-            boolean monitoringEnabled = preferences.getBoolean("monitoring_enabled", true);
-            if (monitoringEnabled) {
-                checkRestrictedApps(packageName);
+        @Override
+        public void onRestrictedContent(String packageName, long timestamp, EnforcementStrategy strategy) {
+            if (strategy == EnforcementStrategy.WIFI_OFF) {
+                wifiRestorer.onHold(packageName);
             }
+            STATUS.onDecision(packageName, timestamp, JournalRecord.ACTION_RESTRICTED_CONTENT);
+            logEvent(packageName, JournalRecord.ACTION_RESTRICTED_CONTENT, timestamp);
         }
-    }
 
-    public void showNotification(Context context, String packageName) {
-        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-        String channelId = "default_channel";
-        Log.d("AppMonitorService", "Preparing to create notification channel");
+        @Override
+        public void onForeground(String packageName, long timestamp) {
+            STATUS.onForeground(packageName, timestamp);
+            PolicySnapshot snapshot = policy.get();
+            if (snapshot.isRestricted(packageName, timestamp)
+                    && snapshot.strategyFor(packageName) == EnforcementStrategy.WIFI_OFF) {
+                wifiRestorer.onHold(packageName);
+            } else {
+                wifiRestorer.onRelease();
+            }
+        }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel(
-                    channelId,
-                    "Default Channel",
-                    NotificationManager.IMPORTANCE_DEFAULT
-            );
-            notificationManager.createNotificationChannel(channel);
-            Log.d("AppMonitorService", "Notification channel created.");
+        @Override
+        public void onBatchEnd(int batchSize) {
+            if (journal != null) {
+                try {
+                    journal.flush();
+                } catch (IOException e) {
+                    Log.e("AppMonitorService", "Failed to flush event journal", e);
+                }
+            }
         }
+    };
 
-        Notification notification = new NotificationCompat.Builder(context, channelId)
-                .setContentTitle("Warning")
-                .setContentText("Access to " + packageName + " should restricted with Wifi for your safety.")
-                .setSmallIcon(android.R.drawable.ic_notification_overlay)
-                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+    private void reloadPolicy() {
+        MonitorConfig config = configStore.get();
+        PolicySnapshot snapshot = PolicySnapshot.builder()
+                .setMonitoringEnabled(config.monitoringEnabled)
+                .setProfiles(compileProfiles(config), config.activeProfile)
+                .setDebounceMs(config.sessionDebounceMs)
+                // A trace should show the whole stream, not just restricted packages
+                .setObserveAllEvents(config.observeAllEvents || config.traceRecording)
+                .setStrategies(config.strategies)
+                .setSchedule(compileSchedule(config.scheduleRules))
+                .setContentRules(compileContentRules(config.contentRules))
                 .build();
+        policy.set(snapshot);
+        publishState();
+        if (wifiRestorer != null) {
+            wifiRestorer.configure(config.wifiRestoreGraceMs, config.maxWifiTogglesPerMinute);
+        }
+        if (config.traceRecording) {
+            traceRecorder.start();
+        } else {
+            traceRecorder.stop();
+        }
+        Log.d("AppMonitorService", "Policy reloaded: profile " + snapshot.activeProfile() + ", "
+                + snapshot.restrictedCount() + " restricted apps");
+        if (connected) {
+            applyEventScope(snapshot);
+        }
+    }
 
+    /** Reuses the compiled profiles when only the active profile changed, so a switch is a pointer swap. */
+    private ProfileSet compileProfiles(MonitorConfig config) {
+        ProfileSet current = policy.get().profiles();
+        return current.isCompiledFrom(config.profiles) ? current : ProfileSet.compile(config.profiles);
+    }
 
-        notificationManager.notify(1, notification);
-        Log.d("AppMonitorService", "Notification sent.");
+    /** Reuses the current schedule unless the rules or the time zone changed. */
+    private WeeklySchedule compileSchedule(String rules) {
+        TimeZone zone = TimeZone.getDefault();
+        WeeklySchedule current = policy.get().schedule();
+        if (current.isCompiledFor(rules, zone)) {
+            return current;
+        }
+        try {
+            return WeeklySchedule.parse(rules, zone, System.currentTimeMillis());
+        } catch (IllegalArgumentException e) {
+            // Settings validates before saving, so this only happens with hand-edited data
+            Log.e("AppMonitorService", "Ignoring invalid schedule rules", e);
+            return WeeklySchedule.ALWAYS;
+        }
     }
 
+    private ContentRules compileContentRules(String rules) {
+        ContentRules current = policy.get().contentRules();
+        if (current.isCompiledFrom(rules)) {
+            return current;
+        }
+        try {
+            return ContentRules.parse(rules);
+        } catch (IllegalArgumentException e) {
+            Log.e("AppMonitorService", "Ignoring invalid content rules", e);
+            return ContentRules.NONE;
+        }
+    }
 
+    private void publishState() {
+        PolicySnapshot snapshot = policy.get();
+        STATUS.setState(connected, snapshot.monitoringEnabled, snapshot.activeProfile());
+    }
 
-    private void checkRestrictedApps(String packageName) {
-        Set<String> restrictedApps = new HashSet<>(preferences.getStringSet("restricted_apps", new HashSet<>()));
+    private Set<String> resolveExitPackages() {
+        Set<String> packages = new TreeSet<>();
+        packages.add(SYSTEM_UI_PACKAGE);
+        Intent home = new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_HOME);
+        List<ResolveInfo> launchers = getPackageManager().queryIntentActivities(home, PackageManager.MATCH_DEFAULT_ONLY);
+        for (ResolveInfo launcher : launchers) {
+            packages.add(launcher.activityInfo.packageName);
+        }
+        Log.d("AppMonitorService", "Exit packages: " + packages);
+        return packages;
+    }
 
-        Log.d("checkRestrictedApps", "Restricted Apps: " + restrictedApps);
-        if (restrictedApps.contains(packageName)) {
-            disableWiFi();
-            Toast.makeText(this, "Prevented "+ packageName + " to use and wifi", Toast.LENGTH_SHORT).show();
-            sendNotification(packageName);
-            logEvent("Restricted app detected: " + packageName + " at " + System.currentTimeMillis());
+    private void refreshEventScope() {
+        if (connected) {
+            applyEventScope(policy.get());
         }
     }
 
+    /**
+     * Narrows event delivery to the restricted packages so the system stops sending
+     * events we would discard, unless the policy asks to observe every package or a Wi-Fi
+     * restore is waiting for the restricted app to leave. The launcher and System UI stay
+     * in scope so leaving a restricted app is still seen. Content changes, the noisiest
+     * event type, are only requested while there are content rules.
+     */
+    private void applyEventScope(PolicySnapshot snapshot) {
+        String[] scope = wifiRestorer != null && wifiRestorer.isOwed() ? null : snapshot.eventScope(getPackageName(), exitPackages);
+        int eventTypes = AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED;
+        if (snapshot.monitoringEnabled && !snapshot.contentRules().isEmpty()) {
+            eventTypes |= AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED;
+        }
+        if (scopeApplied && Arrays.equals(appliedScope, scope) && appliedEventTypes == eventTypes) {
+            return;
+        }
+        AccessibilityServiceInfo info = getServiceInfo();
+        if (info == null) {
+            return;
+        }
+        info.eventTypes = eventTypes;
+        info.notificationTimeout = NOTIFICATION_TIMEOUT_MS;
+        info.packageNames = scope;
+        setServiceInfo(info);
+        appliedScope = scope;
+        appliedEventTypes = eventTypes;
+        scopeApplied = true;
+
+        int mode = scope == null ? SCOPE_ALL : SCOPE_RESTRICTED;
+        if (mode != scopeMode) {
+            long now = SystemClock.elapsedRealtime();
+            millisByScope[scopeMode] += now - scopeSince;
+            scopeSince = now;
+            scopeMode = mode;
+        }
+        Log.d("AppMonitorService", "Event scope: " + (scope == null ? "all packages" : scope.length + " packages"));
+        logScopeStats();
+    }
 
-    private void disableWiFi() {
-        WifiManager wifiManager = (WifiManager) getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+    private void logScopeStats() {
+        long now = SystemClock.elapsedRealtime();
+        long allMillis = millisByScope[SCOPE_ALL] + (scopeMode == SCOPE_ALL ? now - scopeSince : 0);
+        long scopedMillis = millisByScope[SCOPE_RESTRICTED] + (scopeMode == SCOPE_RESTRICTED ? now - scopeSince : 0);
+        Log.d("AppMonitorService", "Events received: all=" + eventsByScope[SCOPE_ALL] + " in " + allMillis / 1000
+                + "s, scoped=" + eventsByScope[SCOPE_RESTRICTED] + " in " + scopedMillis / 1000 + "s");
+    }
 
-        if (wifiManager != null && wifiManager.isWifiEnabled()) {
-            wifiManager.setWifiEnabled(false); // Disable Wi-Fi
-            Log.d("AppMonitorService", "Wi-Fi disabled");
-        } else {
-            Log.d("AppMonitorService", "Wi-Fi is already disabled or WifiManager is null");
+    /** Moves the text log kept in preferences by older versions into the journal. */
+    private void migrateLegacyLogs() throws IOException {
+        SharedPreferences preferences = getSharedPreferences("AppPrefs", MODE_PRIVATE);
+        String logs = preferences.getString("logs", null);
+        if (logs == null) {
+            return;
         }
+        final IOException[] failure = new IOException[1];
+        int migrated = LegacyLogParser.parse(logs, (timestamp, packageName, action) -> {
+            try {
+                journal.append(timestamp, packageName, action);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        journal.flush();
+        preferences.edit().remove("logs").apply();
+        Log.d("AppMonitorService", "Migrated " + migrated + " legacy log lines");
     }
-    @SuppressLint("NotificationPermission")
-    private void sendNotification(String packageName) {
-        String channelId = "RestrictedAppChannel";
-        NotificationManager notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
 
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel(
-                    channelId, "Restricted App Alerts", NotificationManager.IMPORTANCE_HIGH);
-            notificationManager.createNotificationChannel(channel);
+    private void logEvent(String packageName, int action, long timestamp) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(timestamp, packageName, action);
+        } catch (IOException e) {
+            Log.e("AppMonitorService", "Failed to journal event for " + packageName, e);
         }
+    }
 
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, channelId)
-                .setSmallIcon(R.drawable.ic_warning)
-                .setContentTitle("Restricted App Detected")
-                .setContentText("Wi-Fi has been disabled for " + packageName)
-                .setPriority(NotificationCompat.PRIORITY_HIGH);
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            maintenance.setScreenOn(Intent.ACTION_SCREEN_ON.equals(intent.getAction()), SystemClock.elapsedRealtime());
+        }
+    };
 
-        notificationManager.notify(1, builder.build());
+    /** Logs the counters and flags a worker that stopped draining the ring. */
+    private void checkHealth() {
+        EventRing ring = pipeline.ring();
+        long batches = pipeline.batchCount();
+        if (!ring.isEmpty() && batches == batchesAtLastCheck) {
+            Log.w("AppMonitorService", "Event worker made no progress with " + ring.size() + " events queued");
+        }
+        batchesAtLastCheck = batches;
+        if (configStore.writeFailureCount() > 0) {
+            Log.w("AppMonitorService", "Config writes failed " + configStore.writeFailureCount() + " times");
+        }
+        Log.d("AppMonitorService", "Health: published=" + ring.publishedCount()
+                + " overflows=" + ring.overflowCount() + " backpressure=" + ring.backpressureCount()
+                + " batches=" + batches + " maxBatch=" + pipeline.maxBatchSize()
+                + " matches=" + STATS.matchCount() + " wakeups=" + maintenance.wakeupCount());
+        Log.d("AppMonitorService", "Actions: submitted=" + actionExecutor.submittedCount()
+                + " deduplicated=" + actionExecutor.deduplicatedCount() + " skipped=" + actionExecutor.skippedCount()
+                + " succeeded=" + actionExecutor.succeededCount() + " retried=" + actionExecutor.retriedCount()
+                + " failed=" + actionExecutor.failedCount());
+        logScopeStats();
     }
 
-    private void logEvent(String event) {
-        SharedPreferences.Editor editor = preferences.edit();
-        String logs = preferences.getString("logs", "");
-        logs += event + "\n";
-        editor.putString("logs", logs);
-        editor.apply();
+    private void syncJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            Log.e("AppMonitorService", "Failed to sync event journal", e);
+        }
     }
 
-    private final BroadcastReceiver updateReceiver = new BroadcastReceiver() {
+    /** Rolls finished days from the journal into compact daily archives and drops expired ones. */
+    private void archiveJournal() {
+        if (journal == null) {
+            return;
+        }
+        int retentionDays = configStore.get().archiveRetentionDays;
+        long now = System.currentTimeMillis();
+        try {
+            ArchiveStore archive = new ArchiveStore(new File(getFilesDir(), "archive"), TimeZone.getDefault());
+            int written = archive.compact(journal, now, retentionDays);
+            int deleted = archive.applyRetention(now, retentionDays);
+            Log.d("AppMonitorService", "Archive: " + written + " days written, " + deleted + " expired, "
+                    + archive.days().size() + " days in " + archive.size() + " bytes");
+        } catch (IOException e) {
+            Log.e("AppMonitorService", "Failed to archive event journal", e);
+        }
+    }
+
+    private final BroadcastReceiver timeZoneReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
-            preferences = getSharedPreferences("AppMonitorPrefs", MODE_PRIVATE);
-            if (intent.hasExtra("monitoring_enabled")) {
-                boolean monitoringEnabled = intent.getBooleanExtra("monitoring_enabled", true);
-                SharedPreferences.Editor editor = preferences.edit();
-                editor.putBoolean("monitoring_enabled", monitoringEnabled);
-                editor.apply();
-            }
+            reloadPolicy();
         }
     };
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        super.onDestroy();
-        // Stop the keep-alive mechanism when the service is destroyed
-        handler.removeCallbacks(keepAliveRunnable);
-        unregisterReceiver(updateReceiver);
+        configStore.removeListener(configListener);
+        connected = false;
+        publishState();
+        // Drains pending events and flushes the journal on the way out
+        pipeline.stop();
+        wifiRestorer.stop();
+        actionThread.shutdown();
+        maintenanceThread.shutdown();
+        contentThread.shutdown();
+        wifiState.stop();
+        maintenance.stop();
+        traceRecorder.shutdown();
+        unregisterReceiver(timeZoneReceiver);
+        unregisterReceiver(screenReceiver);
+    }
+
+    /**
+     * Printed by {@code adb shell dumpsys activity service
+     * com.example.accessibilitymonitor/.AppMonitorService}.
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        STATS.dump(writer);
+        maintenance.dump(writer);
+        if (wifiRestorer != null) {
+            wifiRestorer.dump(writer);
+        }
+        PolicySnapshot snapshot = policy.get();
+        writer.println("Policy: enabled=" + snapshot.monitoringEnabled + " profile=" + snapshot.activeProfile()
+                + " restricted=" + snapshot.restrictedCount() + "/" + snapshot.profiles().packageCount()
+                + " scheduled=" + !snapshot.schedule().isAlways() + " observeAll=" + snapshot.observeAllEvents);
+        writer.println("Content: keywords=" + snapshot.contentRules().keywordCount() + " scans=" + contentScanner.scanCount()
+                + " nodes=" + contentScanner.nodeCount() + " truncated=" + contentScanner.truncatedCount());
+        if (pipeline != null) {
+            EventRing ring = pipeline.ring();
+            writer.println("Ring: size=" + ring.size() + "/" + ring.capacity() + " published=" + ring.publishedCount()
+                    + " backpressure=" + ring.backpressureCount() + " batches=" + pipeline.batchCount()
+                    + " maxBatch=" + pipeline.maxBatchSize());
+        }
+        if (actionExecutor != null) {
+            writer.println("Actions: submitted=" + actionExecutor.submittedCount()
+                    + " deduplicated=" + actionExecutor.deduplicatedCount() + " skipped=" + actionExecutor.skippedCount()
+                    + " succeeded=" + actionExecutor.succeededCount() + " retried=" + actionExecutor.retriedCount()
+                    + " failed=" + actionExecutor.failedCount());
+        }
     }
 
     @Override
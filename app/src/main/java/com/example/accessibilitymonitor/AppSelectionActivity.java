@@ -1,98 +1,238 @@
 package com.example.accessibilitymonitor;
 
-import android.app.usage.UsageStats;
-import android.app.usage.UsageStatsManager;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.content.pm.PackageManager;
-import android.content.pm.ResolveInfo;
-import android.graphics.drawable.Drawable;
-import android.os.Build;
+import android.content.IntentFilter;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.Settings;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.CheckBox;
+import android.widget.EditText;
 import android.widget.ImageView;
-import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import com.example.accessibilitymonitor.core.CatalogEntry;
+import com.example.accessibilitymonitor.core.CatalogIndex;
+import com.example.accessibilitymonitor.core.ConfigStore;
+import com.example.accessibilitymonitor.core.MonitorConfig;
+
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AppSelectionActivity extends AppCompatActivity {
     private static final String TAG = "AppSelectionActivity";
-    private static final String PREF_NAME = "AppPrefs";
-    private static final String RESTRICTED_APPS_KEY = "restricted_apps";
 
-    private final List<AppInfo> appList = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService catalogExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService iconExecutor = Executors.newFixedThreadPool(2);
     private Set<String> selectedApps = new HashSet<>();
-    private SharedPreferences prefs;
+    // What the screen showed when opened, so only its own edits are written back
+    private Set<String> savedApps = new HashSet<>();
+    private String profile;
+    private ConfigStore configStore;
+    private AppListAdapter adapter;
+    private AppIconCache iconCache;
+    private AppCatalog catalog;
+    // Rebuilt off the main thread whenever the catalog changes, searched on every keystroke
+    private CatalogIndex index = CatalogIndex.EMPTY;
+    private String query = "";
+    private boolean restrictedFirst = true;
+    // Only touched on catalogExecutor
+    private List<CatalogEntry> catalogEntries = Collections.emptyList();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_app_selection);
 
-        ListView appsListView = findViewById(R.id.apps_list_view);
-        prefs = getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        RecyclerView appsListView = findViewById(R.id.apps_list_view);
+        configStore = MonitorConfigStore.get(this);
 
         // Load previously selected apps
-        selectedApps = new HashSet<>(prefs.getStringSet(RESTRICTED_APPS_KEY, new HashSet<>()));
+        MonitorConfig config = configStore.get();
+        profile = config.activeProfile;
+        savedApps = new HashSet<>(config.restrictedApps);
+        selectedApps = new HashSet<>(savedApps);
 
-        // Load all installed apps
-        loadInstalledApps();
+        int iconSizePx = Math.round(48 * getResources().getDisplayMetrics().density);
+        iconCache = new AppIconCache(getPackageManager(), iconExecutor, iconSizePx);
+        catalog = new AppCatalog(this);
 
         // Set adapter
-        AppListAdapter adapter = new AppListAdapter(this, appList, selectedApps);
+        adapter = new AppListAdapter(selectedApps, iconCache);
+        appsListView.setLayoutManager(new LinearLayoutManager(this));
+        appsListView.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        appsListView.setHasFixedSize(true);
         appsListView.setAdapter(adapter);
 
+        EditText searchInput = findViewById(R.id.app_search_input);
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                query = s.toString();
+                applySearch();
+            }
+        });
+        CheckBox restrictedFirstCheckBox = findViewById(R.id.restricted_first_checkbox);
+        restrictedFirst = restrictedFirstCheckBox.isChecked();
+        restrictedFirstCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            restrictedFirst = isChecked;
+            applySearch();
+        });
+
+        // Load all installed apps
+        loadInstalledApps();
+
         // Check for usage stats permission
-        if (!hasUsageStatsPermission()) {
+        if (UsageTracker.hasPermission(this)) {
+            loadUsage();
+        } else {
             requestUsageStatsPermission();
         }
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        ContextCompat.registerReceiver(this, packageReceiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+    }
+
     @Override
     protected void onStop() {
         super.onStop();
-        // Save selected apps to SharedPreferences
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.putStringSet(RESTRICTED_APPS_KEY, selectedApps);
-        editor.apply();
-        Log.d(TAG, "Selected apps saved: " + selectedApps);
+        unregisterReceiver(packageReceiver);
+        Set<String> added = new HashSet<>(selectedApps);
+        added.removeAll(savedApps);
+        Set<String> removed = new HashSet<>(savedApps);
+        removed.removeAll(selectedApps);
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            String editedProfile = profile;
+            // Applied to the latest config, so a profile switch, import or other change made meanwhile survives
+            configStore.update(builder -> {
+                if (!builder.hasProfile(editedProfile)) {
+                    return;
+                }
+                String active = builder.activeProfile();
+                builder.setActiveProfile(editedProfile);
+                for (String packageName : added) {
+                    builder.addRestrictedApp(packageName);
+                }
+                for (String packageName : removed) {
+                    builder.removeRestrictedApp(packageName);
+                }
+                builder.setActiveProfile(active);
+            });
+            savedApps = new HashSet<>(selectedApps);
+        }
+        Log.d(TAG, "Selected apps saved: +" + added.size() + " -" + removed.size());
     }
 
-    private void loadInstalledApps() {
-        PackageManager pm = getPackageManager();
-        Intent mainIntent = new Intent(Intent.ACTION_MAIN, null);
-        mainIntent.addCategory(Intent.CATEGORY_LAUNCHER);
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        catalogExecutor.shutdownNow();
+        iconExecutor.shutdownNow();
+        iconCache.clear();
+    }
 
-        List<ResolveInfo> resolvedApps = pm.queryIntentActivities(mainIntent, 0);
-        for (ResolveInfo resolveInfo : resolvedApps) {
-            String appName = resolveInfo.loadLabel(pm).toString();
-            String packageName = resolveInfo.activityInfo.packageName;
-            Drawable appIcon = resolveInfo.loadIcon(pm);
+    /**
+     * Shows the cached catalog straight away, then refreshes it in the background. Only
+     * entries whose package changed get their label reloaded. Icons are not touched here;
+     * rows load them when shown.
+     */
+    private void loadInstalledApps() {
+        catalogExecutor.execute(() -> {
+            List<CatalogEntry> cached = catalog.loadCached();
+            if (!cached.isEmpty()) {
+                publish(cached);
+            }
+            catalogEntries = catalog.refresh(this::publish);
+            publish(catalogEntries);
+            Log.d(TAG, "Installed apps loaded: " + catalogEntries.size());
+        });
+    }
 
-            appList.add(new AppInfo(appName, packageName, appIcon));
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            if (data == null || (intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)
+                    && !Intent.ACTION_PACKAGE_REPLACED.equals(intent.getAction()))) {
+                return; // The REPLACED broadcast that follows covers updates
+            }
+            String packageName = data.getSchemeSpecificPart();
+            catalogExecutor.execute(() -> {
+                catalogEntries = catalog.applyPackageChange(catalogEntries, packageName);
+                catalog.save(catalogEntries);
+                publish(catalogEntries);
+            });
         }
-        Log.d(TAG, "Installed apps loaded: " + appList.size());
+    };
+
+    /** Shows today's totals from the last ingest, then catches up with events since then. */
+    private void loadUsage() {
+        UsageTracker tracker = UsageTracker.get(this);
+        catalogExecutor.execute(() -> {
+            publishUsage(tracker.today());
+            if (tracker.ingest() > 0) {
+                publishUsage(tracker.today());
+            }
+        });
+    }
+
+    private void publishUsage(Map<String, Long> todayMillis) {
+        mainHandler.post(() -> adapter.setUsage(todayMillis));
     }
 
-    private boolean hasUsageStatsPermission() {
-        UsageStatsManager usm = (UsageStatsManager) getSystemService(Context.USAGE_STATS_SERVICE);
-        List<UsageStats> stats = usm.queryUsageStats(UsageStatsManager.INTERVAL_DAILY, 0, System.currentTimeMillis());
-        return stats != null && !stats.isEmpty();
+    private void publish(List<CatalogEntry> entries) {
+        CatalogIndex built = CatalogIndex.build(entries);
+        mainHandler.post(() -> {
+            index = built;
+            applySearch();
+        });
+    }
+
+    /** Cheap enough to run on the main thread per keystroke; see {@link CatalogIndex}. */
+    private void applySearch() {
+        adapter.submitList(index.search(query, selectedApps, restrictedFirst));
     }
 
     private void requestUsageStatsPermission() {
@@ -109,63 +249,55 @@ public class AppSelectionActivity extends AppCompatActivity {
                 .show();
     }
 
-    private static class AppInfo {
-        String name;
-        String packageName;
-        Drawable icon;
+    private static final DiffUtil.ItemCallback<CatalogEntry> APP_DIFF = new DiffUtil.ItemCallback<CatalogEntry>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CatalogEntry oldItem, @NonNull CatalogEntry newItem) {
+            return oldItem.packageName.equals(newItem.packageName);
+        }
 
-        AppInfo(String name, String packageName, Drawable icon) {
-            this.name = name;
-            this.packageName = packageName;
-            this.icon = icon;
+        @Override
+        public boolean areContentsTheSame(@NonNull CatalogEntry oldItem, @NonNull CatalogEntry newItem) {
+            return oldItem.label.equals(newItem.label);
         }
-    }
+    };
 
-    private static class AppListAdapter extends BaseAdapter {
-        private final Context context;
-        private final List<AppInfo> appList;
+    private static class AppListAdapter extends ListAdapter<CatalogEntry, AppListAdapter.ViewHolder> {
         private final Set<String> selectedApps;
+        private final AppIconCache iconCache;
+        private Map<String, Long> usage = Collections.emptyMap();
 
-        AppListAdapter(Context context, List<AppInfo> appList, Set<String> selectedApps) {
-            this.context = context;
-            this.appList = appList;
+        AppListAdapter(Set<String> selectedApps, AppIconCache iconCache) {
+            super(APP_DIFF);
             this.selectedApps = selectedApps;
+            this.iconCache = iconCache;
         }
 
-        @Override
-        public int getCount() {
-            return appList.size();
-        }
-
-        @Override
-        public Object getItem(int position) {
-            return appList.get(position);
+        void setUsage(Map<String, Long> usage) {
+            this.usage = usage;
+            notifyItemRangeChanged(0, getItemCount());
         }
 
+        @NonNull
         @Override
-        public long getItemId(int position) {
-            return position;
+        public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_app_info, parent, false);
+            return new ViewHolder(view);
         }
 
         @Override
-        public View getView(int position, View convertView, ViewGroup parent) {
-            if (convertView == null) {
-                convertView = LayoutInflater.from(context).inflate(R.layout.item_app_info, parent, false);
-            }
-
-            AppInfo appInfo = appList.get(position);
-
-            ImageView appIcon = convertView.findViewById(R.id.app_icon);
-            TextView appName = convertView.findViewById(R.id.app_name);
-            TextView appPackage = convertView.findViewById(R.id.app_package);
-            CheckBox appCheckBox = convertView.findViewById(R.id.app_checkbox);
+        public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+            CatalogEntry appInfo = getItem(position);
 
-            appIcon.setImageDrawable(appInfo.icon);
-            appName.setText(appInfo.name);
-            appPackage.setText(appInfo.packageName);
-            appCheckBox.setChecked(selectedApps.contains(appInfo.packageName));
+            iconCache.bind(holder.appIcon, appInfo.packageName);
+            holder.appName.setText(appInfo.label);
+            holder.appPackage.setText(appInfo.packageName);
+            Long millis = usage.get(appInfo.packageName);
+            holder.appUsage.setText(millis != null ? formatUsage(millis) : "");
+            // Detach the old listener first so recycling the row does not toggle another app
+            holder.appCheckBox.setOnCheckedChangeListener(null);
+            holder.appCheckBox.setChecked(selectedApps.contains(appInfo.packageName));
 
-            appCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            holder.appCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
                 if (isChecked) {
                     selectedApps.add(appInfo.packageName);
                 } else {
@@ -173,8 +305,31 @@ public class AppSelectionActivity extends AppCompatActivity {
                 }
                 Log.d("AppListAdapter", "App selection changed: " + appInfo.packageName + " -> " + isChecked);
             });
+        }
+
+        private static String formatUsage(long millis) {
+            long minutes = millis / 60000;
+            if (minutes == 0) {
+                return "<1m today";
+            }
+            return (minutes >= 60 ? minutes / 60 + "h " + minutes % 60 + "m" : minutes + "m") + " today";
+        }
+
+        static final class ViewHolder extends RecyclerView.ViewHolder {
+            final ImageView appIcon;
+            final TextView appName;
+            final TextView appPackage;
+            final TextView appUsage;
+            final CheckBox appCheckBox;
 
-            return convertView;
+            ViewHolder(View itemView) {
+                super(itemView);
+                appIcon = itemView.findViewById(R.id.app_icon);
+                appName = itemView.findViewById(R.id.app_name);
+                appPackage = itemView.findViewById(R.id.app_package);
+                appUsage = itemView.findViewById(R.id.app_usage);
+                appCheckBox = itemView.findViewById(R.id.app_checkbox);
+            }
         }
     }
 }
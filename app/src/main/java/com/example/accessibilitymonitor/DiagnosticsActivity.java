@@ -0,0 +1,63 @@
+package com.example.accessibilitymonitor;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.Switch;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.accessibilitymonitor.core.ConfigStore;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Shows the monitor's counters and latency percentiles, refreshed once a second while
+ * visible. The same numbers are available from dumpsys.
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private TextView diagnosticsText;
+
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            StringWriter out = new StringWriter();
+            PrintWriter writer = new PrintWriter(out);
+            AppMonitorService.STATS.dump(writer);
+            writer.flush();
+            diagnosticsText.setText(out.toString());
+            handler.postDelayed(this, REFRESH_INTERVAL_MS);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+        diagnosticsText = findViewById(R.id.diagnostics_text);
+
+        // Traces go to files/traces and are replayed with ./gradlew :core:replay
+        ConfigStore configStore = MonitorConfigStore.get(this);
+        Switch traceSwitch = findViewById(R.id.trace_switch);
+        traceSwitch.setChecked(configStore.get().traceRecording);
+        traceSwitch.setOnCheckedChangeListener((buttonView, isChecked) ->
+                configStore.update(builder -> builder.setTraceRecording(isChecked)));
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        handler.post(refreshRunnable);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        handler.removeCallbacks(refreshRunnable);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.accessibilitymonitor;
+
+import android.accessibilityservice.AccessibilityService;
+import android.content.Context;
+import android.net.wifi.WifiManager;
+import android.util.Log;
+
+import com.example.accessibilitymonitor.core.EnforcementAction;
+import com.example.accessibilitymonitor.core.EnforcementEngine;
+import com.example.accessibilitymonitor.core.EnforcementStrategy;
+
+/**
+ * The Android side effects behind each {@link EnforcementStrategy}.
+ */
+final class EnforcementActions implements EnforcementEngine.ActionFactory {
+    private static final String TAG = "EnforcementActions";
+    private static final EnforcementAction[] NONE = new EnforcementAction[0];
+
+    private final EnforcementAction[] wifiOff;
+    private final EnforcementAction[] notifyOnly;
+    private final EnforcementAction[] goHome;
+
+    EnforcementActions(AccessibilityService service, WifiStateTracker wifiState, WifiRestorer wifiRestorer,
+                       RestrictedAlertNotifier notifier) {
+        wifiOff = new EnforcementAction[]{new WifiOffAction(service, wifiState, wifiRestorer),
+                new NotifyAction(notifier, EnforcementStrategy.WIFI_OFF)};
+        notifyOnly = new EnforcementAction[]{new NotifyAction(notifier, EnforcementStrategy.NOTIFY_ONLY)};
+        goHome = new EnforcementAction[]{new GoHomeAction(service), new NotifyAction(notifier, EnforcementStrategy.GO_HOME)};
+    }
+
+    @Override
+    public EnforcementAction[] forStrategy(EnforcementStrategy strategy) {
+        switch (strategy) {
+            case WIFI_OFF:
+                return wifiOff;
+            case NOTIFY_ONLY:
+                return notifyOnly;
+            case GO_HOME:
+                return goHome;
+            case LOG_ONLY:
+            default:
+                return NONE;
+        }
+    }
+
+    static final class WifiOffAction implements EnforcementAction {
+        private final WifiManager wifiManager;
+        private final WifiStateTracker wifiState;
+        private final WifiRestorer wifiRestorer;
+
+        WifiOffAction(Context context, WifiStateTracker wifiState, WifiRestorer wifiRestorer) {
+            this.wifiManager = (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+            this.wifiState = wifiState;
+            this.wifiRestorer = wifiRestorer;
+        }
+
+        @Override
+        public String key(String packageName) {
+            return "wifi_off"; // One radio, whichever app triggered it
+        }
+
+        @Override
+        public boolean isSatisfied(String packageName) {
+            return wifiManager == null || !wifiState.isEnabledOrEnabling();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public boolean apply(String packageName) {
+            boolean disabled = wifiManager.setWifiEnabled(false);
+            Log.d(TAG, disabled ? "Wi-Fi disabled for " + packageName : "Wi-Fi disable request rejected");
+            if (disabled) {
+                // Only turned back on if it was on before, which isSatisfied already checked
+                wifiRestorer.onDisabled();
+            }
+            return disabled;
+        }
+    }
+
+    static final class NotifyAction implements EnforcementAction {
+        private final RestrictedAlertNotifier notifier;
+        private final EnforcementStrategy strategy;
+
+        NotifyAction(RestrictedAlertNotifier notifier, EnforcementStrategy strategy) {
+            this.notifier = notifier;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public String key(String packageName) {
+            return "notify:" + packageName;
+        }
+
+        @Override
+        public boolean isSatisfied(String packageName) {
+            return false;
+        }
+
+        @Override
+        public boolean apply(String packageName) {
+            notifier.onRestrictedApp(packageName, strategy, System.currentTimeMillis());
+            return true;
+        }
+    }
+
+    static final class GoHomeAction implements EnforcementAction {
+        private final AccessibilityService service;
+
+        GoHomeAction(AccessibilityService service) {
+            this.service = service;
+        }
+
+        @Override
+        public String key(String packageName) {
+            return "go_home";
+        }
+
+        @Override
+        public boolean isSatisfied(String packageName) {
+            return false;
+        }
+
+        @Override
+        public boolean apply(String packageName) {
+            return service.performGlobalAction(AccessibilityService.GLOBAL_ACTION_HOME);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.accessibilitymonitor;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.format.DateFormat;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.Spinner;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.accessibilitymonitor.core.JournalPager;
+import com.example.accessibilitymonitor.core.JournalRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pages through the event journal newest-first. Only the rows loaded so far are held in
+ * memory; the next page is read when the list is scrolled near its end.
+ */
+public class LogViewerActivity extends AppCompatActivity {
+    private static final String TAG = "LogViewerActivity";
+    private static final int PAGE_SIZE = 100;
+    // Rows from the end of the list at which the next page is requested
+    private static final int PREFETCH_DISTANCE = 20;
+    // Same order as R.array.log_range_labels; 0 means no lower bound
+    private static final long[] RANGE_MILLIS = {
+            TimeUnit.HOURS.toMillis(1),
+            TimeUnit.DAYS.toMillis(1),
+            TimeUnit.DAYS.toMillis(7),
+            TimeUnit.DAYS.toMillis(30),
+            0
+    };
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService pageExecutor = Executors.newSingleThreadExecutor();
+    private final LogAdapter adapter = new LogAdapter();
+    private JournalPager pager;
+    private JournalPager.Query query;
+    private JournalPager.Cursor nextCursor;
+    private boolean loading;
+    private boolean exhausted;
+    // Bumped on every new query so pages from an older one are dropped
+    private int generation;
+
+    private Spinner rangeSpinner;
+    private EditText packageFilter;
+    private TextView emptyText;
+    private LinearLayoutManager layoutManager;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_log_viewer);
+
+        rangeSpinner = findViewById(R.id.log_range_spinner);
+        packageFilter = findViewById(R.id.log_package_filter);
+        Button applyButton = findViewById(R.id.log_apply_button);
+        emptyText = findViewById(R.id.log_empty_text);
+        RecyclerView logList = findViewById(R.id.log_list);
+
+        layoutManager = new LinearLayoutManager(this);
+        logList.setLayoutManager(layoutManager);
+        logList.setAdapter(adapter);
+        logList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+        rangeSpinner.setSelection(1);
+        applyButton.setOnClickListener(v -> startQuery());
+
+        pageExecutor.execute(() -> {
+            try {
+                pager = new JournalPager(MonitorJournal.get(this));
+                mainHandler.post(this::startQuery);
+            } catch (IOException e) {
+                Log.e(TAG, "Event journal unavailable", e);
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        pageExecutor.shutdownNow();
+    }
+
+    private void startQuery() {
+        if (pager == null) {
+            return;
+        }
+        long range = RANGE_MILLIS[rangeSpinner.getSelectedItemPosition()];
+        long now = System.currentTimeMillis();
+        String packageName = packageFilter.getText().toString().trim();
+        query = new JournalPager.Query(range == 0 ? Long.MIN_VALUE : now - range, Long.MAX_VALUE,
+                packageName.isEmpty() ? null : packageName);
+        generation++;
+        nextCursor = null;
+        exhausted = false;
+        loading = false;
+        adapter.clear();
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (loading || exhausted || query == null) {
+            return;
+        }
+        loading = true;
+        int requestGeneration = generation;
+        JournalPager.Query requestQuery = query;
+        JournalPager.Cursor requestCursor = nextCursor;
+        pageExecutor.execute(() -> {
+            JournalPager.Page page;
+            try {
+                page = pager.readPage(requestQuery, requestCursor, PAGE_SIZE);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read event journal", e);
+                page = null;
+            }
+            JournalPager.Page result = page;
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading = false;
+                if (result == null) {
+                    exhausted = true;
+                } else {
+                    adapter.append(result.records);
+                    nextCursor = result.next;
+                    exhausted = result.next == null;
+                }
+                emptyText.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+            });
+        });
+    }
+
+    private static class LogAdapter extends RecyclerView.Adapter<LogAdapter.ViewHolder> {
+        private final List<JournalRecord> records = new ArrayList<>();
+
+        void clear() {
+            records.clear();
+            notifyDataSetChanged();
+        }
+
+        void append(List<JournalRecord> page) {
+            int start = records.size();
+            records.addAll(page);
+            notifyItemRangeInserted(start, page.size());
+        }
+
+        @NonNull
+        @Override
+        public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_log_entry, parent, false);
+            return new ViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+            JournalRecord record = records.get(position);
+            holder.time.setText(DateFormat.format("yyyy-MM-dd HH:mm:ss", record.timestamp));
+            holder.message.setText(JournalRecord.actionLabel(record.action) + ": " + record.packageName);
+        }
+
+        @Override
+        public int getItemCount() {
+            return records.size();
+        }
+
+        static final class ViewHolder extends RecyclerView.ViewHolder {
+            final TextView time;
+            final TextView message;
+
+            ViewHolder(View itemView) {
+                super(itemView);
+                time = itemView.findViewById(R.id.log_time);
+                message = itemView.findViewById(R.id.log_message);
+            }
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package com.example.accessibilitymonitor;
 
 import android.Manifest;
-import android.content.ComponentName;
-import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.provider.Settings;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.format.DateFormat;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -16,11 +17,29 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 
+import com.example.accessibilitymonitor.core.JournalRecord;
+import com.example.accessibilitymonitor.core.MonitorConfig;
+import com.example.accessibilitymonitor.core.StatusFeed;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class MainActivity extends AppCompatActivity {
 
     private TextView statusText;
+    private TextView profileText;
+    private TextView liveStatusText;
     private Button requestNotificationButton;
-
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // One pending redraw at a time, however fast the service reports changes
+    private final AtomicBoolean renderPosted = new AtomicBoolean();
+    private long renderedVersion = -1;
+    private final AccessibilityStatus.Listener accessibilityListener = this::showAccessibilityStatus;
+    // Called on the service's worker and main threads
+    private final StatusFeed.Listener statusListener = () -> {
+        if (renderPosted.compareAndSet(false, true)) {
+            handler.post(this::renderLiveStatus);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -28,13 +47,13 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         statusText = findViewById(R.id.status_text);
+        profileText = findViewById(R.id.profile_text);
+        liveStatusText = findViewById(R.id.live_status_text);
         Button openAccessibilityButton = findViewById(R.id.open_accessibility_button);
         requestNotificationButton = findViewById(R.id.request_notification_button);
        Button selectionAppsButton = findViewById(R.id.selection_apps_button);
         Button openSettingsButton = findViewById(R.id.open_settings_button); // New button
-
-        // Check and display the status of the Accessibility Service
-        updateAccessibilityStatus();
+        Button openDiagnosticsButton = findViewById(R.id.open_diagnostics_button);
 
         openAccessibilityButton.setOnClickListener(v -> {
             Intent intent = new Intent(Settings.ACTION_ACCESSIBILITY_SETTINGS);
@@ -56,12 +75,36 @@ public class MainActivity extends AppCompatActivity {
             Intent intent = new Intent(MainActivity.this, SettingsActivity.class);
             startActivity(intent);
         });
+        openDiagnosticsButton.setOnClickListener(view ->
+                startActivity(new Intent(MainActivity.this, DiagnosticsActivity.class)));
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        AccessibilityStatus.get(this).addListener(accessibilityListener);
+        AppMonitorService.STATUS.addListener(statusListener);
+        renderedVersion = -1;
+        statusListener.onStatusChanged();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        AccessibilityStatus.get(this).removeListener(accessibilityListener);
+        AppMonitorService.STATUS.removeListener(statusListener);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        updateAccessibilityStatus();
+        updateProfileIndicator();
+    }
+
+    private void updateProfileIndicator() {
+        MonitorConfig config = MonitorConfigStore.get(this).get();
+        profileText.setText("Profile: " + config.activeProfile + " (" + config.restrictedApps.size() + " apps"
+                + (config.monitoringEnabled ? ")" : ", monitoring off)"));
     }
 
     private final androidx.activity.result.ActivityResultLauncher<String> requestPermissionLauncher =
@@ -86,26 +129,32 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private void updateAccessibilityStatus() {
-        boolean isEnabled = isAccessibilityServiceEnabled(this, AppMonitorService.class);
+    private void showAccessibilityStatus(boolean isEnabled) {
         statusText.setText(isEnabled ? "Accessibility Service is enabled." : "Accessibility Service is disabled.");
     }
 
-    public static boolean isAccessibilityServiceEnabled(Context context, Class<?> serviceClass) {
-        ComponentName expectedComponentName = new ComponentName(context, serviceClass);
-        String enabledServices = Settings.Secure.getString(
-                context.getContentResolver(),
-                Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES
-        );
-        if (enabledServices == null) {
-            return false;
+    private void renderLiveStatus() {
+        renderPosted.set(false);
+        StatusFeed.Snapshot status = AppMonitorService.STATUS.snapshot();
+        if (status.version == renderedVersion) {
+            return;
+        }
+        renderedVersion = status.version;
+        StringBuilder text = new StringBuilder();
+        if (!status.connected) {
+            text.append("Service not running");
+        } else {
+            text.append("Monitoring ").append(status.monitoringEnabled ? "on" : "off")
+                    .append(", profile ").append(status.activeProfile);
+        }
+        if (status.foregroundPackage != null) {
+            text.append("\nForeground: ").append(status.foregroundPackage)
+                    .append(" since ").append(DateFormat.format("HH:mm:ss", status.foregroundSince));
         }
-        for (String enabledService : enabledServices.split(":")) {
-            ComponentName componentName = ComponentName.unflattenFromString(enabledService);
-            if (componentName != null && componentName.equals(expectedComponentName)) {
-                return true;
-            }
+        for (StatusFeed.Decision decision : status.decisions) {
+            text.append('\n').append(DateFormat.format("HH:mm:ss", decision.timestamp)).append("  ")
+                    .append(JournalRecord.actionLabel(decision.action)).append(": ").append(decision.packageName);
         }
-        return false;
+        liveStatusText.setText(text);
     }
 }
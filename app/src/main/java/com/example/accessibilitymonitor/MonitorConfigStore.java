@@ -0,0 +1,120 @@
+package com.example.accessibilitymonitor;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.accessibilitymonitor.core.ConfigFile;
+import com.example.accessibilitymonitor.core.ConfigStore;
+import com.example.accessibilitymonitor.core.EnforcementStrategy;
+import com.example.accessibilitymonitor.core.MonitorConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide access to the configuration. The first call after an upgrade folds the
+ * two preference files older versions used ("AppPrefs" for the service and app picker,
+ * "AppMonitorPrefs" for the settings screen) into the config file. A config file that
+ * exists but does not read is moved aside rather than migrated over, and the defaults
+ * are used in memory until the user changes something.
+ */
+final class MonitorConfigStore {
+    private static final String TAG = "MonitorConfigStore";
+    private static final String FILE_NAME = "monitor-config.bin";
+    private static final String LEGACY_SERVICE_PREFS = "AppPrefs";
+    private static final String LEGACY_SETTINGS_PREFS = "AppMonitorPrefs";
+    private static final String LEGACY_MONITORING_ENABLED = "monitoring_enabled";
+    private static final String LEGACY_RESTRICTED_APPS = "restricted_apps";
+    private static final String LEGACY_SESSION_DEBOUNCE_MS = "session_debounce_ms";
+    private static final String LEGACY_OBSERVE_ALL_EVENTS = "observe_all_events";
+    private static final String LEGACY_APP_STRATEGIES = "app_strategies";
+    private static final String LEGACY_SCHEDULE_RULES = "schedule_rules";
+
+    private static ConfigStore instance;
+
+    private MonitorConfigStore() {
+    }
+
+    static synchronized ConfigStore get(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            ConfigFile file = new ConfigFile(new File(app.getFilesDir(), FILE_NAME));
+            MonitorConfig config;
+            if (!file.exists()) {
+                config = migrate(app, file);
+            } else {
+                config = file.read();
+                if (config == null) {
+                    File backup = file.moveAside();
+                    Log.e(TAG, "Unreadable config file, " + (backup != null ? "moved to " + backup
+                            : "could not be moved and will be replaced on the next change") + "; using defaults");
+                    config = MonitorConfig.DEFAULTS;
+                }
+            }
+            instance = new ConfigStore(file, config, Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "ConfigWriter");
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+        return instance;
+    }
+
+    private static MonitorConfig migrate(Context context, ConfigFile file) {
+        SharedPreferences service = context.getSharedPreferences(LEGACY_SERVICE_PREFS, Context.MODE_PRIVATE);
+        SharedPreferences settings = context.getSharedPreferences(LEGACY_SETTINGS_PREFS, Context.MODE_PRIVATE);
+        MonitorConfig.Builder builder = new MonitorConfig.Builder();
+
+        // The settings switch is what the user last touched; the service copy was only set by broadcasts
+        SharedPreferences toggle = settings.contains(LEGACY_MONITORING_ENABLED) ? settings : service;
+        builder.setMonitoringEnabled(toggle.getBoolean(LEGACY_MONITORING_ENABLED, true));
+        // Both screens kept their own list; the union is what the user meant to restrict
+        addAll(builder, service.getStringSet(LEGACY_RESTRICTED_APPS, null));
+        addAll(builder, settings.getStringSet(LEGACY_RESTRICTED_APPS, null));
+        builder.setSessionDebounceMs(service.getLong(LEGACY_SESSION_DEBOUNCE_MS, MonitorConfig.DEFAULTS.sessionDebounceMs));
+        builder.setObserveAllEvents(service.getBoolean(LEGACY_OBSERVE_ALL_EVENTS, false));
+        Set<String> strategies = service.getStringSet(LEGACY_APP_STRATEGIES, null);
+        if (strategies != null) {
+            // Entries were stored as "package=strategy_key"
+            for (String entry : strategies) {
+                int separator = entry.lastIndexOf('=');
+                if (separator > 0) {
+                    builder.setStrategy(entry.substring(0, separator), EnforcementStrategy.fromKey(entry.substring(separator + 1)));
+                }
+            }
+        }
+        builder.setScheduleRules(service.getString(LEGACY_SCHEDULE_RULES, ""));
+        MonitorConfig config = builder.build();
+
+        try {
+            file.write(config);
+        } catch (IOException e) {
+            // Keep the legacy values so the next start can try again
+            Log.e(TAG, "Failed to write migrated config", e);
+            return config;
+        }
+        // The journal migration still reads the old "logs" entry from AppPrefs
+        service.edit()
+                .remove(LEGACY_MONITORING_ENABLED)
+                .remove(LEGACY_RESTRICTED_APPS)
+                .remove(LEGACY_SESSION_DEBOUNCE_MS)
+                .remove(LEGACY_OBSERVE_ALL_EVENTS)
+                .remove(LEGACY_APP_STRATEGIES)
+                .remove(LEGACY_SCHEDULE_RULES)
+                .apply();
+        settings.edit().clear().apply();
+        Log.d(TAG, "Migrated legacy preferences: " + config.restrictedApps.size() + " restricted apps");
+        return config;
+    }
+
+    private static void addAll(MonitorConfig.Builder builder, Set<String> packageNames) {
+        if (packageNames != null) {
+            for (String packageName : packageNames) {
+                builder.addRestrictedApp(packageName);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.accessibilitymonitor;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.accessibilitymonitor.core.EventJournal;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Process-wide access to the event journal, shared by the service that writes it and
+ * the screens that read it.
+ */
+final class MonitorJournal {
+    private static final String TAG = "MonitorJournal";
+    private static final int RECORDS_PER_SEGMENT = 16 * 1024; // 256 KiB per segment
+    private static final int MAX_SEGMENTS = 8;
+
+    private static EventJournal instance;
+
+    private MonitorJournal() {
+    }
+
+    static synchronized EventJournal get(Context context) throws IOException {
+        if (instance == null) {
+            File dir = new File(context.getApplicationContext().getFilesDir(), "journal");
+            instance = new EventJournal(dir, RECORDS_PER_SEGMENT, MAX_SEGMENTS);
+            Log.d(TAG, "Journal opened at " + dir);
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.accessibilitymonitor;
+
+import com.example.accessibilitymonitor.core.EnforcementStrategy;
+import com.example.accessibilitymonitor.core.MonitorConfig;
+import com.example.accessibilitymonitor.core.PolicyTransfer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * The JSON form of the restricted-app list: an array, or an object with a {@code "restricted"}
+ * array, of package-name strings or {@code {"package": ..., "strategy": ...}} objects. Other
+ * members are ignored. Entries are validated by {@link PolicyTransfer#visitEntry} like the
+ * text format's; a document that does not parse fails the whole read.
+ */
+final class PolicyJson {
+    private static final String RESTRICTED_MEMBER = "restricted";
+    // A policy lists installed apps, so anything near this is not one
+    private static final int MAX_DOCUMENT_CHARS = 1 << 20;
+    private static final int MAX_LEADING_SPACE = 1024;
+
+    private PolicyJson() {
+    }
+
+    /** Peeks past leading whitespace and a byte-order mark without consuming anything. */
+    static boolean startsAsJson(BufferedReader reader) throws IOException {
+        reader.mark(MAX_LEADING_SPACE + 1);
+        int c;
+        int skipped = 0;
+        do {
+            c = reader.read();
+        } while ((Character.isWhitespace(c) || c == '\uFEFF') && ++skipped < MAX_LEADING_SPACE);
+        reader.reset();
+        return c == '[' || c == '{';
+    }
+
+    static void read(Reader reader, PolicyTransfer.Visitor visitor) throws IOException {
+        JSONArray items;
+        try {
+            JSONTokener tokener = new JSONTokener(readDocument(reader));
+            Object root = tokener.nextValue();
+            if (root instanceof JSONArray) {
+                items = (JSONArray) root;
+            } else if (root instanceof JSONObject) {
+                items = ((JSONObject) root).optJSONArray(RESTRICTED_MEMBER);
+                if (items == null) {
+                    throw new IOException("No \"" + RESTRICTED_MEMBER + "\" array");
+                }
+            } else {
+                throw new IOException("Not a policy document");
+            }
+            if (tokener.nextClean() != 0) {
+                throw new IOException("Unexpected content after the policy");
+            }
+        } catch (JSONException e) {
+            throw new IOException(parseError(e), e);
+        }
+        for (int i = 0; i < items.length(); i++) {
+            Object item = items.opt(i);
+            String where = "Entry " + (i + 1);
+            if (item instanceof String) {
+                PolicyTransfer.visitEntry((String) item, null, where, visitor);
+            } else if (item instanceof JSONObject) {
+                Object packageName = ((JSONObject) item).opt("package");
+                Object strategy = ((JSONObject) item).opt("strategy");
+                if (packageName instanceof String) {
+                    PolicyTransfer.visitEntry((String) packageName,
+                            strategy instanceof String ? (String) strategy : null, where, visitor);
+                } else {
+                    visitor.onRejected(where, "missing \"package\"");
+                }
+            } else {
+                visitor.onRejected(where, "expected a package name or an object");
+            }
+        }
+    }
+
+    static void write(Writer out, MonitorConfig config) throws IOException {
+        JSONArray restricted = new JSONArray();
+        try {
+            for (String packageName : PolicyTransfer.exportOrder(config)) {
+                JSONObject item = new JSONObject().put("package", packageName);
+                EnforcementStrategy strategy = config.strategies.get(packageName);
+                if (strategy != null) {
+                    item.put("strategy", strategy.key);
+                }
+                restricted.put(item);
+            }
+            out.write(new JSONObject().put(RESTRICTED_MEMBER, restricted).toString(2));
+        } catch (JSONException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        out.write('\n');
+        out.flush();
+    }
+
+    /** org.json ends its parse errors with the whole document; keep only the position. */
+    private static String parseError(JSONException e) {
+        String message = String.valueOf(e.getMessage());
+        int position = message.lastIndexOf(" at character ");
+        int document = position >= 0 ? message.indexOf(" of ", position) : -1;
+        return document >= 0 ? message.substring(0, document) : message;
+    }
+
+    private static String readDocument(Reader reader) throws IOException {
+        StringBuilder document = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            document.append(buffer, 0, read);
+            if (document.length() > MAX_DOCUMENT_CHARS) {
+                throw new IOException("File too large");
+            }
+        }
+        if (document.length() > 0 && document.charAt(0) == '\uFEFF') {
+            document.deleteCharAt(0);
+        }
+        return document.toString();
+    }
+}
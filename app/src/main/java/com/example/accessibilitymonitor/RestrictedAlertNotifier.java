@@ -0,0 +1,187 @@
+package com.example.accessibilitymonitor;
+
+import android.annotation.SuppressLint;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.service.notification.StatusBarNotification;
+import android.widget.Toast;
+
+import androidx.core.app.NotificationCompat;
+
+import com.example.accessibilitymonitor.core.AlertCoalescer;
+import com.example.accessibilitymonitor.core.EnforcementStrategy;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts restricted-app alerts. The channel is registered once, alerts are grouped and
+ * updated in place per package, and an {@link AlertCoalescer} caps how often a package
+ * can produce a notification update and Toast, so a burst of detections costs a bounded
+ * number of NotificationManager calls. Per-package texts are formatted once, with the
+ * builder, and reused for every later alert under the same strategy. Detections that are
+ * rate limited refresh the shown count once, a little later, without alerting again.
+ * Alerts the user dismissed are forgotten, so the map and the summary count only cover
+ * notifications still showing.
+ */
+final class RestrictedAlertNotifier {
+    private static final String CHANNEL_ID = "RestrictedAppChannel";
+    private static final String GROUP_KEY = "restricted_apps";
+    private static final int SUMMARY_ID = 1;
+    private static final long WINDOW_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final int BURST = 3;
+    private static final long REFILL_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long REFRESH_DELAY_MS = TimeUnit.SECONDS.toMillis(10);
+
+    private final Context context;
+    private final NotificationManager notificationManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AlertCoalescer coalescer = new AlertCoalescer(WINDOW_MS, BURST, REFILL_INTERVAL_MS);
+    private final Map<String, PackageAlert> alerts = new HashMap<>();
+    private NotificationCompat.Builder summaryBuilder;
+    private int nextId;
+
+    RestrictedAlertNotifier(Context context) {
+        this.context = context;
+        this.notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID, "Restricted App Alerts", NotificationManager.IMPORTANCE_HIGH);
+            notificationManager.createNotificationChannel(channel);
+        }
+        // Past any alert still showing from an earlier run, so none is overwritten
+        nextId = SUMMARY_ID + 1;
+        for (StatusBarNotification shown : notificationManager.getActiveNotifications()) {
+            nextId = Math.max(nextId, shown.getId() + 1);
+        }
+    }
+
+    /** Called from the enforcement worker thread. */
+    @SuppressLint("NotificationPermission")
+    synchronized void onRestrictedApp(String packageName, EnforcementStrategy strategy, long now) {
+        int count = coalescer.record(packageName, now);
+        if (count == 0) {
+            PackageAlert shown = alerts.get(packageName);
+            if (shown != null) {
+                shown.lastHit = now;
+                if (!shown.refreshPending) {
+                    shown.refreshPending = true;
+                    mainHandler.postDelayed(() -> refresh(shown), REFRESH_DELAY_MS);
+                }
+            }
+            return;
+        }
+        pruneDismissed();
+        PackageAlert alert = alerts.get(packageName);
+        if (alert == null) {
+            alert = new PackageAlert(context, packageName, nextId++);
+            alerts.put(packageName, alert);
+        }
+        alert.setStrategy(strategy);
+        alert.lastHit = now;
+        post(alert, count);
+
+        if (alerts.size() > 1) {
+            postSummary();
+        }
+        mainHandler.post(alert.showToast);
+    }
+
+    /** Brings a shown alert's count up to date after rate-limited detections. */
+    private synchronized void refresh(PackageAlert alert) {
+        alert.refreshPending = false;
+        pruneDismissed();
+        if (alerts.get(alert.packageName) == alert) {
+            post(alert, coalescer.recentCount(alert.packageName));
+        }
+    }
+
+    @SuppressLint("NotificationPermission")
+    private void post(PackageAlert alert, int count) {
+        String text = count == 1
+                ? alert.firstText
+                : alert.packageName + " blocked " + count + " times in the last "
+                        + TimeUnit.MILLISECONDS.toMinutes(coalescer.windowMs()) + " min";
+        alert.builder.setContentText(text).setWhen(alert.lastHit).setNumber(count);
+        notificationManager.notify(alert.id, alert.builder.build());
+    }
+
+    private void pruneDismissed() {
+        if (alerts.isEmpty()) {
+            return;
+        }
+        Set<Integer> shown = new HashSet<>();
+        for (StatusBarNotification notification : notificationManager.getActiveNotifications()) {
+            shown.add(notification.getId());
+        }
+        alerts.values().removeIf(alert -> !shown.contains(alert.id));
+    }
+
+    private static final class PackageAlert {
+        final NotificationCompat.Builder builder;
+        final String packageName;
+        final int id;
+        private final Context context;
+        private EnforcementStrategy strategy;
+        String firstText;
+        Runnable showToast;
+        long lastHit;
+        boolean refreshPending;
+
+        PackageAlert(Context context, String packageName, int id) {
+            this.context = context;
+            this.packageName = packageName;
+            this.id = id;
+            builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                    .setSmallIcon(R.drawable.ic_warning)
+                    .setContentTitle("Restricted App Detected")
+                    .setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setGroup(GROUP_KEY)
+                    .setOnlyAlertOnce(true);
+        }
+
+        /** Reformats the texts only when the package's strategy changed since the last alert. */
+        void setStrategy(EnforcementStrategy strategy) {
+            if (strategy == this.strategy) {
+                return;
+            }
+            this.strategy = strategy;
+            String toastText;
+            switch (strategy) {
+                case WIFI_OFF:
+                    firstText = "Wi-Fi has been disabled for " + packageName;
+                    toastText = "Turned off Wi-Fi while " + packageName + " is open";
+                    break;
+                case GO_HOME:
+                    firstText = packageName + " was closed";
+                    toastText = packageName + " is restricted and was closed";
+                    break;
+                default:
+                    firstText = packageName + " was opened";
+                    toastText = packageName + " is restricted";
+                    break;
+            }
+            showToast = () -> Toast.makeText(context, toastText, Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void postSummary() {
+        if (summaryBuilder == null) {
+            summaryBuilder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                    .setSmallIcon(R.drawable.ic_warning)
+                    .setContentTitle("Restricted apps blocked")
+                    .setGroup(GROUP_KEY)
+                    .setGroupSummary(true)
+                    .setOnlyAlertOnce(true);
+        }
+        summaryBuilder.setContentText(alerts.size() + " apps blocked");
+        notificationManager.notify(SUMMARY_ID, summaryBuilder.build());
+    }
+}
@@ -1,28 +1,78 @@
 package com.example.accessibilitymonitor;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.Spinner;
 import android.widget.Switch;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.biometric.BiometricManager;
 import androidx.biometric.BiometricPrompt;
 import androidx.core.content.ContextCompat;
 
+import com.example.accessibilitymonitor.core.CatalogEntry;
+import com.example.accessibilitymonitor.core.ConfigStore;
+import com.example.accessibilitymonitor.core.ContentRules;
+import com.example.accessibilitymonitor.core.EnforcementStrategy;
+import com.example.accessibilitymonitor.core.MonitorConfig;
+import com.example.accessibilitymonitor.core.PolicyImport;
+import com.example.accessibilitymonitor.core.PolicyTransfer;
+import com.example.accessibilitymonitor.core.WeeklySchedule;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.TimeZone;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SettingsActivity extends AppCompatActivity {
+    private static final String TAG = "SettingsActivity";
+    private static final int MAX_LISTED_PACKAGES = 5;
+    private static final int[] ARCHIVE_RETENTION_DAYS = {30, 90, 180, 365};
+    private static final long[] WIFI_RESTORE_GRACE_MS = {MonitorConfig.WIFI_RESTORE_OFF, 10_000, 30_000, 60_000, 300_000};
+    private static final int[] WIFI_TOGGLE_CAPS = {2, 4, 6};
+
     private Switch monitorSwitch;
-    private EditText appInput;
-    private Button addAppButton, removeAppButton, showAppsButton, viewLogsButton;
-    private SharedPreferences preferences;
-    private SharedPreferences.Editor editor;
+    private EditText appInput, scheduleInput, contentRulesInput;
+    private Spinner strategySpinner, profileSpinner, retentionSpinner, wifiRestoreSpinner, wifiToggleCapSpinner;
+    private ArrayAdapter<String> profileAdapter;
+    private Button addAppButton, removeAppButton, setStrategyButton, saveScheduleButton, saveContentRulesButton, showAppsButton, viewLogsButton;
+    private Button importButton, exportButton, addProfileButton, deleteProfileButton;
+    private ConfigStore configStore;
+
+    private final ExecutorService transferExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ActivityResultLauncher<String[]> importLauncher =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::importPolicy);
+    private final ActivityResultLauncher<String> exportTextLauncher =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument("text/plain"), uri -> exportPolicy(uri, false));
+    private final ActivityResultLauncher<String> exportJsonLauncher =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument("application/json"), uri -> exportPolicy(uri, true));
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -32,6 +82,12 @@ public class SettingsActivity extends AppCompatActivity {
         checkBiometricAuthentication();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        transferExecutor.shutdown();
+    }
+
     private void checkBiometricAuthentication() {
         BiometricManager biometricManager = BiometricManager.from(this);
         if (biometricManager.canAuthenticate(BiometricManager.Authenticators.BIOMETRIC_STRONG)
@@ -73,61 +129,382 @@ public class SettingsActivity extends AppCompatActivity {
         appInput = findViewById(R.id.app_input);
         addAppButton = findViewById(R.id.add_app_button);
         removeAppButton = findViewById(R.id.remove_app_button);
+        strategySpinner = findViewById(R.id.strategy_spinner);
+        setStrategyButton = findViewById(R.id.set_strategy_button);
+        scheduleInput = findViewById(R.id.schedule_input);
+        saveScheduleButton = findViewById(R.id.save_schedule_button);
+        contentRulesInput = findViewById(R.id.content_rules_input);
+        saveContentRulesButton = findViewById(R.id.save_content_rules_button);
         showAppsButton = findViewById(R.id.show_apps_button);
         viewLogsButton = findViewById(R.id.view_logs_button);
+        importButton = findViewById(R.id.import_policy_button);
+        exportButton = findViewById(R.id.export_policy_button);
+        profileSpinner = findViewById(R.id.profile_spinner);
+        retentionSpinner = findViewById(R.id.retention_spinner);
+        wifiRestoreSpinner = findViewById(R.id.wifi_restore_spinner);
+        wifiToggleCapSpinner = findViewById(R.id.wifi_toggle_cap_spinner);
+        addProfileButton = findViewById(R.id.add_profile_button);
+        deleteProfileButton = findViewById(R.id.delete_profile_button);
 
-        preferences = getSharedPreferences("AppMonitorPrefs", MODE_PRIVATE);
-        editor = preferences.edit();
+        configStore = MonitorConfigStore.get(this);
+        MonitorConfig config = configStore.get();
 
-        monitorSwitch.setChecked(preferences.getBoolean("monitoring_enabled", true));
+        monitorSwitch.setChecked(config.monitoringEnabled);
         monitorSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            editor.putBoolean("monitoring_enabled", isChecked);
-            editor.apply();
+            configStore.update(builder -> builder.setMonitoringEnabled(isChecked));
             Toast.makeText(this, "Monitoring " + (isChecked ? "Enabled" : "Disabled"), Toast.LENGTH_SHORT).show();
-            notifyService();
+        });
+
+        profileAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, new ArrayList<String>());
+        profileAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        profileSpinner.setAdapter(profileAdapter);
+        refreshProfiles();
+        profileSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                String name = profileAdapter.getItem(position);
+                if (name != null && !name.equals(configStore.get().activeProfile)) {
+                    configStore.update(builder -> builder.setActiveProfile(name));
+                    Toast.makeText(SettingsActivity.this, "Profile: " + name, Toast.LENGTH_SHORT).show();
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+        addProfileButton.setOnClickListener(v -> showNewProfileDialog());
+        deleteProfileButton.setOnClickListener(v -> {
+            String active = configStore.get().activeProfile;
+            if (configStore.get().profiles.size() <= 1) {
+                Toast.makeText(this, "The only profile cannot be deleted", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            new AlertDialog.Builder(this)
+                    .setTitle("Delete Profile")
+                    .setMessage("Delete \"" + active + "\" and its restricted apps?")
+                    .setPositiveButton("Delete", (dialog, which) -> {
+                        configStore.update(builder -> builder.removeProfile(active));
+                        refreshProfiles();
+                    })
+                    .setNegativeButton("Cancel", null)
+                    .show();
         });
 
         addAppButton.setOnClickListener(v -> {
             String app = appInput.getText().toString().trim();
             if (!app.isEmpty()) {
-                Set<String> apps = preferences.getStringSet("restricted_apps", new HashSet<>());
-                apps.add(app);
-                editor.putStringSet("restricted_apps", apps);
-                editor.apply();
+                configStore.update(builder -> builder.addRestrictedApp(app));
                 Toast.makeText(this, "App added: " + app, Toast.LENGTH_SHORT).show();
-                notifyService();
             }
         });
 
         removeAppButton.setOnClickListener(v -> {
             String app = appInput.getText().toString().trim();
             if (!app.isEmpty()) {
-                Set<String> apps = preferences.getStringSet("restricted_apps", new HashSet<>());
-                if (apps.contains(app)) {
-                    apps.remove(app);
-                    editor.putStringSet("restricted_apps", apps);
-                    editor.apply();
+                if (configStore.get().restrictedApps.contains(app)) {
+                    configStore.update(builder -> builder.removeRestrictedApp(app));
                     Toast.makeText(this, "App removed: " + app, Toast.LENGTH_SHORT).show();
-                    notifyService();
                 } else {
                     Toast.makeText(this, "App not found: " + app, Toast.LENGTH_SHORT).show();
                 }
             }
         });
 
+        setStrategyButton.setOnClickListener(v -> {
+            String app = appInput.getText().toString().trim();
+            if (!app.isEmpty()) {
+                EnforcementStrategy strategy = EnforcementStrategy.values()[strategySpinner.getSelectedItemPosition()];
+                configStore.update(builder -> builder.setStrategy(app, strategy));
+                Toast.makeText(this, "Action for " + app + ": " + strategySpinner.getSelectedItem(), Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        scheduleInput.setText(config.scheduleRules);
+        saveScheduleButton.setOnClickListener(v -> {
+            String rules = scheduleInput.getText().toString().trim();
+            try {
+                WeeklySchedule.parse(rules, TimeZone.getDefault(), System.currentTimeMillis());
+            } catch (IllegalArgumentException e) {
+                Toast.makeText(this, "Invalid schedule. " + e.getMessage(), Toast.LENGTH_LONG).show();
+                return;
+            }
+            configStore.update(builder -> builder.setScheduleRules(rules));
+            Toast.makeText(this, rules.isEmpty() ? "Apps restricted at all times" : "Schedule saved", Toast.LENGTH_SHORT).show();
+        });
+
+        contentRulesInput.setText(config.contentRules);
+        saveContentRulesButton.setOnClickListener(v -> {
+            String rules = contentRulesInput.getText().toString().trim();
+            ContentRules parsed;
+            try {
+                parsed = ContentRules.parse(rules);
+            } catch (IllegalArgumentException e) {
+                Toast.makeText(this, "Invalid content rules. " + e.getMessage(), Toast.LENGTH_LONG).show();
+                return;
+            }
+            configStore.update(builder -> builder.setContentRules(rules));
+            Toast.makeText(this, parsed.isEmpty() ? "Content rules cleared" : "Content rules saved ("
+                    + parsed.keywordCount() + " keywords)", Toast.LENGTH_SHORT).show();
+        });
+
         showAppsButton.setOnClickListener(v -> {
-            Set<String> apps = preferences.getStringSet("restricted_apps", new HashSet<>());
-            Toast.makeText(this, "Restricted Apps: " + apps.toString(), Toast.LENGTH_LONG).show();
+            Set<String> apps = configStore.get().restrictedApps;
+            Toast.makeText(this, "Restricted Apps (" + configStore.get().activeProfile + "): " + apps.toString(),
+                    Toast.LENGTH_LONG).show();
+        });
+
+        viewLogsButton.setOnClickListener(v -> startActivity(new Intent(this, LogViewerActivity.class)));
+
+        retentionSpinner.setSelection(retentionIndex(config.archiveRetentionDays));
+        retentionSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                int days = ARCHIVE_RETENTION_DAYS[position];
+                if (days != configStore.get().archiveRetentionDays) {
+                    configStore.update(builder -> builder.setArchiveRetentionDays(days));
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
         });
 
-        viewLogsButton.setOnClickListener(v -> {
-            String logs = preferences.getString("logs", "No logs available.");
-            Toast.makeText(this, logs, Toast.LENGTH_LONG).show();
+        wifiRestoreSpinner.setSelection(wifiRestoreIndex(config.wifiRestoreGraceMs));
+        wifiRestoreSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                long graceMs = WIFI_RESTORE_GRACE_MS[position];
+                if (graceMs != configStore.get().wifiRestoreGraceMs) {
+                    configStore.update(builder -> builder.setWifiRestoreGraceMs(graceMs));
+                }
+                wifiToggleCapSpinner.setEnabled(graceMs != MonitorConfig.WIFI_RESTORE_OFF
+                        && wifiRestoreSpinner.isEnabled());
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
         });
+
+        if (!WifiRestorer.isSupported(this)) {
+            // The system rejects Wi-Fi toggles from this app, so there is never anything to restore
+            wifiRestoreSpinner.setEnabled(false);
+        }
+
+        wifiToggleCapSpinner.setSelection(wifiToggleCapIndex(config.maxWifiTogglesPerMinute));
+        wifiToggleCapSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                int cap = WIFI_TOGGLE_CAPS[position];
+                if (cap != configStore.get().maxWifiTogglesPerMinute) {
+                    configStore.update(builder -> builder.setMaxWifiTogglesPerMinute(cap));
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        importButton.setOnClickListener(v -> importLauncher.launch(new String[]{"text/*", "application/json"}));
+        exportButton.setOnClickListener(v -> new AlertDialog.Builder(this)
+                .setTitle("Export Restricted Apps")
+                .setItems(new CharSequence[]{"Text, one app per line", "JSON"}, (dialog, which) -> {
+                    if (which == 0) {
+                        exportTextLauncher.launch("restricted-apps.txt");
+                    } else {
+                        exportJsonLauncher.launch("restricted-apps.json");
+                    }
+                })
+                .show());
     }
 
-    private void notifyService() {
-        Intent intent = new Intent("com.example.ACCESSIBILITY_UPDATE");
-        sendBroadcast(intent);
+    /** The closest offered choice that keeps at least {@code days}. */
+    private static int retentionIndex(int days) {
+        for (int i = 0; i < ARCHIVE_RETENTION_DAYS.length; i++) {
+            if (ARCHIVE_RETENTION_DAYS[i] >= days) {
+                return i;
+            }
+        }
+        return ARCHIVE_RETENTION_DAYS.length - 1;
+    }
+
+    /** The offered grace closest to {@code graceMs}, or the "leave off" choice. */
+    private static int wifiRestoreIndex(long graceMs) {
+        if (graceMs == MonitorConfig.WIFI_RESTORE_OFF) {
+            return 0;
+        }
+        int best = 1;
+        for (int i = 1; i < WIFI_RESTORE_GRACE_MS.length; i++) {
+            if (Math.abs(WIFI_RESTORE_GRACE_MS[i] - graceMs) < Math.abs(WIFI_RESTORE_GRACE_MS[best] - graceMs)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /** The largest offered cap that does not exceed {@code cap}. */
+    private static int wifiToggleCapIndex(int cap) {
+        int index = 0;
+        for (int i = 0; i < WIFI_TOGGLE_CAPS.length; i++) {
+            if (WIFI_TOGGLE_CAPS[i] <= cap) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private void showNewProfileDialog() {
+        EditText nameInput = new EditText(this);
+        nameInput.setHint("Profile name, e.g. work");
+        new AlertDialog.Builder(this)
+                .setTitle("New Profile")
+                .setView(nameInput)
+                .setPositiveButton("Create", (dialog, which) -> {
+                    String name = nameInput.getText().toString().trim();
+                    if (name.isEmpty()) {
+                        return;
+                    }
+                    if (configStore.get().profiles.containsKey(name)) {
+                        Toast.makeText(this, "Profile exists: " + name, Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    // New profiles start empty and become active so apps can be added right away
+                    configStore.update(builder -> builder.addProfile(name).setActiveProfile(name));
+                    refreshProfiles();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void refreshProfiles() {
+        MonitorConfig config = configStore.get();
+        profileAdapter.clear();
+        profileAdapter.addAll(config.profiles.keySet());
+        profileSpinner.setSelection(profileAdapter.getPosition(config.activeProfile));
+    }
+
+    private void importPolicy(Uri uri) {
+        // A result delivered to a recreated activity arrives before authentication
+        if (uri == null || configStore == null) {
+            return;
+        }
+        transferExecutor.execute(() -> {
+            PolicyImport result = new PolicyImport();
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("Document unavailable");
+                }
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                if (PolicyJson.startsAsJson(reader)) {
+                    PolicyJson.read(reader, result);
+                } else {
+                    PolicyTransfer.readLines(reader, result);
+                }
+            } catch (IOException | SecurityException e) {
+                Log.e(TAG, "Policy import failed", e);
+                mainHandler.post(() -> Toast.makeText(this, "Import failed. " + e.getMessage(), Toast.LENGTH_LONG).show());
+                return;
+            }
+            Set<String> installed = installedPackages();
+            MonitorConfig current = configStore.get();
+            PolicyImport.Diff merge = result.diff(current, installed, false);
+            PolicyImport.Diff replace = result.diff(current, installed, true);
+            mainHandler.post(() -> showImportDiff(result, merge, replace));
+        });
+    }
+
+    private Set<String> installedPackages() {
+        AppCatalog catalog = new AppCatalog(this);
+        catalog.loadCached();
+        List<CatalogEntry> entries = catalog.refresh(null);
+        Set<String> installed = new HashSet<>(entries.size() * 2);
+        for (CatalogEntry entry : entries) {
+            installed.add(entry.packageName);
+        }
+        return installed;
+    }
+
+    private void showImportDiff(PolicyImport result, PolicyImport.Diff merge, PolicyImport.Diff replace) {
+        if (isFinishing() || isDestroyed()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder();
+        message.append("Apps in file: ").append(result.entryCount()).append('\n');
+        appendPackages(message, "Added", merge.added);
+        message.append("Action changed: ").append(merge.strategyChanges.size()).append('\n');
+        message.append("Unchanged: ").append(merge.unchangedCount).append('\n');
+        appendPackages(message, "Removed only if replacing", replace.removed);
+        appendPackages(message, "Not installed", merge.notInstalled);
+        if (result.duplicateCount() > 0) {
+            message.append("Duplicates ignored: ").append(result.duplicateCount()).append('\n');
+        }
+        if (result.rejectedCount() > 0) {
+            message.append("Skipped: ").append(result.rejectedCount()).append('\n');
+            for (String rejection : result.rejections()) {
+                message.append("  ").append(rejection).append('\n');
+            }
+        }
+        AlertDialog.Builder dialog = new AlertDialog.Builder(this)
+                .setTitle("Import Restricted Apps")
+                .setMessage(message.toString().trim())
+                .setNegativeButton("Cancel", null);
+        if (!merge.isEmpty()) {
+            dialog.setPositiveButton("Merge", (d, which) -> applyImport(result, false));
+        }
+        if (!replace.isEmpty()) {
+            dialog.setNeutralButton("Replace", (d, which) -> applyImport(result, true));
+        }
+        dialog.show();
+    }
+
+    private static void appendPackages(StringBuilder message, String label, List<String> packages) {
+        message.append(label).append(": ").append(packages.size());
+        for (int i = 0; i < Math.min(packages.size(), MAX_LISTED_PACKAGES); i++) {
+            message.append(i == 0 ? " (" : ", ").append(packages.get(i));
+        }
+        if (!packages.isEmpty()) {
+            message.append(packages.size() > MAX_LISTED_PACKAGES ? ", ...)" : ")");
+        }
+        message.append('\n');
+    }
+
+    private void applyImport(PolicyImport result, boolean replace) {
+        // One update, so the service recompiles its policy once for the whole import. The
+        // diff shown in the dialog may be stale by now, so it is recomputed under the update.
+        PolicyImport.Diff[] applied = new PolicyImport.Diff[1];
+        configStore.update(builder -> applied[0] = result.applyTo(builder, replace));
+        PolicyImport.Diff diff = applied[0];
+        Toast.makeText(this, "Imported: " + diff.added.size() + " added, " + diff.removed.size() + " removed, "
+                + diff.strategyChanges.size() + " actions changed", Toast.LENGTH_LONG).show();
+    }
+
+    private void exportPolicy(Uri uri, boolean json) {
+        if (uri == null || configStore == null) {
+            return;
+        }
+        MonitorConfig config = configStore.get();
+        transferExecutor.execute(() -> {
+            String message;
+            try (OutputStream out = getContentResolver().openOutputStream(uri, "wt")) {
+                if (out == null) {
+                    throw new IOException("Document unavailable");
+                }
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                if (json) {
+                    PolicyJson.write(writer, config);
+                } else {
+                    PolicyTransfer.writeLines(writer, config);
+                }
+                message = "Exported " + config.restrictedApps.size() + " apps";
+            } catch (IOException | SecurityException e) {
+                Log.e(TAG, "Policy export failed", e);
+                message = "Export failed. " + e.getMessage();
+            }
+            String result = message;
+            mainHandler.post(() -> Toast.makeText(this, result, Toast.LENGTH_SHORT).show());
+        });
     }
 }
@@ -0,0 +1,109 @@
+package com.example.accessibilitymonitor;
+
+import android.util.Log;
+
+import com.example.accessibilitymonitor.core.EventTrace;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Records window events to files/traces/trace-*.bin for the replay harness in :core.
+ * Encoding and file I/O run on a background thread so the accessibility callback only
+ * pays for a queue insert. A recording stops on its own at {@link #MAX_TRACE_BYTES}.
+ * Pull traces with {@code adb shell run-as com.example.accessibilitymonitor cat files/traces/<name>}.
+ */
+final class TraceRecorder {
+    private static final String TAG = "TraceRecorder";
+    private static final long MAX_TRACE_BYTES = 16 * 1024 * 1024;
+
+    private final File dir;
+    private final ExecutorService writerThread = Executors.newSingleThreadExecutor(r -> new Thread(r, "TraceRecorder"));
+    // Main-thread only
+    private boolean recording;
+    // Writer-thread only
+    private EventTrace.Writer writer;
+
+    TraceRecorder(File dir) {
+        this.dir = dir;
+    }
+
+    boolean isRecording() {
+        return recording;
+    }
+
+    void start() {
+        if (recording) {
+            return;
+        }
+        recording = true;
+        writerThread.execute(() -> {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                Log.e(TAG, "Cannot create " + dir);
+                return;
+            }
+            String name = "trace-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".bin";
+            File file = new File(dir, name);
+            try {
+                writer = new EventTrace.Writer(new FileOutputStream(file));
+                Log.d(TAG, "Recording to " + file);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot open " + file, e);
+            }
+        });
+    }
+
+    void record(long timestamp, String packageName, String className, int eventType) {
+        if (!recording) {
+            return;
+        }
+        writerThread.execute(() -> {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.append(timestamp, packageName, className, eventType);
+                if (writer.size() >= MAX_TRACE_BYTES) {
+                    Log.w(TAG, "Trace reached " + MAX_TRACE_BYTES + " bytes, stopping");
+                    closeWriter();
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Trace write failed, stopping", e);
+                closeWriter();
+            }
+        });
+    }
+
+    void stop() {
+        if (!recording) {
+            return;
+        }
+        recording = false;
+        writerThread.execute(this::closeWriter);
+    }
+
+    /** Stops recording and lets the writer thread finish the file. */
+    void shutdown() {
+        stop();
+        writerThread.shutdown();
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+            Log.d(TAG, "Trace closed with " + writer.recordCount() + " events");
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close trace", e);
+        }
+        writer = null;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.accessibilitymonitor;
+
+import android.Manifest;
+import android.app.AppOpsManager;
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.accessibilitymonitor.core.UsageFile;
+import com.example.accessibilitymonitor.core.UsageRollup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide daily foreground time per app, built from {@link UsageStatsManager#queryEvents}.
+ * Each {@link #ingest()} reads only the events since the persisted checkpoint, so the cost
+ * of a run depends on how much happened since the last one, not on how much history exists.
+ * Ingestion does binder and file work and belongs off the UI thread.
+ */
+final class UsageTracker {
+    private static final String TAG = "UsageTracker";
+    private static final String FILE_NAME = "usage-rollup.bin";
+    private static final int RETENTION_DAYS = 14;
+    // The system keeps roughly this much event history, so a first run cannot see further back
+    private static final long MAX_BACKFILL_MS = TimeUnit.DAYS.toMillis(7);
+
+    private static UsageTracker instance;
+
+    private final Context context;
+    private final UsageFile file;
+    private UsageRollup rollup;
+
+    private UsageTracker(Context context) {
+        this.context = context;
+        this.file = new UsageFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    static synchronized UsageTracker get(Context context) {
+        if (instance == null) {
+            instance = new UsageTracker(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /** Usage access is an app op; checking it does not touch usage data. */
+    static boolean hasPermission(Context context) {
+        AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+        int mode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? appOps.unsafeCheckOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS, Process.myUid(), context.getPackageName())
+                : appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS, Process.myUid(), context.getPackageName());
+        if (mode == AppOpsManager.MODE_DEFAULT) {
+            return context.checkCallingOrSelfPermission(Manifest.permission.PACKAGE_USAGE_STATS)
+                    == PackageManager.PERMISSION_GRANTED;
+        }
+        return mode == AppOpsManager.MODE_ALLOWED;
+    }
+
+    /** Returns the number of events processed, or -1 without usage access. */
+    synchronized int ingest() {
+        if (!hasPermission(context)) {
+            return -1;
+        }
+        UsageRollup usage = load();
+        long now = System.currentTimeMillis();
+        long begin = Math.max(usage.checkpoint(), now - MAX_BACKFILL_MS);
+        if (begin >= now) {
+            return 0;
+        }
+        UsageStatsManager usageStats = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        UsageEvents events = usageStats.queryEvents(begin, now);
+        if (events == null) {
+            return 0;
+        }
+        int processed = 0;
+        UsageEvents.Event event = new UsageEvents.Event();
+        while (events.getNextEvent(event)) {
+            processed++;
+            switch (event.getEventType()) {
+                case UsageEvents.Event.MOVE_TO_FOREGROUND:
+                    usage.onForeground(event.getPackageName(), event.getTimeStamp());
+                    break;
+                case UsageEvents.Event.MOVE_TO_BACKGROUND:
+                    usage.onBackground(event.getPackageName(), event.getTimeStamp());
+                    break;
+                case UsageEvents.Event.SCREEN_NON_INTERACTIVE:
+                case UsageEvents.Event.DEVICE_SHUTDOWN:
+                    usage.onAllBackground(event.getTimeStamp());
+                    break;
+                default:
+                    processed--;
+                    break;
+            }
+        }
+        // queryEvents excludes its end time, so the next run starts exactly where this one stopped
+        usage.advanceTo(now);
+        try {
+            file.write(usage);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to persist usage rollup", e);
+        }
+        Log.d(TAG, "Ingested " + processed + " usage events since " + begin);
+        return processed;
+    }
+
+    /** Foreground milliseconds per app today, as of the last ingest. */
+    synchronized Map<String, Long> today() {
+        UsageRollup usage = load();
+        return usage.totalsFor(usage.dayOf(System.currentTimeMillis()));
+    }
+
+    private UsageRollup load() {
+        if (rollup == null) {
+            rollup = file.read(TimeZone.getDefault(), RETENTION_DAYS);
+        }
+        return rollup;
+    }
+}
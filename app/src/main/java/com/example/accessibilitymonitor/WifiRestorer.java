@@ -0,0 +1,196 @@
+package com.example.accessibilitymonitor;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.accessibilitymonitor.core.LatencyHistogram;
+import com.example.accessibilitymonitor.core.MonitorConfig;
+import com.example.accessibilitymonitor.core.WifiRestorePolicy;
+
+import java.io.PrintWriter;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns Wi-Fi back on once the restricted app that had it turned off has left the
+ * foreground, when and as often as {@link WifiRestorePolicy} allows, and measures how long
+ * the radio then takes to bring up a Wi-Fi network. The restore timer runs on the
+ * enforcement action thread, next to the actions that turn the radio off. Noticing that
+ * the app left needs events from every package, so the owner is told whenever a restore
+ * starts or stops being owed and can widen the event scope for that stretch only.
+ * Since Android 10 the system rejects {@link WifiManager#setWifiEnabled} from apps targeting
+ * API 29 or later, which includes this one, so there the radio is never turned off by
+ * enforcement and restoring stays disabled; see {@link #isSupported}.
+ */
+final class WifiRestorer {
+    private static final String TAG = "WifiRestorer";
+
+    private final WifiManager wifiManager;
+    private final ConnectivityManager connectivityManager;
+    private final WifiStateTracker wifiState;
+    private final ScheduledExecutorService thread;
+    private final Runnable onOwedChanged;
+    private final boolean supported;
+    private final WifiRestorePolicy policy = new WifiRestorePolicy(MonitorConfig.DEFAULT_WIFI_RESTORE_GRACE_MS,
+            MonitorConfig.DEFAULT_MAX_WIFI_TOGGLES_PER_MINUTE);
+    /** From the restore request to a Wi-Fi network being available. */
+    private final LatencyHistogram reconnect = new LatencyHistogram();
+    private volatile boolean enabled = true;
+    // Elapsed realtime of the last restore that has not reconnected yet, or 0
+    private volatile long restoreRequestedAt;
+    private ScheduledFuture<?> pending;
+    private boolean registered;
+
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(Network network) {
+            long requestedAt = restoreRequestedAt;
+            if (requestedAt != 0) {
+                restoreRequestedAt = 0;
+                reconnect.record(TimeUnit.MILLISECONDS.toNanos(SystemClock.elapsedRealtime() - requestedAt));
+            }
+        }
+    };
+
+    /** {@code onOwedChanged} runs on whichever thread changed {@link #isOwed()}. */
+    WifiRestorer(Context context, WifiStateTracker wifiState, ScheduledExecutorService thread, Runnable onOwedChanged) {
+        this.wifiManager = (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.wifiState = wifiState;
+        this.thread = thread;
+        this.onOwedChanged = onOwedChanged;
+        this.supported = isSupported(context);
+    }
+
+    /** Whether this app may toggle Wi-Fi on this device at all. */
+    static boolean isSupported(Context context) {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                || context.getApplicationInfo().targetSdkVersion < Build.VERSION_CODES.Q;
+    }
+
+    void start() {
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addTransportType(NetworkCapabilities.TRANSPORT_WIFI)
+                .build();
+        connectivityManager.registerNetworkCallback(request, networkCallback);
+        registered = true;
+    }
+
+    void stop() {
+        if (registered) {
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+            registered = false;
+        }
+        cancelPending();
+    }
+
+    /** A grace of {@link MonitorConfig#WIFI_RESTORE_OFF} stops restoring. */
+    void configure(long graceMs, int maxTogglesPerMinute) {
+        boolean wasOwed = isOwed();
+        enabled = supported && graceMs != MonitorConfig.WIFI_RESTORE_OFF;
+        policy.configure(Math.max(0, graceMs), maxTogglesPerMinute);
+        reschedule();
+        notifyIfOwedChanged(wasOwed);
+    }
+
+    /** Enforcement turned the radio off; called on the action thread. */
+    void onDisabled() {
+        boolean wasOwed = isOwed();
+        policy.onDisabled(SystemClock.elapsedRealtime());
+        reschedule();
+        notifyIfOwedChanged(wasOwed);
+    }
+
+    /** Whether Wi-Fi is off because of enforcement and will be turned back on. */
+    boolean isOwed() {
+        return enabled && policy.isOwed();
+    }
+
+    /** An app that needs Wi-Fi off came to the foreground. */
+    void onHold(String packageName) {
+        if (policy.onHold(packageName)) {
+            reschedule();
+        }
+    }
+
+    /** Any other app came to the foreground. */
+    void onRelease() {
+        if (policy.onRelease(SystemClock.elapsedRealtime())) {
+            reschedule();
+        }
+    }
+
+    void dump(PrintWriter writer) {
+        if (!supported) {
+            writer.println("Wi-Fi restore: unsupported, setWifiEnabled is rejected on API " + Build.VERSION.SDK_INT
+                    + " for apps targeting API 29+");
+            return;
+        }
+        writer.println("Wi-Fi restore: enabled=" + enabled + " owed=" + policy.isOwed()
+                + " disables=" + policy.disableCount() + " restores=" + policy.restoreCount()
+                + " cancelled=" + policy.cancelledCount() + " deferred=" + policy.deferredCount()
+                + " rejected=" + policy.rejectedCount() + " abandoned=" + policy.abandonedCount());
+        writer.println("  reconnect: " + reconnect.summary());
+    }
+
+    private synchronized void reschedule() {
+        cancelPending();
+        long at = policy.restoreAt();
+        if (!enabled || at == WifiRestorePolicy.NEVER || thread.isShutdown()) {
+            return;
+        }
+        long delay = Math.max(0, at - SystemClock.elapsedRealtime());
+        pending = thread.schedule(this::restore, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void restore() {
+        long now = SystemClock.elapsedRealtime();
+        if (wifiState.isEnabledOrEnabling() && wifiState.state() != WifiManager.WIFI_STATE_UNKNOWN) {
+            // Turned back on by the user; nothing is owed any more
+            policy.onEnabledElsewhere();
+            onOwedChanged.run();
+            return;
+        }
+        if (!policy.shouldRestore(now)) {
+            reschedule();
+            return;
+        }
+        restoreRequestedAt = now;
+        if (wifiManager.setWifiEnabled(true)) {
+            policy.onRestored(now);
+            Log.d(TAG, "Wi-Fi restored");
+            onOwedChanged.run();
+            return;
+        }
+        restoreRequestedAt = 0;
+        if (policy.onRestoreRejected(now)) {
+            Log.d(TAG, "Wi-Fi enable request rejected, retrying");
+            reschedule();
+        } else {
+            Log.w(TAG, "Wi-Fi enable request rejected, giving up");
+            onOwedChanged.run();
+        }
+    }
+
+    private void notifyIfOwedChanged(boolean wasOwed) {
+        if (isOwed() != wasOwed) {
+            onOwedChanged.run();
+        }
+    }
+}
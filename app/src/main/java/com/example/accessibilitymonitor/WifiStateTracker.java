@@ -0,0 +1,65 @@
+package com.example.accessibilitymonitor;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.wifi.WifiManager;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * Follows the Wi-Fi radio state from WIFI_STATE_CHANGED broadcasts so enforcement can
+ * check it without a WifiManager call. The sticky broadcast returned on registration
+ * seeds the initial state.
+ */
+final class WifiStateTracker {
+    private static final String TAG = "WifiStateTracker";
+
+    private final Context context;
+    private volatile int state = WifiManager.WIFI_STATE_UNKNOWN;
+    private boolean registered;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            update(intent);
+        }
+    };
+
+    WifiStateTracker(Context context) {
+        this.context = context;
+    }
+
+    void start() {
+        IntentFilter filter = new IntentFilter(WifiManager.WIFI_STATE_CHANGED_ACTION);
+        Intent sticky = ContextCompat.registerReceiver(context, receiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+        registered = true;
+        if (sticky != null) {
+            update(sticky);
+        }
+    }
+
+    void stop() {
+        if (registered) {
+            context.unregisterReceiver(receiver);
+            registered = false;
+        }
+    }
+
+    /** True while the radio is on or turning on. Unknown counts as on so enforcement still tries. */
+    boolean isEnabledOrEnabling() {
+        int current = state;
+        return current != WifiManager.WIFI_STATE_DISABLED && current != WifiManager.WIFI_STATE_DISABLING;
+    }
+
+    int state() {
+        return state;
+    }
+
+    private void update(Intent intent) {
+        state = intent.getIntExtra(WifiManager.EXTRA_WIFI_STATE, WifiManager.WIFI_STATE_UNKNOWN);
+        Log.d(TAG, "Wi-Fi state: " + state);
+    }
+}
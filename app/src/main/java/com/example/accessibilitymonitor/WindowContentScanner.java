@@ -0,0 +1,88 @@
+package com.example.accessibilitymonitor;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.example.accessibilitymonitor.core.BoundedTreeWalk;
+import com.example.accessibilitymonitor.core.ContentRules;
+
+/**
+ * Looks for {@link ContentRules} keywords in the text and content descriptions of a
+ * window's nodes. Each scan is a {@link BoundedTreeWalk}, so a large or fast-changing
+ * screen costs at most the node and time budget, and every node fetched is recycled.
+ * Scans run on one thread at a time; {@link #release} may be called from any thread.
+ */
+final class WindowContentScanner implements BoundedTreeWalk.Tree<AccessibilityNodeInfo>,
+        BoundedTreeWalk.Visitor<AccessibilityNodeInfo> {
+    private final BoundedTreeWalk<AccessibilityNodeInfo> walk;
+    private ContentRules rules;
+    private String packageName;
+    private String match;
+    private long scanCount;
+    private long nodeCount;
+    private long truncatedCount;
+
+    WindowContentScanner(int maxNodes, long maxNanos) {
+        this.walk = new BoundedTreeWalk<>(this, maxNodes, maxNanos);
+    }
+
+    /** Scans {@code root} and recycles it; returns the first keyword found, or null. */
+    String scan(AccessibilityNodeInfo root, ContentRules rules, String packageName) {
+        this.rules = rules;
+        this.packageName = packageName;
+        match = null;
+        int result = walk.walk(root, this);
+        scanCount++;
+        nodeCount += walk.visitedCount();
+        if (result == BoundedTreeWalk.OUT_OF_BUDGET) {
+            truncatedCount++;
+        }
+        this.rules = null;
+        return match;
+    }
+
+    @Override
+    public boolean visit(AccessibilityNodeInfo node) {
+        if (!node.isVisibleToUser()) {
+            return false;
+        }
+        CharSequence text = node.getText();
+        if (text != null && text.length() > 0) {
+            match = rules.match(packageName, text);
+        }
+        CharSequence description = node.getContentDescription();
+        if (match == null && description != null && description.length() > 0) {
+            match = rules.match(packageName, description);
+        }
+        return match != null;
+    }
+
+    @Override
+    public int childCount(AccessibilityNodeInfo node) {
+        return node.getChildCount();
+    }
+
+    @Override
+    public AccessibilityNodeInfo child(AccessibilityNodeInfo node, int index) {
+        return node.getChild(index);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void release(AccessibilityNodeInfo node) {
+        // A no-op from API 33; before that, unrecycled nodes pile up in the process
+        node.recycle();
+    }
+
+    long scanCount() {
+        return scanCount;
+    }
+
+    long nodeCount() {
+        return nodeCount;
+    }
+
+    /** Scans that ran out of budget before covering the whole window. */
+    long truncatedCount() {
+        return truncatedCount;
+    }
+}
@@ -0,0 +1,37 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// Run with ./gradlew :core:jmh; no device or Android SDK needed
+jmh {
+    jmhVersion.set(libs.versions.jmh.get())
+    // Reports allocation per operation (gc.alloc.rate.norm) next to throughput
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
+
+// Offline replay of recorded or synthetic event traces; kept out of the library jar
+sourceSets {
+    create("replay") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+// ./gradlew :core:replay --args="--trace path/to/trace.bin --restricted com.example.game"
+tasks.register<JavaExec>("replay") {
+    group = "verification"
+    description = "Replays an event trace through the enforcement pipeline and reports throughput and latency."
+    classpath = sourceSets["replay"].runtimeClasspath
+    mainClass.set("com.example.accessibilitymonitor.core.TraceReplay")
+}
@@ -0,0 +1,67 @@
+package com.example.accessibilitymonitor.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering a catalog the size of a heavily loaded device, by substring scan and through
+ * the prefix index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogBenchmark {
+    private static final String[] WORDS = {"Mail", "Maps", "Photos", "Music", "Camera", "Notes", "Chat", "Video",
+            "Browser", "Files", "Games", "Weather", "Clock", "Calendar", "News", "Bank"};
+
+    @Param({"300", "3000"})
+    public int catalogSize;
+
+    @Param({"ma", "calendar", "zzz"})
+    public String query;
+
+    private List<CatalogEntry> entries;
+    private CatalogIndex index;
+    private final Set<String> restricted = new HashSet<>();
+
+    @Setup
+    public void setUp() {
+        entries = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            String label = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+            entries.add(new CatalogEntry("com.vendor" + (i % 50) + ".app" + i, label, i, i));
+            if (i % 40 == 0) {
+                restricted.add("com.vendor" + (i % 50) + ".app" + i);
+            }
+        }
+        index = CatalogIndex.build(entries);
+    }
+
+    @Benchmark
+    public int filter() {
+        return CatalogFilter.filter(entries, query).size();
+    }
+
+    @Benchmark
+    public int indexSearch() {
+        return index.search(query, restricted, true).size();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.accessibilitymonitor.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append and scan throughput of the event journal, plus parsing of the legacy text log.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+    private static final int SCAN_RECORDS = 100_000;
+
+    private File appendDir;
+    private File scanDir;
+    private EventJournal appendJournal;
+    private EventJournal scanJournal;
+    private String[] packages;
+    private String legacyLog;
+    private long clock;
+    private long checksum;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        packages = new String[64];
+        for (int i = 0; i < packages.length; i++) {
+            packages[i] = "com.example.app" + i;
+        }
+        appendDir = Files.createTempDirectory("journal-append").toFile();
+        appendJournal = new EventJournal(appendDir, 16 * 1024, 4);
+
+        scanDir = Files.createTempDirectory("journal-scan").toFile();
+        scanJournal = new EventJournal(scanDir, 16 * 1024, 16);
+        for (int i = 0; i < SCAN_RECORDS; i++) {
+            scanJournal.append(i, packages[i & 63], JournalRecord.ACTION_RESTRICTED_APP);
+        }
+        scanJournal.flush();
+
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            log.append("Restricted app detected: ").append(packages[i & 63]).append(" at ").append(1700000000000L + i).append('\n');
+        }
+        legacyLog = log.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        appendJournal.close();
+        scanJournal.close();
+        deleteRecursively(appendDir);
+        deleteRecursively(scanDir);
+    }
+
+    @Benchmark
+    public void append() throws IOException {
+        appendJournal.append(clock++, packages[(int) clock & 63], JournalRecord.ACTION_RESTRICTED_APP);
+    }
+
+    /** One operation is a full scan of {@value #SCAN_RECORDS} records. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long scanAll() throws IOException {
+        checksum = 0;
+        scanJournal.scan((timestamp, packageId, action) -> {
+            checksum += timestamp + packageId;
+            return true;
+        });
+        return checksum;
+    }
+
+    /** One operation parses a 1000-line legacy log. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int parseLegacyLog() {
+        return LegacyLogParser.parse(legacyLog, (timestamp, packageName, action) -> checksum += timestamp);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
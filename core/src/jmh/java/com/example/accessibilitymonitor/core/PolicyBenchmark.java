@@ -0,0 +1,92 @@
+package com.example.accessibilitymonitor.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event cost of deciding whether a window event needs enforcement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolicyBenchmark {
+    @Param({"10", "1000"})
+    public int restrictedCount;
+
+    private PolicySnapshot snapshot;
+    private PolicySnapshot scheduled;
+    private ForegroundSessionTracker tracker;
+    private String[] stream;
+    private int cursor;
+    private long clock;
+    private int enforced;
+
+    @Setup
+    public void setUp() {
+        Set<String> restricted = new HashSet<>();
+        for (int i = 0; i < restrictedCount; i++) {
+            restricted.add("com.restricted.app" + i);
+        }
+        snapshot = PolicySnapshot.builder().setRestrictedApps(restricted).build();
+        WeeklySchedule schedule = WeeklySchedule.parse("Mon-Fri 09:00-17:00\nSat,Sun 22:00-07:00\nexcept 2030-01-01",
+                TimeZone.getTimeZone("Europe/Berlin"), 0);
+        scheduled = PolicySnapshot.builder().setRestrictedApps(restricted).setSchedule(schedule).build();
+        tracker = new ForegroundSessionTracker(PolicySnapshot.DEFAULT_DEBOUNCE_MS, new ForegroundSessionTracker.Listener() {
+            @Override
+            public void onEnter(String packageName, long timestamp) {
+                if (snapshot.isRestricted(packageName)) {
+                    enforced++;
+                }
+            }
+
+            @Override
+            public void onLeave(String packageName, long timestamp) {
+            }
+        });
+        // Mostly unrestricted traffic with bursts of repeated windows, like a real trace
+        stream = new String[1024];
+        for (int i = 0; i < stream.length; i++) {
+            int app = (i / 4) % 40;
+            stream[i] = app % 10 == 0 ? "com.restricted.app" + app : "com.normal.app" + app;
+        }
+    }
+
+    @Benchmark
+    public boolean snapshotLookup() {
+        String packageName = stream[cursor++ & (stream.length - 1)];
+        return snapshot.isRestricted(packageName);
+    }
+
+    @Benchmark
+    public boolean scheduledLookup() {
+        String packageName = stream[cursor++ & (stream.length - 1)];
+        // Roughly an event a second of wall clock, so the cached zone offset rolls over now and then
+        clock += 1000;
+        return scheduled.isRestricted(packageName, 1_700_000_000_000L + clock);
+    }
+
+    @Benchmark
+    public int trackedEvent() {
+        String packageName = stream[cursor++ & (stream.length - 1)];
+        clock += 50;
+        tracker.onWindowStateChanged(packageName, clock);
+        return enforced;
+    }
+}
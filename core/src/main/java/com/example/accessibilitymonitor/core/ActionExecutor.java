@@ -0,0 +1,127 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link EnforcementAction}s asynchronously so the caller never waits on a system
+ * service. Failed attempts are retried with exponential backoff, actions whose effect is
+ * already in place are skipped, and duplicate submissions of a pending action are dropped.
+ */
+public final class ActionExecutor {
+    private final ScheduledExecutorService executor;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final MonitorStats stats;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public ActionExecutor(ScheduledExecutorService executor, int maxAttempts, long initialBackoffMs, long maxBackoffMs) {
+        this(executor, maxAttempts, initialBackoffMs, maxBackoffMs, null);
+    }
+
+    /** Also records apply time and completed actions into {@code stats}, which may be null. */
+    public ActionExecutor(ScheduledExecutorService executor, int maxAttempts, long initialBackoffMs, long maxBackoffMs,
+                          MonitorStats stats) {
+        this.executor = executor;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.stats = stats;
+    }
+
+    /** Returns false if the same action is already pending or the executor is shut down. */
+    public boolean submit(EnforcementAction action, String packageName) {
+        String key = action.key(packageName);
+        if (!pending.add(key)) {
+            deduplicated.incrementAndGet();
+            return false;
+        }
+        submitted.incrementAndGet();
+        try {
+            executor.execute(() -> attempt(action, packageName, key, 1));
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            return false;
+        }
+    }
+
+    private void attempt(EnforcementAction action, String packageName, String key, int attempt) {
+        boolean done;
+        try {
+            if (action.isSatisfied(packageName)) {
+                skipped.incrementAndGet();
+                done = true;
+            } else {
+                long start = System.nanoTime();
+                try {
+                    done = action.apply(packageName);
+                } finally {
+                    if (stats != null) {
+                        stats.action.recordSince(start);
+                    }
+                }
+                if (done) {
+                    succeeded.incrementAndGet();
+                    if (stats != null) {
+                        stats.countEnforcement();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            done = false;
+        }
+        if (done) {
+            pending.remove(key);
+            return;
+        }
+        if (attempt >= maxAttempts) {
+            failed.incrementAndGet();
+            pending.remove(key);
+            return;
+        }
+        retried.incrementAndGet();
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << (attempt - 1));
+        try {
+            executor.schedule(() -> attempt(action, packageName, key, attempt + 1), backoff, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+        }
+    }
+
+    public long submittedCount() {
+        return submitted.get();
+    }
+
+    public long deduplicatedCount() {
+        return deduplicated.get();
+    }
+
+    public long skippedCount() {
+        return skipped.get();
+    }
+
+    public long succeededCount() {
+        return succeeded.get();
+    }
+
+    public long retriedCount() {
+        return retried.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+}
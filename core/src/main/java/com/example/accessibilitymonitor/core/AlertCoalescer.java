@@ -0,0 +1,76 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides which restricted-app detections turn into a user-visible alert. Each package
+ * gets its own token bucket, and every detection is counted in a sliding window so the
+ * alert that does get through can say how many times the app was blocked recently.
+ * Not thread-safe.
+ */
+public final class AlertCoalescer {
+    private static final int MAX_TRACKED_HITS = 256;
+
+    private final long windowMs;
+    private final int burst;
+    private final long refillIntervalMs;
+    private final Map<String, PackageState> states = new HashMap<>();
+
+    public AlertCoalescer(long windowMs, int burst, long refillIntervalMs) {
+        this.windowMs = windowMs;
+        this.burst = burst;
+        this.refillIntervalMs = refillIntervalMs;
+    }
+
+    public long windowMs() {
+        return windowMs;
+    }
+
+    /**
+     * Records a detection. Returns the number of detections for the package within the
+     * window (including this one) if an alert should be shown, or 0 if it is rate limited.
+     */
+    public int record(String packageName, long now) {
+        PackageState state = states.get(packageName);
+        if (state == null) {
+            state = new PackageState(new TokenBucket(burst, refillIntervalMs, now));
+            states.put(packageName, state);
+        }
+        int count = state.hit(now, windowMs);
+        return state.bucket.tryAcquire(now) ? count : 0;
+    }
+
+    /** The window count as of the package's last {@link #record}, rate limited or not; 0 if none. */
+    public int recentCount(String packageName) {
+        PackageState state = states.get(packageName);
+        return state != null ? state.size : 0;
+    }
+
+    private static final class PackageState {
+        final TokenBucket bucket;
+        // Circular buffer of recent hit times, oldest at head
+        final long[] hits = new long[MAX_TRACKED_HITS];
+        int head;
+        int size;
+
+        PackageState(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+
+        int hit(long now, long windowMs) {
+            while (size > 0 && now - hits[head] > windowMs) {
+                head = (head + 1) % hits.length;
+                size--;
+            }
+            if (size == hits.length) {
+                // Saturated; drop the oldest so the count stays at the cap
+                head = (head + 1) % hits.length;
+                size--;
+            }
+            hits[(head + size) % hits.length] = now;
+            size++;
+            return size;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * Directory of {@link EventArchive}s, one per local day. {@link #compact} rolls every day
+ * the journal holds that has ended into its archive, merging into archives written before;
+ * the journal itself keeps rotating on its own. Files are named {@code archive-<day>.arc}, with the day
+ * counted from 1970-01-01, so a scan can skip whole days by name.
+ */
+public final class ArchiveStore {
+    private static final String PREFIX = "archive-";
+    private static final String SUFFIX = ".arc";
+
+    private static final JournalPager.Query ALL = new JournalPager.Query(Long.MIN_VALUE, Long.MAX_VALUE, null);
+
+    private final File dir;
+    private final TimeZone zone;
+
+    public ArchiveStore(File dir, TimeZone zone) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create archive directory " + dir);
+        }
+        this.dir = dir;
+        this.zone = zone;
+    }
+
+    /**
+     * Archives the closed days in {@code journal} within {@code retentionDays}. A day that is
+     * archived already is rewritten only if the journal holds records its archive lacks, as it
+     * does after the clock was set back; those are merged in. Returns the number of days written.
+     */
+    public int compact(EventJournal journal, long now, int retentionDays) throws IOException {
+        int today = dayOf(now);
+        int oldestKept = today - retentionDays + 1;
+        final TreeMap<Integer, List<JournalRecord>> closed = new TreeMap<>();
+        journal.scan((timestamp, packageId, action) -> {
+            int day = dayOf(timestamp);
+            if (day < oldestKept || day >= today) {
+                return true;
+            }
+            List<JournalRecord> records = closed.get(day);
+            if (records == null) {
+                records = new ArrayList<>();
+                closed.put(day, records);
+            }
+            String packageName = journal.packageName(packageId);
+            records.add(new JournalRecord(timestamp, packageName != null ? packageName : "", action));
+            return true;
+        });
+        int written = 0;
+        for (Map.Entry<Integer, List<JournalRecord>> day : closed.entrySet()) {
+            File file = fileFor(day.getKey());
+            EventArchive.Writer writer = new EventArchive.Writer();
+            List<JournalRecord> missing = file.exists() ? copyAndDiff(file, day.getValue(), writer) : day.getValue();
+            if (missing.isEmpty()) {
+                continue;
+            }
+            for (JournalRecord record : missing) {
+                writer.add(record.timestamp, record.packageName, record.action);
+            }
+            writer.writeTo(file);
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Copies the records of {@code file} into {@code writer} and returns those of
+     * {@code records} it does not hold. Equal records are matched one for one.
+     */
+    private static List<JournalRecord> copyAndDiff(File file, List<JournalRecord> records,
+            EventArchive.Writer writer) throws IOException {
+        final Map<JournalRecord, Integer> archived = new HashMap<>();
+        EventArchive.scan(file, ALL, (timestamp, packageName, action) -> {
+            archived.merge(new JournalRecord(timestamp, packageName, action), 1, Integer::sum);
+            writer.add(timestamp, packageName, action);
+            return true;
+        });
+        List<JournalRecord> missing = new ArrayList<>();
+        for (JournalRecord record : records) {
+            Integer count = archived.get(record);
+            if (count == null) {
+                missing.add(record);
+            } else if (count == 1) {
+                archived.remove(record);
+            } else {
+                archived.put(record, count - 1);
+            }
+        }
+        return missing;
+    }
+
+    /** Deletes archives for days before the last {@code retentionDays}; returns how many. */
+    public int applyRetention(long now, int retentionDays) {
+        int oldestKept = dayOf(now) - retentionDays + 1;
+        int deleted = 0;
+        for (int day : days()) {
+            if (day >= oldestKept) {
+                break;
+            }
+            if (fileFor(day).delete()) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /** Visits archived records matching {@code query}, oldest first; false if the visitor stopped. */
+    public boolean scan(JournalPager.Query query, EventArchive.Visitor visitor) throws IOException {
+        int firstDay = query.fromTimestamp == Long.MIN_VALUE ? Integer.MIN_VALUE : dayOf(query.fromTimestamp) - 1;
+        int lastDay = query.toTimestamp == Long.MAX_VALUE ? Integer.MAX_VALUE : dayOf(query.toTimestamp) + 1;
+        for (int day : days()) {
+            // One day of slack either side in case the zone changed since the day was archived
+            if (day < firstDay || day > lastDay) {
+                continue;
+            }
+            if (!EventArchive.scan(fileFor(day), query, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Archived days, oldest first. */
+    public List<Integer> days() {
+        String[] names = dir.list();
+        if (names == null) {
+            return Collections.emptyList();
+        }
+        List<Integer> days = new ArrayList<>();
+        for (String name : names) {
+            if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                try {
+                    days.add(Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(days);
+        return days;
+    }
+
+    /** Total bytes on disk. */
+    public long size() {
+        long total = 0;
+        for (int day : days()) {
+            total += fileFor(day).length();
+        }
+        return total;
+    }
+
+    public int dayOf(long timestamp) {
+        return (int) Math.floorDiv(timestamp + zone.getOffset(timestamp), UsageRollup.DAY_MS);
+    }
+
+    File fileFor(int day) {
+        return new File(dir, String.format(Locale.US, "%s%06d%s", PREFIX, day, SUFFIX));
+    }
+}
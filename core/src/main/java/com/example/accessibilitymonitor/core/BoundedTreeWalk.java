@@ -0,0 +1,120 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.Arrays;
+
+/**
+ * Depth-first, pre-order walk over a tree whose nodes are fetched one at a time and must
+ * be released, such as an accessibility window. The walk is iterative, so deep trees
+ * cannot overflow the stack, and it only holds the nodes on the path from the root to
+ * the current node. It stops after a fixed number of nodes or a fixed time, whichever
+ * comes first, so a busy screen costs at most the budget. One instance is reused for
+ * every walk on a single thread; it does not allocate once its path has grown.
+ */
+public final class BoundedTreeWalk<N> {
+    /** Every node was visited. */
+    public static final int COMPLETE = 0;
+    /** The visitor asked to stop. */
+    public static final int STOPPED = 1;
+    /** The node or time budget ran out first. */
+    public static final int OUT_OF_BUDGET = 2;
+
+    public interface Tree<N> {
+        int childCount(N node);
+
+        /** Returns null when the child is gone. */
+        N child(N node, int index);
+
+        void release(N node);
+    }
+
+    public interface Visitor<N> {
+        /** Returns true to end the walk. */
+        boolean visit(N node);
+    }
+
+    private static final int TIME_CHECK_INTERVAL = 16;
+
+    private final Tree<N> tree;
+    private final int maxNodes;
+    private final long maxNanos;
+    private Object[] path = new Object[16];
+    private int[] nextChild = new int[16];
+    private int[] childCount = new int[16];
+    private int visited;
+
+    public BoundedTreeWalk(Tree<N> tree, int maxNodes, long maxNanos) {
+        this.tree = tree;
+        this.maxNodes = maxNodes;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Walks the tree under {@code root}, which the walk takes over: every node it saw,
+     * {@code root} included, is released before this returns. Returns {@link #COMPLETE},
+     * {@link #STOPPED} or {@link #OUT_OF_BUDGET}.
+     */
+    @SuppressWarnings("unchecked")
+    public int walk(N root, Visitor<N> visitor) {
+        long deadline = System.nanoTime() + maxNanos;
+        visited = 1;
+        int depth = 0;
+        int result = COMPLETE;
+        try {
+            if (visitor.visit(root)) {
+                tree.release(root);
+                return STOPPED;
+            }
+            depth = push(root, depth);
+            while (depth > 0) {
+                int top = depth - 1;
+                N node = (N) path[top];
+                if (nextChild[top] >= childCount[top]) {
+                    path[top] = null;
+                    depth--;
+                    tree.release(node);
+                    continue;
+                }
+                if (visited >= maxNodes
+                        || (visited % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0)) {
+                    result = OUT_OF_BUDGET;
+                    break;
+                }
+                N child = tree.child(node, nextChild[top]++);
+                if (child == null) {
+                    continue;
+                }
+                visited++;
+                if (visitor.visit(child)) {
+                    tree.release(child);
+                    result = STOPPED;
+                    break;
+                }
+                depth = push(child, depth);
+            }
+        } finally {
+            while (depth > 0) {
+                depth--;
+                tree.release((N) path[depth]);
+                path[depth] = null;
+            }
+        }
+        return result;
+    }
+
+    /** Nodes visited by the last walk. */
+    public int visitedCount() {
+        return visited;
+    }
+
+    private int push(N node, int depth) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, depth * 2);
+            nextChild = Arrays.copyOf(nextChild, depth * 2);
+            childCount = Arrays.copyOf(childCount, depth * 2);
+        }
+        path[depth] = node;
+        nextChild[depth] = 0;
+        childCount[depth] = tree.childCount(node);
+        return depth + 1;
+    }
+}
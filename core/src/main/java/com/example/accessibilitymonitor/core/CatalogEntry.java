@@ -0,0 +1,23 @@
+package com.example.accessibilitymonitor.core;
+
+/**
+ * One launchable app as remembered by the catalog cache.
+ */
+public final class CatalogEntry {
+    public final String packageName;
+    public final String label;
+    public final long versionCode;
+    public final long lastUpdateTime;
+
+    public CatalogEntry(String packageName, String label, long versionCode, long lastUpdateTime) {
+        this.packageName = packageName;
+        this.label = label;
+        this.versionCode = versionCode;
+        this.lastUpdateTime = lastUpdateTime;
+    }
+
+    /** True if the installed package still matches what this entry was built from. */
+    public boolean isCurrent(long versionCode, long lastUpdateTime) {
+        return this.versionCode == versionCode && this.lastUpdateTime == lastUpdateTime;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary on-disk form of the app catalog. Writes go to a temp file that is renamed over
+ * the old one, so readers see either the previous or the new catalog, never a mix.
+ */
+public final class CatalogFile {
+    private static final int MAGIC = 0x41434154; // "ACAT"
+    private static final int VERSION = 1;
+
+    public static final class Contents {
+        /** Boot the sequence number belongs to; sequence numbers restart on every boot. */
+        public final int bootCount;
+        /** PackageManager change sequence number the entries are current as of, or -1. */
+        public final int sequenceNumber;
+        public final List<CatalogEntry> entries;
+
+        public Contents(int bootCount, int sequenceNumber, List<CatalogEntry> entries) {
+            this.bootCount = bootCount;
+            this.sequenceNumber = sequenceNumber;
+            this.entries = entries;
+        }
+    }
+
+    public static final Contents EMPTY = new Contents(-1, -1, Collections.<CatalogEntry>emptyList());
+
+    private final File file;
+
+    public CatalogFile(File file) {
+        this.file = file;
+    }
+
+    /** Returns {@link #EMPTY} when there is no usable cache. */
+    public Contents read() {
+        if (!file.exists()) {
+            return EMPTY;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return EMPTY;
+            }
+            int bootCount = in.readInt();
+            int sequenceNumber = in.readInt();
+            int count = in.readInt();
+            List<CatalogEntry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(new CatalogEntry(in.readUTF(), in.readUTF(), in.readLong(), in.readLong()));
+            }
+            return new Contents(bootCount, sequenceNumber, entries);
+        } catch (IOException e) {
+            // A damaged cache is just a cache miss
+            return EMPTY;
+        }
+    }
+
+    public void write(Contents contents) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(contents.bootCount);
+            out.writeInt(contents.sequenceNumber);
+            out.writeInt(contents.entries.size());
+            for (CatalogEntry entry : contents.entries) {
+                out.writeUTF(entry.packageName);
+                out.writeUTF(entry.label);
+                out.writeLong(entry.versionCode);
+                out.writeLong(entry.lastUpdateTime);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Case-insensitive substring filter over catalog labels and package names.
+ */
+public final class CatalogFilter {
+    private CatalogFilter() {
+    }
+
+    public static List<CatalogEntry> filter(List<CatalogEntry> entries, String query) {
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return entries;
+        }
+        List<CatalogEntry> matches = new ArrayList<>();
+        for (CatalogEntry entry : entries) {
+            if (entry.label.toLowerCase(Locale.ROOT).contains(needle)
+                    || entry.packageName.toLowerCase(Locale.ROOT).contains(needle)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.accessibilitymonitor.core;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Prefix index over catalog labels and package names, built once per catalog so each
+ * keystroke is a binary search instead of a scan. Every word start of a label (words, and
+ * the humps of camel-case words such as "YouTube"), the whole label, every segment of a
+ * package name (split at '.' and '_') and the whole package name become keys, lower-cased
+ * and stripped of accents, in one sorted array; a query term matches the entries with a
+ * key starting with it. Several terms must all match. Text inside a word is not indexed,
+ * so "lend" does not find "Calendar". Immutable.
+ */
+public final class CatalogIndex {
+    public static final CatalogIndex EMPTY = build(Collections.<CatalogEntry>emptyList());
+
+    private final List<CatalogEntry> entries;
+    private final String[] keys;
+    private final int[] owners;
+
+    private CatalogIndex(List<CatalogEntry> entries, String[] keys, int[] owners) {
+        this.entries = entries;
+        this.keys = keys;
+        this.owners = owners;
+    }
+
+    /** Results keep the order of {@code entries}. */
+    public static CatalogIndex build(List<CatalogEntry> entries) {
+        List<CatalogEntry> copy = Collections.unmodifiableList(new ArrayList<>(entries));
+        final List<String> keyList = new ArrayList<>();
+        List<Integer> ownerList = new ArrayList<>();
+        for (int i = 0; i < copy.size(); i++) {
+            CatalogEntry entry = copy.get(i);
+            int before = keyList.size();
+            addLabelKeys(keyList, stripAccents(entry.label));
+            addPackageKeys(keyList, entry.packageName.toLowerCase(Locale.ROOT));
+            for (int k = before; k < keyList.size(); k++) {
+                ownerList.add(i);
+            }
+        }
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return keyList.get(a).compareTo(keyList.get(b));
+            }
+        });
+        String[] keys = new String[order.length];
+        int[] owners = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = keyList.get(order[i]);
+            owners[i] = ownerList.get(order[i]);
+        }
+        return new CatalogIndex(copy, keys, owners);
+    }
+
+    /**
+     * Entries matching every term of {@code query}, or all entries for a blank query. With
+     * {@code restrictedFirst}, entries in {@code restricted} come before the others; each
+     * group keeps catalog order.
+     */
+    public List<CatalogEntry> search(String query, Set<String> restricted, boolean restrictedFirst) {
+        String[] terms = normalize(query).trim().split("[^\\p{L}\\p{N}.]+");
+        BitSet matches = null;
+        for (String term : terms) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            BitSet termMatches = prefixMatches(term);
+            if (matches == null) {
+                matches = termMatches;
+            } else {
+                matches.and(termMatches);
+            }
+        }
+        if (matches == null) {
+            matches = new BitSet(entries.size());
+            matches.set(0, entries.size());
+        }
+        List<CatalogEntry> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(entries.get(i));
+        }
+        return order(result, restricted, restrictedFirst);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Number of keys in the index, for diagnostics. */
+    public int keyCount() {
+        return keys.length;
+    }
+
+    private BitSet prefixMatches(String prefix) {
+        BitSet result = new BitSet(entries.size());
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < keys.length && keys[i].startsWith(prefix); i++) {
+            result.set(owners[i]);
+        }
+        return result;
+    }
+
+    private static List<CatalogEntry> order(List<CatalogEntry> matches, Set<String> restricted, boolean restrictedFirst) {
+        if (!restrictedFirst || restricted.isEmpty()) {
+            return matches;
+        }
+        List<CatalogEntry> result = new ArrayList<>(matches.size());
+        for (CatalogEntry entry : matches) {
+            if (restricted.contains(entry.packageName)) {
+                result.add(entry);
+            }
+        }
+        for (CatalogEntry entry : matches) {
+            if (!restricted.contains(entry.packageName)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /** The whole label plus every word start, each suffix of it from that start on. */
+    private static void addLabelKeys(List<String> keys, String label) {
+        String value = label.toLowerCase(Locale.ROOT);
+        if (value.isEmpty()) {
+            return;
+        }
+        keys.add(value);
+        for (String word : label.split("[^\\p{L}\\p{N}]+")) {
+            for (int start = 0; start < word.length(); start++) {
+                boolean hump = start > 0 && Character.isUpperCase(word.charAt(start))
+                        && Character.isLowerCase(word.charAt(start - 1));
+                if (start == 0 || hump) {
+                    String key = word.substring(start).toLowerCase(Locale.ROOT);
+                    if (!key.equals(value)) {
+                        keys.add(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /** The whole package name plus each segment after the first. */
+    private static void addPackageKeys(List<String> keys, String packageName) {
+        if (packageName.isEmpty()) {
+            return;
+        }
+        keys.add(packageName);
+        String[] parts = packageName.split("[._]");
+        for (int i = 1; i < parts.length; i++) {
+            if (!parts[i].isEmpty()) {
+                keys.add(parts[i]);
+            }
+        }
+    }
+
+    /** Lower case without accents, so accented and plain spellings find each other. */
+    static String normalize(String value) {
+        return stripAccents(value).toLowerCase(Locale.ROOT);
+    }
+
+    private static String stripAccents(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder result = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binary on-disk form of {@link MonitorConfig}. Like {@link CatalogFile}, writes go to a
+ * temp file that is renamed over the old one. A file that does not read back, whether
+ * damaged or from a newer version, is never overwritten in place; callers move it aside
+ * with {@link #moveAside()} first.
+ */
+public final class ConfigFile {
+    private static final int MAGIC = 0x41434647; // "ACFG"
+    private static final int VERSION = 1;
+
+    private final File file;
+
+    public ConfigFile(File file) {
+        this.file = file;
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Renames an unreadable file to a {@code .bak} sibling so later writes do not destroy
+     * what may still be recovered by hand. Returns the backup, or null if the rename failed.
+     */
+    public File moveAside() {
+        File backup = new File(file.getPath() + ".bak");
+        return file.renameTo(backup) ? backup : null;
+    }
+
+    /** Returns null when the file is missing, damaged or from a newer version. */
+    public MonitorConfig read() {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            MonitorConfig.Builder builder = new MonitorConfig.Builder()
+                    .setMonitoringEnabled(in.readBoolean())
+                    .setSessionDebounceMs(in.readLong())
+                    .setObserveAllEvents(in.readBoolean());
+            int strategies = in.readInt();
+            for (int i = 0; i < strategies; i++) {
+                builder.setStrategy(in.readUTF(), EnforcementStrategy.fromKey(in.readUTF()));
+            }
+            builder.setScheduleRules(readString(in))
+                    .setTraceRecording(in.readBoolean());
+            readProfiles(in, builder);
+            builder.setArchiveRetentionDays(in.readInt())
+                    .setContentRules(readString(in))
+                    .setWifiRestoreGraceMs(in.readLong())
+                    .setMaxWifiTogglesPerMinute(in.readInt());
+            if (in.read() != -1) {
+                return null;
+            }
+            return builder.build();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void write(MonitorConfig config) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(config.monitoringEnabled);
+            out.writeLong(config.sessionDebounceMs);
+            out.writeBoolean(config.observeAllEvents);
+            out.writeInt(config.strategies.size());
+            for (Map.Entry<String, EnforcementStrategy> entry : config.strategies.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue().key);
+            }
+            writeString(out, config.scheduleRules);
+            out.writeBoolean(config.traceRecording);
+            out.writeInt(config.profiles.size());
+            for (Map.Entry<String, Set<String>> profile : config.profiles.entrySet()) {
+                out.writeUTF(profile.getKey());
+                out.writeInt(profile.getValue().size());
+                for (String packageName : profile.getValue()) {
+                    out.writeUTF(packageName);
+                }
+            }
+            out.writeUTF(config.activeProfile);
+            out.writeInt(config.archiveRetentionDays);
+            writeString(out, config.contentRules);
+            out.writeLong(config.wifiRestoreGraceMs);
+            out.writeInt(config.maxWifiTogglesPerMinute);
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+
+    private static void readProfiles(DataInputStream in, MonitorConfig.Builder builder) throws IOException {
+        int profiles = in.readInt();
+        if (profiles < 1) {
+            throw new IOException("No profiles");
+        }
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < profiles; i++) {
+            String name = in.readUTF();
+            names.add(name);
+            builder.addProfile(name).setActiveProfile(name);
+            int apps = in.readInt();
+            for (int j = 0; j < apps; j++) {
+                builder.addRestrictedApp(in.readUTF());
+            }
+        }
+        String active = in.readUTF();
+        if (!names.contains(active)) {
+            throw new IOException("Unknown active profile " + active);
+        }
+        builder.setActiveProfile(active);
+        if (!names.contains(MonitorConfig.DEFAULT_PROFILE)) {
+            builder.removeProfile(MonitorConfig.DEFAULT_PROFILE);
+        }
+    }
+
+    // Rule text can outgrow writeUTF's 64 KiB limit, so it gets an int length
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > (1 << 20)) {
+            throw new IOException("Bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the current {@link MonitorConfig} in memory and persists it to a
+ * {@link ConfigFile}. Reads are a volatile load. Updates copy the config, publish the new
+ * instance, notify listeners on the updating thread and queue a write on the writer
+ * executor; writes that fall behind are coalesced so only the newest config hits disk.
+ */
+public final class ConfigStore {
+    public interface Editor {
+        void edit(MonitorConfig.Builder builder);
+    }
+
+    public interface Listener {
+        void onConfigChanged(MonitorConfig config);
+    }
+
+    private final ConfigFile file;
+    private final Executor writer;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong writeFailures = new AtomicLong();
+    private volatile MonitorConfig current;
+    // Guarded by this
+    private long version;
+    private long writtenVersion;
+
+    public ConfigStore(ConfigFile file, MonitorConfig initial, Executor writer) {
+        this.file = file;
+        this.current = initial;
+        this.writer = writer;
+    }
+
+    public MonitorConfig get() {
+        return current;
+    }
+
+    /** Applies {@code editor} to a copy of the current config and publishes the result. */
+    public MonitorConfig update(Editor editor) {
+        MonitorConfig updated;
+        synchronized (this) {
+            MonitorConfig.Builder builder = current.edit();
+            editor.edit(builder);
+            updated = builder.build();
+            current = updated;
+            version++;
+        }
+        writer.execute(this::persist);
+        for (Listener listener : listeners) {
+            listener.onConfigChanged(updated);
+        }
+        return updated;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public long writeFailureCount() {
+        return writeFailures.get();
+    }
+
+    private void persist() {
+        MonitorConfig snapshot;
+        long snapshotVersion;
+        synchronized (this) {
+            if (writtenVersion == version) {
+                return;
+            }
+            snapshot = current;
+            snapshotVersion = version;
+        }
+        try {
+            file.write(snapshot);
+            synchronized (this) {
+                writtenVersion = snapshotVersion;
+            }
+        } catch (IOException e) {
+            // Left unwritten; the next update tries again with the newer config
+            writeFailures.incrementAndGet();
+        }
+    }
+}
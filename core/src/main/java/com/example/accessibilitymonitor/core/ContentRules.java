@@ -0,0 +1,157 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keywords that restrict an app while its window shows them, compiled from text rules
+ * into a single {@link KeywordMatcher}. Each package maps to the set of keyword indexes
+ * that apply to it, so one automaton serves every package.
+ *
+ * <p>Rules, one per line:
+ * <pre>
+ * com.android.chrome: youtube.com, casino
+ * *: spoiler
+ * </pre>
+ * Keywords are matched anywhere in a node's text or content description, ignoring case.
+ * {@code *} applies to every app. Immutable.
+ */
+public final class ContentRules {
+    public static final String ANY_PACKAGE = "*";
+    public static final ContentRules NONE = new ContentRules("", KeywordMatcher.EMPTY, new String[0],
+            Collections.<String, BitSet>emptyMap(), null);
+
+    private final String source;
+    private final KeywordMatcher matcher;
+    private final String[] keywords;
+    // Includes the keywords for every package
+    private final Map<String, BitSet> byPackage;
+    // Null when no rule applies to every package
+    private final BitSet anyPackage;
+
+    private ContentRules(String source, KeywordMatcher matcher, String[] keywords, Map<String, BitSet> byPackage,
+                         BitSet anyPackage) {
+        this.source = source;
+        this.matcher = matcher;
+        this.keywords = keywords;
+        this.byPackage = byPackage;
+        this.anyPackage = anyPackage;
+    }
+
+    /** @throws IllegalArgumentException naming the first line that does not parse */
+    public static ContentRules parse(String rules) {
+        if (rules == null || rules.trim().isEmpty()) {
+            return NONE;
+        }
+        Map<String, Integer> keywordIds = new HashMap<>();
+        List<String> keywords = new ArrayList<>();
+        Map<String, BitSet> byPackage = new HashMap<>();
+        BitSet anyPackage = null;
+        String[] lines = rules.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected a package, a colon and keywords");
+            }
+            String packageName = line.substring(0, colon).trim();
+            if (!packageName.equals(ANY_PACKAGE) && !PolicyTransfer.isValidPackageName(packageName)) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": not a package name: " + packageName);
+            }
+            BitSet ids;
+            if (packageName.equals(ANY_PACKAGE)) {
+                if (anyPackage == null) {
+                    anyPackage = new BitSet();
+                }
+                ids = anyPackage;
+            } else {
+                ids = byPackage.get(packageName);
+                if (ids == null) {
+                    ids = new BitSet();
+                    byPackage.put(packageName, ids);
+                }
+            }
+            boolean any = false;
+            for (String part : line.substring(colon + 1).split(",")) {
+                String keyword = part.trim().toLowerCase(Locale.ROOT);
+                if (keyword.isEmpty()) {
+                    continue;
+                }
+                Integer id = keywordIds.get(keyword);
+                if (id == null) {
+                    id = keywords.size();
+                    keywordIds.put(keyword, id);
+                    keywords.add(keyword);
+                }
+                ids.set(id);
+                any = true;
+            }
+            if (!any) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": no keywords");
+            }
+        }
+        if (keywords.isEmpty()) {
+            return NONE;
+        }
+        if (anyPackage != null) {
+            for (BitSet ids : byPackage.values()) {
+                ids.or(anyPackage);
+            }
+        }
+        return new ContentRules(rules, KeywordMatcher.compile(keywords), keywords.toArray(new String[0]),
+                byPackage, anyPackage);
+    }
+
+    public boolean isEmpty() {
+        return keywords.length == 0;
+    }
+
+    /** Whether any rule applies to {@code packageName}. */
+    public boolean appliesTo(String packageName) {
+        return anyPackage != null || byPackage.containsKey(packageName);
+    }
+
+    /** Whether some rule applies to every package, so the service must see every window. */
+    public boolean coversAllPackages() {
+        return anyPackage != null;
+    }
+
+    /** Packages named by a rule; {@code *} rules are not included. */
+    public Set<String> packages() {
+        return Collections.unmodifiableSet(byPackage.keySet());
+    }
+
+    /** The first keyword for {@code packageName} that appears in {@code text}, or null. */
+    public String match(String packageName, CharSequence text) {
+        BitSet allowed = byPackage.get(packageName);
+        if (allowed == null) {
+            allowed = anyPackage;
+            if (allowed == null) {
+                return null;
+            }
+        }
+        int keyword = matcher.find(text, allowed);
+        return keyword >= 0 ? keywords[keyword] : null;
+    }
+
+    public int keywordCount() {
+        return keywords.length;
+    }
+
+    /** Whether parsing {@code rules} would give these rules back. */
+    public boolean isCompiledFrom(String rules) {
+        if (rules == null || rules.trim().isEmpty()) {
+            return this == NONE;
+        }
+        return rules.equals(source);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.accessibilitymonitor.core;
+
+/**
+ * A side effect run against a restricted app, such as turning Wi-Fi off. Actions are
+ * run by an {@link ActionExecutor} and must be safe to repeat.
+ */
+public interface EnforcementAction {
+    /**
+     * Identifies the effect for de-duplication: while an action with the same key is
+     * pending, further submissions are dropped.
+     */
+    String key(String packageName);
+
+    /** True if the desired state already holds, so there is nothing to do. */
+    boolean isSatisfied(String packageName);
+
+    /** Returns true on success; false or an exception schedules a retry. */
+    boolean apply(String packageName) throws Exception;
+}
@@ -0,0 +1,113 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.function.Supplier;
+
+/**
+ * The decision path behind the event pipeline: window events become foreground sessions,
+ * each new session of a restricted app is checked against the current policy, and the
+ * strategy's actions go to the {@link ActionExecutor}. The service and the replay harness
+ * run the same instance type, so what is measured offline is what runs on the device.
+ * Runs on the pipeline worker thread.
+ */
+public final class EnforcementEngine implements EventPipeline.Handler {
+    /**
+     * Event type published when a window showed a {@link ContentRules} keyword; outside the
+     * range of accessibility event types, which are single bits below this one.
+     */
+    public static final int EVENT_CONTENT_MATCH = 0x40000000;
+
+    public interface ActionFactory {
+        EnforcementAction[] forStrategy(EnforcementStrategy strategy);
+    }
+
+    public interface Listener {
+        /** A restricted app came to the foreground while its schedule was active. */
+        void onRestricted(String packageName, long timestamp, EnforcementStrategy strategy);
+
+        /** An app showed restricted content while the schedule was active. */
+        void onRestrictedContent(String packageName, long timestamp, EnforcementStrategy strategy);
+
+        /** Any package came to the foreground, new session or not; before its policy check. */
+        default void onForeground(String packageName, long timestamp) {
+        }
+
+        /** Called after each drained batch, once its actions have been submitted. */
+        void onBatchEnd(int batchSize);
+    }
+
+    private final Supplier<PolicySnapshot> policy;
+    private final ActionFactory actions;
+    private final ActionExecutor executor;
+    private final MonitorStats stats;
+    private final Listener listener;
+    private final ForegroundSessionTracker sessionTracker;
+
+    public EnforcementEngine(Supplier<PolicySnapshot> policy, ActionFactory actions, ActionExecutor executor,
+                             MonitorStats stats, Listener listener) {
+        this.policy = policy;
+        this.actions = actions;
+        this.executor = executor;
+        this.stats = stats;
+        this.listener = listener;
+        this.sessionTracker = new ForegroundSessionTracker(PolicySnapshot.DEFAULT_DEBOUNCE_MS,
+                new ForegroundSessionTracker.Listener() {
+                    @Override
+                    public void onEnter(String packageName, long timestamp) {
+                        listener.onForeground(packageName, timestamp);
+                        check(packageName, timestamp);
+                    }
+
+                    @Override
+                    public void onResume(String packageName, long timestamp) {
+                        listener.onForeground(packageName, timestamp);
+                    }
+
+                    @Override
+                    public void onLeave(String packageName, long timestamp) {
+                    }
+                });
+    }
+
+    @Override
+    public void accept(long timestamp, String packageName, int eventType) {
+        long start = System.nanoTime();
+        if (eventType == EVENT_CONTENT_MATCH) {
+            checkContent(packageName, timestamp);
+        } else {
+            sessionTracker.setDebounceMs(policy.get().debounceMs);
+            sessionTracker.onWindowStateChanged(packageName, timestamp);
+        }
+        stats.handle.recordSince(start);
+    }
+
+    @Override
+    public void onBatchEnd(int batchSize) {
+        listener.onBatchEnd(batchSize);
+    }
+
+    private void check(String packageName, long timestamp) {
+        PolicySnapshot snapshot = policy.get();
+        if (!snapshot.isRestricted(packageName, timestamp)) {
+            return;
+        }
+        listener.onRestricted(packageName, timestamp, enforce(snapshot, packageName));
+    }
+
+    // The service only publishes a content match once per visit to the app, so there is no session check
+    private void checkContent(String packageName, long timestamp) {
+        PolicySnapshot snapshot = policy.get();
+        if (!snapshot.isEnforcing(timestamp)) {
+            return;
+        }
+        listener.onRestrictedContent(packageName, timestamp, enforce(snapshot, packageName));
+    }
+
+    private EnforcementStrategy enforce(PolicySnapshot snapshot, String packageName) {
+        stats.countMatch();
+        EnforcementStrategy strategy = snapshot.strategyFor(packageName);
+        for (EnforcementAction action : actions.forStrategy(strategy)) {
+            executor.submit(action, packageName);
+        }
+        return strategy;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.accessibilitymonitor.core;
+
+/**
+ * What the service does when a restricted app comes to the foreground. Detections are
+ * journaled under every strategy.
+ */
+public enum EnforcementStrategy {
+    /** Turn Wi-Fi off and alert the user. */
+    WIFI_OFF("wifi_off"),
+    /** Alert the user without touching the radio. */
+    NOTIFY_ONLY("notify_only"),
+    /** Send the user back to the launcher and alert them. */
+    GO_HOME("go_home"),
+    /** Only record the detection. */
+    LOG_ONLY("log_only");
+
+    public static final EnforcementStrategy DEFAULT = WIFI_OFF;
+
+    public final String key;
+
+    EnforcementStrategy(String key) {
+        this.key = key;
+    }
+
+    public static EnforcementStrategy fromKey(String key) {
+        EnforcementStrategy strategy = findByKey(key);
+        return strategy != null ? strategy : DEFAULT;
+    }
+
+    /** Returns null for an unknown key. */
+    public static EnforcementStrategy findByKey(String key) {
+        for (EnforcementStrategy strategy : values()) {
+            if (strategy.key.equals(key)) {
+                return strategy;
+            }
+        }
+        return null;
+    }
+}
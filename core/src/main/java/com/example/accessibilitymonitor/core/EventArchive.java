@@ -0,0 +1,418 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar file holding a closed period of journal records, normally one day. Records are
+ * sorted by time and cut into blocks of {@value #BLOCK_RECORDS}; within a block each column
+ * is encoded on its own:
+ * <ul>
+ *   <li>timestamps as varint deltas from the block's first timestamp, which is in the footer;</li>
+ *   <li>packages as varint ids into a dictionary stored once per file;</li>
+ *   <li>actions as run-length pairs of action code and run length.</li>
+ * </ul>
+ * The footer indexes each block's time range and column offsets, and each package's record
+ * count and time range, so a scan reads only the footer for files and blocks outside its
+ * query and decodes timestamps and actions only for blocks that hold the wanted package.
+ */
+public final class EventArchive {
+    private static final int MAGIC = 0x41415243; // "AARC"
+    private static final int VERSION = 1;
+    static final int BLOCK_RECORDS = 1024;
+    private static final int HEADER_SIZE = 8;
+    private static final int TRAILER_SIZE = 8;
+
+    public interface Visitor {
+        /** Returns false to stop the scan. */
+        boolean visit(long timestamp, String packageName, int action);
+    }
+
+    private EventArchive() {
+    }
+
+    /** Collects records in memory and writes them out as one archive. */
+    public static final class Writer {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private long[] timestamps = new long[256];
+        private int[] packages = new int[256];
+        private int[] actions = new int[256];
+        private int size;
+
+        public void add(long timestamp, String packageName, int action) {
+            Integer id = ids.get(packageName);
+            if (id == null) {
+                id = names.size();
+                names.add(packageName);
+                ids.put(packageName, id);
+            }
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                packages = Arrays.copyOf(packages, size * 2);
+                actions = Arrays.copyOf(actions, size * 2);
+            }
+            timestamps[size] = timestamp;
+            packages[size] = id;
+            actions[size] = action;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /** Writes to a temp file that is renamed over {@code file}. */
+        public void writeTo(File file) throws IOException {
+            sortByTime();
+            ByteArrayOutputStream timeColumn = new ByteArrayOutputStream();
+            ByteArrayOutputStream packageColumn = new ByteArrayOutputStream();
+            ByteArrayOutputStream actionColumn = new ByteArrayOutputStream();
+            int blocks = (size + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+            int[][] blockOffsets = new int[blocks][3];
+            for (int block = 0; block < blocks; block++) {
+                int start = block * BLOCK_RECORDS;
+                int end = Math.min(size, start + BLOCK_RECORDS);
+                blockOffsets[block][0] = timeColumn.size();
+                blockOffsets[block][1] = packageColumn.size();
+                blockOffsets[block][2] = actionColumn.size();
+                for (int i = start + 1; i < end; i++) {
+                    writeVarLong(timeColumn, timestamps[i] - timestamps[i - 1]);
+                }
+                for (int i = start; i < end; i++) {
+                    writeVarLong(packageColumn, packages[i]);
+                }
+                int runStart = start;
+                for (int i = start + 1; i <= end; i++) {
+                    if (i == end || actions[i] != actions[runStart]) {
+                        writeVarLong(actionColumn, actions[runStart] & 0xffffffffL);
+                        writeVarLong(actionColumn, i - runStart);
+                        runStart = i;
+                    }
+                }
+            }
+            ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+            writeVarLong(dictionary, names.size());
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(dictionary, bytes.length);
+                dictionary.write(bytes, 0, bytes.length);
+            }
+
+            int timeStart = HEADER_SIZE;
+            int packageStart = timeStart + timeColumn.size();
+            int actionStart = packageStart + packageColumn.size();
+            int dictionaryStart = actionStart + actionColumn.size();
+            int footerStart = dictionaryStart + dictionary.size();
+
+            File tmp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream fos = new FileOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                timeColumn.writeTo(out);
+                packageColumn.writeTo(out);
+                actionColumn.writeTo(out);
+                dictionary.writeTo(out);
+
+                out.writeInt(size);
+                out.writeInt(dictionaryStart);
+                out.writeInt(footerStart - dictionaryStart);
+                out.writeInt(blocks);
+                for (int block = 0; block < blocks; block++) {
+                    int start = block * BLOCK_RECORDS;
+                    int end = Math.min(size, start + BLOCK_RECORDS);
+                    out.writeInt(end - start);
+                    out.writeLong(timestamps[start]);
+                    out.writeLong(timestamps[end - 1]);
+                    out.writeInt(timeStart + blockOffsets[block][0]);
+                    out.writeInt(block + 1 < blocks ? timeStart + blockOffsets[block + 1][0] : packageStart);
+                    out.writeInt(packageStart + blockOffsets[block][1]);
+                    out.writeInt(block + 1 < blocks ? packageStart + blockOffsets[block + 1][1] : actionStart);
+                    out.writeInt(actionStart + blockOffsets[block][2]);
+                    out.writeInt(block + 1 < blocks ? actionStart + blockOffsets[block + 1][2] : dictionaryStart);
+                }
+                writePackageIndex(out);
+                out.writeInt(footerStart);
+                out.writeInt(MAGIC);
+                out.flush();
+                fos.getFD().sync();
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Failed to replace " + file);
+            }
+        }
+
+        private void writePackageIndex(DataOutputStream out) throws IOException {
+            int[] counts = new int[names.size()];
+            long[] first = new long[names.size()];
+            long[] last = new long[names.size()];
+            for (int i = 0; i < size; i++) {
+                int id = packages[i];
+                if (counts[id]++ == 0) {
+                    first[id] = timestamps[i];
+                }
+                last[id] = timestamps[i];
+            }
+            for (int id = 0; id < names.size(); id++) {
+                out.writeInt(counts[id]);
+                out.writeLong(first[id]);
+                out.writeLong(last[id]);
+            }
+        }
+
+        // Journal order is almost time order, so an insertion sort does little work
+        private void sortByTime() {
+            for (int i = 1; i < size; i++) {
+                long timestamp = timestamps[i];
+                if (timestamp >= timestamps[i - 1]) {
+                    continue;
+                }
+                int packageId = packages[i];
+                int action = actions[i];
+                int j = i - 1;
+                while (j >= 0 && timestamps[j] > timestamp) {
+                    timestamps[j + 1] = timestamps[j];
+                    packages[j + 1] = packages[j];
+                    actions[j + 1] = actions[j];
+                    j--;
+                }
+                timestamps[j + 1] = timestamp;
+                packages[j + 1] = packageId;
+                actions[j + 1] = action;
+            }
+        }
+    }
+
+    /** Record count from the footer alone, or -1 for a file that is not a complete archive. */
+    public static int recordCount(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return readFooter(raf).records;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Visits the records matching {@code query} in time order. Returns false if the visitor
+     * stopped the scan.
+     */
+    public static boolean scan(File file, JournalPager.Query query, Visitor visitor) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            Footer footer = readFooter(raf);
+            if (footer.blocks.length == 0 || footer.lastTimestamp() < query.fromTimestamp
+                    || footer.firstTimestamp() > query.toTimestamp) {
+                return true;
+            }
+            String[] dictionary = readDictionary(read(raf, footer.dictionaryStart, footer.dictionaryLength));
+            if (footer.packageFirst.length != dictionary.length) {
+                throw new IOException("Package index does not match dictionary in " + file);
+            }
+            int wanted = -1;
+            if (query.packageName != null) {
+                wanted = Arrays.asList(dictionary).indexOf(query.packageName);
+                if (wanted < 0 || footer.packageLast[wanted] < query.fromTimestamp
+                        || footer.packageFirst[wanted] > query.toTimestamp) {
+                    return true;
+                }
+            }
+            int[] ids = new int[BLOCK_RECORDS];
+            long[] times = new long[BLOCK_RECORDS];
+            int[] actions = new int[BLOCK_RECORDS];
+            for (Block block : footer.blocks) {
+                if (block.lastTimestamp < query.fromTimestamp) {
+                    continue;
+                }
+                if (block.firstTimestamp > query.toTimestamp) {
+                    break;
+                }
+                ByteBuffer packageColumn = ByteBuffer.wrap(read(raf, block.packageStart, block.packageEnd - block.packageStart));
+                boolean any = false;
+                for (int i = 0; i < block.records; i++) {
+                    long id = readVarLong(packageColumn);
+                    if (id < 0 || id >= dictionary.length) {
+                        throw new IOException("Bad package id " + id + " in " + file);
+                    }
+                    ids[i] = (int) id;
+                    any |= wanted < 0 || ids[i] == wanted;
+                }
+                if (!any) {
+                    continue;
+                }
+                ByteBuffer timeColumn = ByteBuffer.wrap(read(raf, block.timeStart, block.timeEnd - block.timeStart));
+                times[0] = block.firstTimestamp;
+                for (int i = 1; i < block.records; i++) {
+                    times[i] = times[i - 1] + readVarLong(timeColumn);
+                }
+                ByteBuffer actionColumn = ByteBuffer.wrap(read(raf, block.actionStart, block.actionEnd - block.actionStart));
+                for (int i = 0; i < block.records; ) {
+                    int action = (int) readVarLong(actionColumn);
+                    int run = (int) readVarLong(actionColumn);
+                    if (run <= 0 || i + run > block.records) {
+                        throw new IOException("Bad action run in " + file);
+                    }
+                    Arrays.fill(actions, i, i + run, action);
+                    i += run;
+                }
+                for (int i = 0; i < block.records; i++) {
+                    if (times[i] < query.fromTimestamp || (wanted >= 0 && ids[i] != wanted)) {
+                        continue;
+                    }
+                    if (times[i] > query.toTimestamp) {
+                        return true;
+                    }
+                    if (!visitor.visit(times[i], dictionary[ids[i]], actions[i])) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Block {
+        int records;
+        long firstTimestamp;
+        long lastTimestamp;
+        int timeStart;
+        int timeEnd;
+        int packageStart;
+        int packageEnd;
+        int actionStart;
+        int actionEnd;
+    }
+
+    private static final class Footer {
+        int records;
+        int dictionaryStart;
+        int dictionaryLength;
+        Block[] blocks;
+        long[] packageFirst;
+        long[] packageLast;
+
+        long firstTimestamp() {
+            return blocks[0].firstTimestamp;
+        }
+
+        long lastTimestamp() {
+            return blocks[blocks.length - 1].lastTimestamp;
+        }
+    }
+
+    private static Footer readFooter(RandomAccessFile raf) throws IOException {
+        long length = raf.length();
+        if (length < HEADER_SIZE + TRAILER_SIZE || length > Integer.MAX_VALUE) {
+            throw new IOException("Not an event archive");
+        }
+        raf.seek(0);
+        if (raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+            throw new IOException("Not an event archive");
+        }
+        raf.seek(length - TRAILER_SIZE);
+        int footerStart = raf.readInt();
+        if (raf.readInt() != MAGIC || footerStart < HEADER_SIZE || footerStart > length - TRAILER_SIZE) {
+            throw new IOException("Archive footer missing");
+        }
+        ByteBuffer in = ByteBuffer.wrap(read(raf, footerStart, (int) (length - TRAILER_SIZE - footerStart)));
+        if (in.remaining() < 16) {
+            throw new IOException("Archive footer truncated");
+        }
+        Footer footer = new Footer();
+        footer.records = in.getInt();
+        footer.dictionaryStart = in.getInt();
+        footer.dictionaryLength = in.getInt();
+        int blocks = in.getInt();
+        if (blocks < 0 || blocks > in.remaining() / 44) {
+            throw new IOException("Bad block count " + blocks);
+        }
+        footer.blocks = new Block[blocks];
+        for (int i = 0; i < blocks; i++) {
+            Block block = new Block();
+            block.records = in.getInt();
+            block.firstTimestamp = in.getLong();
+            block.lastTimestamp = in.getLong();
+            block.timeStart = in.getInt();
+            block.timeEnd = in.getInt();
+            block.packageStart = in.getInt();
+            block.packageEnd = in.getInt();
+            block.actionStart = in.getInt();
+            block.actionEnd = in.getInt();
+            if (block.records <= 0 || block.records > BLOCK_RECORDS) {
+                throw new IOException("Bad block size " + block.records);
+            }
+            footer.blocks[i] = block;
+        }
+        int packages = in.remaining() / 20;
+        footer.packageFirst = new long[packages];
+        footer.packageLast = new long[packages];
+        for (int id = 0; id < packages; id++) {
+            in.getInt();
+            footer.packageFirst[id] = in.getLong();
+            footer.packageLast[id] = in.getLong();
+        }
+        return footer;
+    }
+
+    private static String[] readDictionary(byte[] bytes) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        int count = (int) readVarLong(in);
+        if (count < 0 || count > bytes.length) {
+            throw new IOException("Bad dictionary size " + count);
+        }
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = (int) readVarLong(in);
+            if (length < 0 || length > in.remaining()) {
+                throw new IOException("Bad dictionary entry");
+            }
+            names[i] = new String(bytes, in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        }
+        return names;
+    }
+
+    private static byte[] read(RandomAccessFile raf, long position, int length) throws IOException {
+        if (length < 0 || position + length > raf.length()) {
+            throw new IOException("Column out of bounds");
+        }
+        byte[] bytes = new byte[length];
+        raf.seek(position);
+        raf.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new IOException("Truncated column");
+            }
+            int b = in.get() & 0xff;
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+}
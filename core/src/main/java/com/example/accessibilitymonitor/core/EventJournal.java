@@ -0,0 +1,231 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Append-only event log made of fixed-size binary records spread over numbered segment
+ * files. Records are 16 bytes (timestamp, package id, action); package names are kept in
+ * a {@link PackageDictionary} next to the segments. Appends go through a small buffer and
+ * reach the file on flush, rotation or when the buffer fills. Once more than
+ * {@code maxSegments} segments exist the oldest one is deleted.
+ */
+public final class EventJournal {
+    public static final int RECORD_SIZE = 16;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+    private static final int BUFFERED_RECORDS = 64;
+
+    public interface Visitor {
+        /** Returns false to stop the scan. */
+        boolean visit(long timestamp, int packageId, int action);
+    }
+
+    private final File dir;
+    private final int recordsPerSegment;
+    private final int maxSegments;
+    private final PackageDictionary dictionary;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE * BUFFERED_RECORDS);
+    private final ArrayDeque<Long> segments = new ArrayDeque<>();
+
+    private FileChannel channel;
+    private long activeSegment;
+    private int activeRecords;
+
+    public EventJournal(File dir, int recordsPerSegment, int maxSegments) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + dir);
+        }
+        this.dir = dir;
+        this.recordsPerSegment = recordsPerSegment;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.dictionary = PackageDictionary.open(new File(dir, "packages.dict"));
+
+        for (long seq : listSegments(dir)) {
+            segments.addLast(seq);
+        }
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            openSegment(segments.peekLast());
+        }
+    }
+
+    public synchronized void append(long timestamp, String packageName, int action) throws IOException {
+        int packageId = dictionary.intern(packageName);
+        if (activeRecords >= recordsPerSegment) {
+            rotate();
+        }
+        buffer.putLong(timestamp).putInt(packageId).putInt(action);
+        activeRecords++;
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        drain();
+    }
+
+    /** Flushes and forces the active segment to storage. */
+    public synchronized void sync() throws IOException {
+        drain();
+        channel.force(false);
+    }
+
+    public synchronized void close() throws IOException {
+        drain();
+        channel.close();
+    }
+
+    public String packageName(int packageId) {
+        return dictionary.nameOf(packageId);
+    }
+
+    int packageId(String packageName) {
+        return dictionary.idOf(packageName);
+    }
+
+    /** Flushes pending appends and returns the current segments, oldest first. */
+    synchronized List<Long> flushedSegments() throws IOException {
+        drain();
+        return new ArrayList<>(segments);
+    }
+
+    /**
+     * Visits records from oldest to newest. Pending appends are flushed first.
+     */
+    public void scan(Visitor visitor) throws IOException {
+        List<Long> snapshot;
+        synchronized (this) {
+            drain();
+            snapshot = new ArrayList<>(segments);
+        }
+        ByteBuffer block = ByteBuffer.allocate(RECORD_SIZE * 256);
+        for (long seq : snapshot) {
+            File file = segmentFile(seq);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                FileChannel in = raf.getChannel();
+                long end = in.size() - in.size() % RECORD_SIZE;
+                long position = 0;
+                while (position < end) {
+                    block.clear();
+                    block.limit((int) Math.min(block.capacity(), end - position));
+                    int read = in.read(block, position);
+                    if (read <= 0) {
+                        break;
+                    }
+                    position += read;
+                    block.flip();
+                    while (block.remaining() >= RECORD_SIZE) {
+                        if (!visitor.visit(block.getLong(), block.getInt(), block.getInt())) {
+                            return;
+                        }
+                    }
+                    // Keep a split record for the next read
+                    position -= block.remaining();
+                }
+            } catch (FileNotFoundException e) {
+                // Rotated away while we were reading
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} of the newest records, newest first.
+     */
+    public List<JournalRecord> readRecent(int limit) throws IOException {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        final ArrayDeque<long[]> tail = new ArrayDeque<>(limit);
+        scan((timestamp, packageId, action) -> {
+            if (tail.size() == limit) {
+                tail.removeFirst();
+            }
+            tail.addLast(new long[]{timestamp, packageId, action});
+            return true;
+        });
+        List<JournalRecord> records = new ArrayList<>(tail.size());
+        for (long[] raw : tail) {
+            records.add(new JournalRecord(raw[0], packageName((int) raw[1]), (int) raw[2]));
+        }
+        Collections.reverse(records);
+        return records;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void rotate() throws IOException {
+        drain();
+        channel.close();
+        openSegment(activeSegment + 1);
+        while (segments.size() > maxSegments) {
+            // Stays tracked until it is really gone, so the next rotation retries it
+            File oldest = segmentFile(segments.peekFirst());
+            if (!oldest.delete() && oldest.exists()) {
+                break;
+            }
+            segments.removeFirst();
+        }
+    }
+
+    private void openSegment(long seq) throws IOException {
+        File file = segmentFile(seq);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        FileChannel opened = raf.getChannel();
+        // Drop a torn record left by a crash mid-write
+        long size = opened.size();
+        opened.truncate(size - size % RECORD_SIZE);
+        opened.position(opened.size());
+
+        channel = opened;
+        activeSegment = seq;
+        activeRecords = (int) (opened.size() / RECORD_SIZE);
+        if (segments.isEmpty() || segments.peekLast() != seq) {
+            segments.addLast(seq);
+        }
+    }
+
+    File segmentFile(long seq) {
+        return new File(dir, String.format(Locale.US, "%s%08d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private static long[] listSegments(File dir) {
+        String[] names = dir.list();
+        if (names == null) {
+            return new long[0];
+        }
+        long[] seqs = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    long seq = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    seqs[count++] = seq;
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+        long[] result = Arrays.copyOf(seqs, count);
+        Arrays.sort(result);
+        return result;
+    }
+}
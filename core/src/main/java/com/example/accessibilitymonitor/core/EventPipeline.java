@@ -0,0 +1,101 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves window events off the accessibility callback thread. The callback publishes into
+ * an {@link EventRing}; a dedicated worker drains it in batches and hands each event to
+ * the {@link Handler}.
+ */
+public final class EventPipeline {
+    public interface Handler extends EventRing.Consumer {
+        /** Called after each drained batch, on the worker thread. */
+        void onBatchEnd(int batchSize);
+    }
+
+    private static final int MAX_BATCH = 64;
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final EventRing ring;
+    private final Handler handler;
+    private final Thread worker;
+    private final AtomicLong batches = new AtomicLong();
+    private volatile int maxBatch;
+    private volatile boolean running;
+    private volatile boolean parked;
+
+    public EventPipeline(String name, int capacity, Handler handler) {
+        this(name, capacity, handler, null);
+    }
+
+    /** Records queueing delay into {@code queueLatency}, which may be null. */
+    public EventPipeline(String name, int capacity, Handler handler, LatencyHistogram queueLatency) {
+        this.ring = new EventRing(capacity, queueLatency);
+        this.handler = handler;
+        this.worker = new Thread(this::runLoop, name);
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Producer side; must only be called from one thread. */
+    public boolean publish(long timestamp, String packageName, int eventType) {
+        boolean accepted = ring.offer(timestamp, packageName, eventType);
+        if (parked) {
+            LockSupport.unpark(worker);
+        }
+        return accepted;
+    }
+
+    private void runLoop() {
+        while (running) {
+            int drained = ring.drain(handler, MAX_BATCH);
+            if (drained > 0) {
+                batches.incrementAndGet();
+                if (drained > maxBatch) {
+                    maxBatch = drained;
+                }
+                handler.onBatchEnd(drained);
+                continue;
+            }
+            parked = true;
+            // Re-check after announcing so a publish between the drain and the flag is not missed
+            if (ring.isEmpty() && running) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            parked = false;
+        }
+        // Finish whatever was published before stop()
+        int drained;
+        while ((drained = ring.drain(handler, MAX_BATCH)) > 0) {
+            handler.onBatchEnd(drained);
+        }
+    }
+
+    public EventRing ring() {
+        return ring;
+    }
+
+    public long batchCount() {
+        return batches.get();
+    }
+
+    public int maxBatchSize() {
+        return maxBatch;
+    }
+}
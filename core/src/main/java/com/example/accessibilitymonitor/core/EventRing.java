@@ -0,0 +1,116 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer/single-consumer queue of window events. Slots are preallocated
+ * parallel arrays, so publishing never allocates. When the ring is full the new event is
+ * dropped and counted rather than blocking the producer.
+ */
+public final class EventRing {
+    public interface Consumer {
+        void accept(long timestamp, String packageName, int eventType);
+    }
+
+    private final int mask;
+    private final long[] timestamps;
+    private final String[] packages;
+    private final int[] eventTypes;
+    // Only allocated when queue latency is measured
+    private final long[] enqueuedNanos;
+    private final LatencyHistogram queueLatency;
+    private final int highWatermark;
+
+    // head is written only by the consumer, tail only by the producer
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong backpressure = new AtomicLong();
+
+    public EventRing(int capacity) {
+        this(capacity, null);
+    }
+
+    /** Records how long each event waited between offer and drain into {@code queueLatency}. */
+    public EventRing(int capacity, LatencyHistogram queueLatency) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        mask = capacity - 1;
+        timestamps = new long[capacity];
+        packages = new String[capacity];
+        eventTypes = new int[capacity];
+        this.queueLatency = queueLatency;
+        enqueuedNanos = queueLatency != null ? new long[capacity] : null;
+        highWatermark = capacity - capacity / 4;
+    }
+
+    /** Producer side. Returns false if the event was dropped because the ring is full. */
+    public boolean offer(long timestamp, String packageName, int eventType) {
+        long t = tail.get();
+        long used = t - head.get();
+        if (used > mask) {
+            overflows.incrementAndGet();
+            return false;
+        }
+        if (used >= highWatermark) {
+            backpressure.incrementAndGet();
+        }
+        int slot = (int) t & mask;
+        timestamps[slot] = timestamp;
+        packages[slot] = packageName;
+        eventTypes[slot] = eventType;
+        if (enqueuedNanos != null) {
+            enqueuedNanos[slot] = System.nanoTime();
+        }
+        // A full volatile store, not lazySet: the pipeline reads its parked flag right after
+        // this, and only a StoreLoad-ordered pair guarantees it and the worker see each other
+        tail.set(t + 1);
+        published.incrementAndGet();
+        return true;
+    }
+
+    /** Consumer side. Hands at most {@code max} events to the consumer and returns how many. */
+    public int drain(Consumer consumer, int max) {
+        long h = head.get();
+        long available = Math.min(tail.get() - h, max);
+        for (int i = 0; i < available; i++) {
+            int slot = (int) (h + i) & mask;
+            String packageName = packages[slot];
+            packages[slot] = null;
+            if (queueLatency != null) {
+                queueLatency.recordSince(enqueuedNanos[slot]);
+            }
+            consumer.accept(timestamps[slot], packageName, eventTypes[slot]);
+        }
+        head.lazySet(h + available);
+        return (int) available;
+    }
+
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long publishedCount() {
+        return published.get();
+    }
+
+    public long overflowCount() {
+        return overflows.get();
+    }
+
+    /** Number of publishes that found the ring at least three quarters full. */
+    public long backpressureCount() {
+        return backpressure.get();
+    }
+}
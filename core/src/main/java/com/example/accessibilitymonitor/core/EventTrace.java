@@ -0,0 +1,168 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact recording of the raw window-event stream, for replaying field traffic offline.
+ * After a small header each record is a varint timestamp delta, a package reference, a
+ * class reference and a varint event type. A reference is the string's id in order of
+ * first appearance; the first use of a string carries it inline. A steady stream costs
+ * four to five bytes per event. A torn final record, as left by a crash, is ignored.
+ */
+public final class EventTrace {
+    private static final int MAGIC = 0x41545243; // "ATRC"
+    private static final int VERSION = 1;
+    // Reference 0 stands for a missing class name
+    private static final int NULL_REF = 0;
+
+    public interface Visitor {
+        void visit(long timestamp, String packageName, String className, int eventType);
+    }
+
+    private EventTrace() {
+    }
+
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> packageIds = new HashMap<>();
+        private final Map<String, Integer> classIds = new HashMap<>();
+        private long lastTimestamp;
+        private long records;
+
+        public Writer(OutputStream stream) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void append(long timestamp, String packageName, String className, int eventType) throws IOException {
+            writeVarLong(out, zigZag(timestamp - lastTimestamp));
+            lastTimestamp = timestamp;
+            writeRef(packageIds, packageName);
+            writeRef(classIds, className);
+            writeVarLong(out, eventType & 0xffffffffL);
+            records++;
+        }
+
+        public long recordCount() {
+            return records;
+        }
+
+        /** Bytes written so far, including any still buffered. */
+        public long size() {
+            return out.size();
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private void writeRef(Map<String, Integer> ids, String value) throws IOException {
+            if (value == null) {
+                writeVarLong(out, NULL_REF);
+                return;
+            }
+            Integer id = ids.get(value);
+            if (id != null) {
+                writeVarLong(out, id);
+                return;
+            }
+            int next = ids.size() + 1;
+            ids.put(value, next);
+            writeVarLong(out, next);
+            out.writeUTF(value);
+        }
+    }
+
+    /** Visits every complete record in order and returns how many there were. */
+    public static long read(InputStream stream, Visitor visitor) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an event trace");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+        List<String> packages = new ArrayList<>();
+        List<String> classes = new ArrayList<>();
+        long timestamp = 0;
+        long count = 0;
+        while (true) {
+            long delta;
+            try {
+                delta = readVarLong(in);
+            } catch (EOFException e) {
+                return count;
+            }
+            try {
+                timestamp += unZigZag(delta);
+                String packageName = readRef(in, packages);
+                String className = readRef(in, classes);
+                int eventType = (int) readVarLong(in);
+                visitor.visit(timestamp, packageName, className, eventType);
+                count++;
+            } catch (EOFException e) {
+                return count;
+            }
+        }
+    }
+
+    private static String readRef(DataInputStream in, List<String> table) throws IOException {
+        long ref = readVarLong(in);
+        if (ref == NULL_REF) {
+            return null;
+        }
+        if (ref == table.size() + 1) {
+            table.add(in.readUTF());
+        } else if (ref > table.size()) {
+            throw new IOException("Bad string reference " + ref);
+        }
+        return table.get((int) ref - 1);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Turns the raw window-state stream into foreground sessions. Further windows from the
+ * package already in front (dialogs, inner activities) are ignored, and a package that
+ * comes back within the debounce window of leaving (for example after the keyboard or a
+ * system dialog briefly took focus) resumes its previous session instead of starting a
+ * new one. Not thread-safe; meant to be driven from a single worker thread.
+ */
+public final class ForegroundSessionTracker {
+    public interface Listener {
+        void onEnter(String packageName, long timestamp);
+
+        void onLeave(String packageName, long timestamp);
+
+        /** The package returned to the foreground within the debounce window. */
+        default void onResume(String packageName, long timestamp) {
+        }
+    }
+
+    private static final int PRUNE_THRESHOLD = 64;
+
+    private final Listener listener;
+    // Package -> time it last left the foreground
+    private final Map<String, long[]> lastLeft = new HashMap<>();
+    private long debounceMs;
+    private String current;
+
+    public ForegroundSessionTracker(long debounceMs, Listener listener) {
+        this.debounceMs = debounceMs;
+        this.listener = listener;
+    }
+
+    public void setDebounceMs(long debounceMs) {
+        this.debounceMs = debounceMs;
+    }
+
+    public String currentPackage() {
+        return current;
+    }
+
+    public void onWindowStateChanged(String packageName, long timestamp) {
+        if (packageName == null || packageName.isEmpty() || packageName.equals(current)) {
+            return;
+        }
+        if (current != null) {
+            long[] left = lastLeft.get(current);
+            if (left == null) {
+                if (lastLeft.size() >= PRUNE_THRESHOLD) {
+                    prune(timestamp);
+                }
+                lastLeft.put(current, new long[]{timestamp});
+            } else {
+                left[0] = timestamp;
+            }
+            listener.onLeave(current, timestamp);
+        }
+        current = packageName;
+
+        long[] left = lastLeft.get(packageName);
+        if (left != null && timestamp - left[0] <= debounceMs) {
+            listener.onResume(packageName, timestamp);
+        } else {
+            listener.onEnter(packageName, timestamp);
+        }
+    }
+
+    private void prune(long now) {
+        Iterator<long[]> it = lastLeft.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next()[0] > debounceMs) {
+                it.remove();
+            }
+        }
+    }
+}
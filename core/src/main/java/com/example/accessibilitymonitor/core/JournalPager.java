@@ -0,0 +1,188 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the journal newest-first, one page at a time, within a time range and optionally
+ * for a single package. Each segment gets a sparse index holding the lowest and highest
+ * timestamp of every {@value #BLOCK_RECORDS} records, so only blocks that overlap the range
+ * are read, however long the history is. Timestamps come from the wall clock and can go
+ * backwards after a clock or time zone change, so the index is never assumed to be sorted:
+ * a block or segment is skipped only when its own bounds miss the range, and "newest" means
+ * most recently appended. Memory use is bounded by the page size plus one block buffer.
+ */
+public final class JournalPager {
+    static final int BLOCK_RECORDS = 256;
+
+    /** What to read. Bounds are inclusive; a null package means every package. */
+    public static final class Query {
+        public final long fromTimestamp;
+        public final long toTimestamp;
+        public final String packageName;
+
+        public Query(long fromTimestamp, long toTimestamp, String packageName) {
+            this.fromTimestamp = fromTimestamp;
+            this.toTimestamp = toTimestamp;
+            this.packageName = packageName;
+        }
+    }
+
+    /** Position of the next record to read, walking backwards. */
+    public static final class Cursor {
+        final long segment;
+        final int record;
+
+        Cursor(long segment, int record) {
+            this.segment = segment;
+            this.record = record;
+        }
+    }
+
+    public static final class Page {
+        public final List<JournalRecord> records;
+        /** Where the following page starts, or null when the range is exhausted. */
+        public final Cursor next;
+
+        Page(List<JournalRecord> records, Cursor next) {
+            this.records = records;
+            this.next = next;
+        }
+    }
+
+    /** Timestamp bounds per block of one segment; extended as the active segment grows. */
+    private static final class SegmentIndex {
+        int records;
+        long[] min = new long[0];
+        long[] max = new long[0];
+        long segmentMin = Long.MAX_VALUE;
+        long segmentMax = Long.MIN_VALUE;
+
+        boolean overlaps(int block, Query query) {
+            return max[block] >= query.fromTimestamp && min[block] <= query.toTimestamp;
+        }
+    }
+
+    private final EventJournal journal;
+    private final Map<Long, SegmentIndex> indexes = new HashMap<>();
+    private final ByteBuffer block = ByteBuffer.allocate(EventJournal.RECORD_SIZE * BLOCK_RECORDS);
+
+    public JournalPager(EventJournal journal) {
+        this.journal = journal;
+    }
+
+    /** Reads a page starting at {@code cursor}, or at the newest match when it is null. */
+    public synchronized Page readPage(Query query, Cursor cursor, int pageSize) throws IOException {
+        List<Long> segments = journal.flushedSegments();
+        indexes.keySet().retainAll(segments);
+
+        int packageId = -1;
+        if (query.packageName != null) {
+            packageId = journal.packageId(query.packageName);
+            if (packageId == PackageDictionary.NO_ID) {
+                return new Page(Collections.<JournalRecord>emptyList(), null);
+            }
+        }
+
+        int segmentIndex = cursor == null ? segments.size() - 1 : segments.indexOf(cursor.segment);
+        int record = cursor == null ? Integer.MAX_VALUE : cursor.record;
+        List<JournalRecord> records = new ArrayList<>(pageSize);
+        for (; segmentIndex >= 0; segmentIndex--, record = Integer.MAX_VALUE) {
+            long segment = segments.get(segmentIndex);
+            try (RandomAccessFile raf = new RandomAccessFile(journal.segmentFile(segment), "r")) {
+                FileChannel in = raf.getChannel();
+                SegmentIndex index = index(segment, in);
+                record = Math.min(record, index.records - 1);
+                if (index.segmentMax < query.fromTimestamp || index.segmentMin > query.toTimestamp) {
+                    continue;
+                }
+                while (record >= 0) {
+                    int first = record / BLOCK_RECORDS * BLOCK_RECORDS;
+                    if (!index.overlaps(record / BLOCK_RECORDS, query)) {
+                        record = first - 1;
+                        continue;
+                    }
+                    readRecords(in, first, record - first + 1);
+                    for (int i = record; i >= first; i--) {
+                        int offset = (i - first) * EventJournal.RECORD_SIZE;
+                        long timestamp = block.getLong(offset);
+                        int id = block.getInt(offset + 8);
+                        if (timestamp < query.fromTimestamp || timestamp > query.toTimestamp
+                                || (packageId >= 0 && id != packageId)) {
+                            continue;
+                        }
+                        records.add(new JournalRecord(timestamp, journal.packageName(id), block.getInt(offset + 12)));
+                        if (records.size() == pageSize) {
+                            return new Page(records, new Cursor(segment, i - 1));
+                        }
+                    }
+                    record = first - 1;
+                }
+            } catch (FileNotFoundException e) {
+                // Rotated away; everything older is gone too
+                return new Page(records, null);
+            }
+        }
+        return new Page(records, null);
+    }
+
+    /** The cached index of {@code segment}, first covering any records appended since it was built. */
+    private SegmentIndex index(long segment, FileChannel in) throws IOException {
+        SegmentIndex index = indexes.get(segment);
+        if (index == null) {
+            index = new SegmentIndex();
+            indexes.put(segment, index);
+        }
+        int count = (int) (in.size() / EventJournal.RECORD_SIZE);
+        if (count <= index.records) {
+            return index;
+        }
+        int blocks = (count + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+        index.min = Arrays.copyOf(index.min, blocks);
+        index.max = Arrays.copyOf(index.max, blocks);
+        // The last indexed block may have been partial, so it is read again
+        for (int b = index.records / BLOCK_RECORDS; b < blocks; b++) {
+            int first = b * BLOCK_RECORDS;
+            int length = Math.min(BLOCK_RECORDS, count - first);
+            readRecords(in, first, length);
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < length; i++) {
+                long timestamp = block.getLong(i * EventJournal.RECORD_SIZE);
+                min = Math.min(min, timestamp);
+                max = Math.max(max, timestamp);
+            }
+            index.min[b] = min;
+            index.max[b] = max;
+            index.segmentMin = Math.min(index.segmentMin, min);
+            index.segmentMax = Math.max(index.segmentMax, max);
+        }
+        index.records = count;
+        return index;
+    }
+
+    private void readRecords(FileChannel in, int first, int count) throws IOException {
+        block.clear();
+        block.limit(count * EventJournal.RECORD_SIZE);
+        readFully(in, block, (long) first * EventJournal.RECORD_SIZE);
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of journal segment");
+            }
+            position += read;
+        }
+    }
+}
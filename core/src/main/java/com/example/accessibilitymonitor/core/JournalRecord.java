@@ -0,0 +1,52 @@
+package com.example.accessibilitymonitor.core;
+
+/**
+ * One decoded journal entry.
+ */
+public final class JournalRecord {
+    public static final int ACTION_RESTRICTED_APP = 1;
+    public static final int ACTION_RESTRICTED_CONTENT = 2;
+
+    public final long timestamp;
+    public final String packageName;
+    public final int action;
+
+    public JournalRecord(long timestamp, String packageName, int action) {
+        this.timestamp = timestamp;
+        this.packageName = packageName;
+        this.action = action;
+    }
+
+    public static String actionLabel(int action) {
+        switch (action) {
+            case ACTION_RESTRICTED_APP:
+                return "Restricted app detected";
+            case ACTION_RESTRICTED_CONTENT:
+                return "Restricted content detected";
+            default:
+                return "Action " + action;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JournalRecord)) {
+            return false;
+        }
+        JournalRecord other = (JournalRecord) o;
+        return timestamp == other.timestamp && action == other.action && packageName.equals(other.packageName);
+    }
+
+    @Override
+    public int hashCode() {
+        return (Long.hashCode(timestamp) * 31 + packageName.hashCode()) * 31 + action;
+    }
+
+    @Override
+    public String toString() {
+        return actionLabel(action) + ": " + packageName + " at " + timestamp;
+    }
+}
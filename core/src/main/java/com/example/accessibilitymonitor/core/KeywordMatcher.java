@@ -0,0 +1,186 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton over a fixed keyword list, matched case-insensitively. One pass
+ * over the text finds every keyword at once, so the cost of a scan depends on the length
+ * of the text, not on how many keywords there are. The automaton is stored in flat arrays
+ * with each state's edges sorted by character; {@link #find} does not allocate.
+ * Immutable and safe to share between threads.
+ */
+public final class KeywordMatcher {
+    public static final KeywordMatcher EMPTY = compile(new ArrayList<String>());
+
+    // Edges of state s are edgeChars/edgeTargets[edgeStart[s] .. edgeStart[s + 1])
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    // Keyword ending at the state itself, or -1
+    private final int[] terminal;
+    // Nearest state down the fail chain with a terminal keyword, or -1
+    private final int[] outputLink;
+    private final int keywordCount;
+
+    private KeywordMatcher(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] fail, int[] terminal,
+                           int[] outputLink, int keywordCount) {
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.terminal = terminal;
+        this.outputLink = outputLink;
+        this.keywordCount = keywordCount;
+    }
+
+    /** Keyword indexes in matches are positions in {@code keywords}; empty keywords never match. */
+    public static KeywordMatcher compile(List<String> keywords) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(new TreeMap<Character, Integer>());
+        ends.add(-1);
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            if (keyword.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = fold(keyword.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<Character, Integer>());
+                    ends.add(-1);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            if (ends.get(state) < 0) {
+                ends.set(state, k);
+            }
+        }
+
+        int states = trie.size();
+        int[] edgeStart = new int[states + 1];
+        int edges = 0;
+        for (int s = 0; s < states; s++) {
+            edgeStart[s] = edges;
+            edges += trie.get(s).size();
+        }
+        edgeStart[states] = edges;
+        char[] edgeChars = new char[edges];
+        int[] edgeTargets = new int[edges];
+        for (int s = 0; s < states; s++) {
+            int e = edgeStart[s];
+            for (Map.Entry<Character, Integer> edge : trie.get(s).entrySet()) {
+                edgeChars[e] = edge.getKey();
+                edgeTargets[e] = edge.getValue();
+                e++;
+            }
+        }
+        int[] terminal = new int[states];
+        for (int s = 0; s < states; s++) {
+            terminal[s] = ends.get(s);
+        }
+
+        // Breadth first, so every fail target is finished before the states that point at it
+        int[] fail = new int[states];
+        int[] outputLink = new int[states];
+        outputLink[0] = -1;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            fail[edgeTargets[e]] = 0;
+            outputLink[edgeTargets[e]] = -1;
+            queue.add(edgeTargets[e]);
+        }
+        KeywordMatcher partial = new KeywordMatcher(edgeStart, edgeChars, edgeTargets, fail, terminal, outputLink,
+                keywords.size());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                int child = edgeTargets[e];
+                int target = partial.step(fail[state], edgeChars[e]);
+                fail[child] = target;
+                outputLink[child] = terminal[target] >= 0 ? target : outputLink[target];
+                queue.add(child);
+            }
+        }
+        return partial;
+    }
+
+    /** Index of the first keyword to end in {@code text}, or -1. */
+    public int find(CharSequence text) {
+        return find(text, null);
+    }
+
+    /**
+     * Like {@link #find(CharSequence)}, but only keywords whose index is set in {@code allowed}
+     * count; a null set allows all of them.
+     */
+    public int find(CharSequence text, BitSet allowed) {
+        if (keywordCount == 0) {
+            return -1;
+        }
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = step(state, fold(text.charAt(i)));
+            for (int s = terminal[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                int keyword = terminal[s];
+                if (allowed == null || allowed.get(keyword)) {
+                    return keyword;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public int keywordCount() {
+        return keywordCount;
+    }
+
+    /** Number of automaton states, for diagnostics. */
+    public int stateCount() {
+        return fail.length;
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            int next = edge(state, c);
+            if (next >= 0) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int edge(int state, char c) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    private static char fold(char c) {
+        return c < 0x80 ? (c >= 'A' && c <= 'Z' ? (char) (c + 32) : c) : Character.toLowerCase(c);
+    }
+}
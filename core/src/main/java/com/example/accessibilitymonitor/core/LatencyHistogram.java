@@ -0,0 +1,114 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of durations in nanoseconds, in the style of HdrHistogram.
+ * Each power-of-two range is split into 32 linear sub-buckets, so any recorded value is
+ * reported to within about 3%. Recording is a few atomic increments and never allocates;
+ * readers see a slightly stale but consistent-enough view while writers keep recording.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below this are counted exactly, one bucket each
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    /** Durations above this (about 68 seconds) are counted in the last bucket. */
+    public static final long MAX_TRACKABLE_NANOS = (1L << 36) - 1;
+    private static final int BUCKETS = indexOf(MAX_TRACKABLE_NANOS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_TRACKABLE_NANOS));
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    /** Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading. */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    public long meanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * Upper bound of the bucket holding the value at {@code percentile} (0-100), capped at
+     * the largest value recorded. Returns 0 when nothing has been recorded.
+     */
+    public long valueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /** One line of count, mean, p50, p90, p99, p99.9 and max; microseconds below 10 ms. */
+    public String summary() {
+        return String.format(Locale.US, "n=%d mean=%s p50=%s p90=%s p99=%s p99.9=%s max=%s",
+                count(), micros(meanNanos()), micros(valueAtPercentile(50)), micros(valueAtPercentile(90)),
+                micros(valueAtPercentile(99)), micros(valueAtPercentile(99.9)), micros(maxNanos()));
+    }
+
+    private static String micros(long nanos) {
+        if (nanos >= TimeUnit.MILLISECONDS.toNanos(10)) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos) + "ms";
+        }
+        return String.format(Locale.US, "%.1fus", nanos / 1000.0);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.accessibilitymonitor.core;
+
+/**
+ * Parses the newline-separated text log the service kept in SharedPreferences before the
+ * event journal existed. Lines look like {@code "Restricted app detected: <package> at <millis>"};
+ * anything else is skipped.
+ */
+public final class LegacyLogParser {
+    private static final String PREFIX = "Restricted app detected: ";
+    private static final String SEPARATOR = " at ";
+
+    public interface Visitor {
+        void visit(long timestamp, String packageName, int action);
+    }
+
+    private LegacyLogParser() {
+    }
+
+    /** Returns the number of lines that parsed. */
+    public static int parse(CharSequence logs, Visitor visitor) {
+        int parsed = 0;
+        int length = logs.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && logs.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (parseLine(logs, lineStart, lineEnd, visitor)) {
+                parsed++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return parsed;
+    }
+
+    private static boolean parseLine(CharSequence logs, int start, int end, Visitor visitor) {
+        if (end - start <= PREFIX.length() || !regionMatches(logs, start, PREFIX)) {
+            return false;
+        }
+        int separator = lastIndexOf(logs, start + PREFIX.length(), end, SEPARATOR);
+        if (separator < 0) {
+            return false;
+        }
+        long timestamp = 0;
+        int digits = separator + SEPARATOR.length();
+        if (digits == end) {
+            return false;
+        }
+        for (int i = digits; i < end; i++) {
+            char c = logs.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            timestamp = timestamp * 10 + (c - '0');
+        }
+        String packageName = logs.subSequence(start + PREFIX.length(), separator).toString();
+        visitor.visit(timestamp, packageName, JournalRecord.ACTION_RESTRICTED_APP);
+        return true;
+    }
+
+    private static boolean regionMatches(CharSequence s, int offset, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lastIndexOf(CharSequence s, int from, int to, String needle) {
+        for (int i = to - needle.length(); i >= from; i--) {
+            if (regionMatches(s, i, needle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs periodic maintenance tasks from a single timer. Each wakeup runs every task that
+ * is due or nearly due, so tasks with different periods share wakeups instead of each
+ * having its own. Periods stretch up to {@link #MAX_BACKOFF_FACTOR} times while the
+ * caller reports no activity, and no wakeups are scheduled at all while the screen is
+ * off; overdue tasks run once when it comes back on.
+ *
+ * <p>Not thread-safe: call everything from the thread the timer fires on. Counters may be
+ * read from any thread.
+ */
+public final class MaintenanceScheduler {
+    public interface Timer {
+        /** Replaces any pending wakeup with one {@code delayMs} from now. */
+        void schedule(long delayMs);
+
+        void cancel();
+    }
+
+    public static final int MAX_BACKOFF_FACTOR = 8;
+    // A task due within a quarter of its period runs early with the current wakeup
+    private static final int COALESCE_DIVISOR = 4;
+
+    private static final class Task {
+        final String name;
+        final long intervalMs;
+        final Runnable runnable;
+        long nextDue;
+        volatile long runs;
+        volatile long failures;
+
+        Task(String name, long intervalMs, Runnable runnable) {
+            this.name = name;
+            this.intervalMs = intervalMs;
+            this.runnable = runnable;
+        }
+    }
+
+    private final Timer timer;
+    private final MonitorStats stats;
+    private final List<Task> tasks = new ArrayList<>();
+    private boolean running;
+    private volatile boolean screenOn = true;
+    private volatile int backoff = 1;
+    private volatile long wakeups;
+    private volatile long screenOffSkips;
+
+    /** {@code stats} may be null. */
+    public MaintenanceScheduler(Timer timer, MonitorStats stats) {
+        this.timer = timer;
+        this.stats = stats;
+    }
+
+    /** Tasks are added before {@link #start}. */
+    public void addTask(String name, long intervalMs, Runnable runnable) {
+        if (running) {
+            throw new IllegalStateException("Scheduler already started");
+        }
+        tasks.add(new Task(name, intervalMs, runnable));
+    }
+
+    public void start(long now) {
+        running = true;
+        for (Task task : tasks) {
+            task.nextDue = now + task.intervalMs;
+        }
+        reschedule(now);
+    }
+
+    public void stop() {
+        running = false;
+        timer.cancel();
+    }
+
+    /**
+     * Called when the timer fires. {@code active} says whether anything happened since
+     * the previous wakeup; idle wakeups double the backoff, activity resets it.
+     */
+    public void onWakeup(long now, boolean active) {
+        if (!running || !screenOn) {
+            return;
+        }
+        wakeups++;
+        if (stats != null) {
+            stats.countWakeup();
+        }
+        backoff = active ? 1 : Math.min(backoff * 2, MAX_BACKOFF_FACTOR);
+        runDue(now);
+        reschedule(now);
+    }
+
+    public void setScreenOn(boolean on, long now) {
+        if (screenOn == on) {
+            return;
+        }
+        screenOn = on;
+        if (!running) {
+            return;
+        }
+        if (!on) {
+            timer.cancel();
+            screenOffSkips++;
+            return;
+        }
+        // Someone is using the device again
+        backoff = 1;
+        runDue(now);
+        reschedule(now);
+    }
+
+    private void runDue(long now) {
+        for (Task task : tasks) {
+            if (task.nextDue - task.intervalMs / COALESCE_DIVISOR > now) {
+                continue;
+            }
+            try {
+                task.runnable.run();
+                task.runs++;
+            } catch (RuntimeException e) {
+                // One broken task must not starve the others
+                task.failures++;
+            }
+            task.nextDue = now + task.intervalMs * backoff;
+        }
+    }
+
+    private void reschedule(long now) {
+        if (tasks.isEmpty() || !screenOn) {
+            return;
+        }
+        long earliest = Long.MAX_VALUE;
+        for (Task task : tasks) {
+            earliest = Math.min(earliest, task.nextDue);
+        }
+        timer.schedule(Math.max(0, earliest - now));
+    }
+
+    public long wakeupCount() {
+        return wakeups;
+    }
+
+    /** Times the screen went off with wakeups pending, each cancelling them until it came back on. */
+    public long screenOffSkipCount() {
+        return screenOffSkips;
+    }
+
+    public int backoffFactor() {
+        return backoff;
+    }
+
+    public void dump(PrintWriter writer) {
+        writer.println("Maintenance: wakeups=" + wakeups + " screenOffSkips=" + screenOffSkips
+                + " backoff=" + backoff + "x screenOn=" + screenOn);
+        for (Task task : tasks) {
+            writer.println("  " + task.name + ": every " + task.intervalMs / 1000 + "s runs=" + task.runs
+                    + " failures=" + task.failures);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Everything the user configures, as one immutable value. Changes are made on a
+ * {@link Builder} from {@link #edit()} and published as a new instance, so a reader
+ * holding a config never sees it change underneath it.
+ */
+public final class MonitorConfig {
+    public static final String DEFAULT_PROFILE = "default";
+    public static final int DEFAULT_ARCHIVE_RETENTION_DAYS = 180;
+    /** {@link #wifiRestoreGraceMs} value that leaves Wi-Fi off until the user turns it on. */
+    public static final long WIFI_RESTORE_OFF = -1;
+    public static final long DEFAULT_WIFI_RESTORE_GRACE_MS = 30_000;
+    public static final int DEFAULT_MAX_WIFI_TOGGLES_PER_MINUTE = 4;
+    public static final MonitorConfig DEFAULTS = new Builder().build();
+
+    public final boolean monitoringEnabled;
+    /** Restricted apps of the active profile. */
+    public final Set<String> restrictedApps;
+    /** Restricted apps per profile, in the order the profiles were added. Never empty. */
+    public final Map<String, Set<String>> profiles;
+    public final String activeProfile;
+    /** Per-app enforcement; apps without an entry use {@link EnforcementStrategy#DEFAULT}. */
+    public final Map<String, EnforcementStrategy> strategies;
+    public final long sessionDebounceMs;
+    public final boolean observeAllEvents;
+    /** Rule text for {@link WeeklySchedule}; empty means restricted at all times. */
+    public final String scheduleRules;
+    /** Whether the service records the window-event stream to an {@link EventTrace}. */
+    public final boolean traceRecording;
+    /** How many days of {@link EventArchive}s to keep. */
+    public final int archiveRetentionDays;
+    /** Rule text for {@link ContentRules}; empty means apps are not restricted by what they show. */
+    public final String contentRules;
+    /** How long after a restricted app leaves before Wi-Fi it turned off comes back, or {@link #WIFI_RESTORE_OFF}. */
+    public final long wifiRestoreGraceMs;
+    /** Cap on Wi-Fi toggles in any minute, both directions; restores wait for room under it. */
+    public final int maxWifiTogglesPerMinute;
+
+    private MonitorConfig(Builder builder) {
+        this.monitoringEnabled = builder.monitoringEnabled;
+        Map<String, Set<String>> profiles = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : builder.profiles.entrySet()) {
+            profiles.put(entry.getKey(), Collections.unmodifiableSet(new HashSet<>(entry.getValue())));
+        }
+        this.profiles = Collections.unmodifiableMap(profiles);
+        this.activeProfile = builder.activeProfile;
+        this.restrictedApps = profiles.get(builder.activeProfile);
+        this.strategies = Collections.unmodifiableMap(new HashMap<>(builder.strategies));
+        this.sessionDebounceMs = builder.sessionDebounceMs;
+        this.observeAllEvents = builder.observeAllEvents;
+        this.scheduleRules = builder.scheduleRules;
+        this.traceRecording = builder.traceRecording;
+        this.archiveRetentionDays = builder.archiveRetentionDays;
+        this.contentRules = builder.contentRules;
+        this.wifiRestoreGraceMs = builder.wifiRestoreGraceMs;
+        this.maxWifiTogglesPerMinute = builder.maxWifiTogglesPerMinute;
+    }
+
+    public Builder edit() {
+        return new Builder(this);
+    }
+
+    public static final class Builder {
+        private boolean monitoringEnabled = true;
+        private final Map<String, Set<String>> profiles = new LinkedHashMap<>();
+        private String activeProfile = DEFAULT_PROFILE;
+        // The active profile's set in profiles
+        private Set<String> restrictedApps = new HashSet<>();
+        private final Map<String, EnforcementStrategy> strategies = new HashMap<>();
+        private long sessionDebounceMs = PolicySnapshot.DEFAULT_DEBOUNCE_MS;
+        private boolean observeAllEvents;
+        private String scheduleRules = "";
+        private boolean traceRecording;
+        private int archiveRetentionDays = DEFAULT_ARCHIVE_RETENTION_DAYS;
+        private String contentRules = "";
+        private long wifiRestoreGraceMs = DEFAULT_WIFI_RESTORE_GRACE_MS;
+        private int maxWifiTogglesPerMinute = DEFAULT_MAX_WIFI_TOGGLES_PER_MINUTE;
+
+        public Builder() {
+            profiles.put(DEFAULT_PROFILE, restrictedApps);
+        }
+
+        private Builder(MonitorConfig config) {
+            monitoringEnabled = config.monitoringEnabled;
+            for (Map.Entry<String, Set<String>> entry : config.profiles.entrySet()) {
+                profiles.put(entry.getKey(), new HashSet<>(entry.getValue()));
+            }
+            activeProfile = config.activeProfile;
+            restrictedApps = profiles.get(activeProfile);
+            strategies.putAll(config.strategies);
+            sessionDebounceMs = config.sessionDebounceMs;
+            observeAllEvents = config.observeAllEvents;
+            scheduleRules = config.scheduleRules;
+            traceRecording = config.traceRecording;
+            archiveRetentionDays = config.archiveRetentionDays;
+            contentRules = config.contentRules;
+            wifiRestoreGraceMs = config.wifiRestoreGraceMs;
+            maxWifiTogglesPerMinute = config.maxWifiTogglesPerMinute;
+        }
+
+        public Builder setMonitoringEnabled(boolean monitoringEnabled) {
+            this.monitoringEnabled = monitoringEnabled;
+            return this;
+        }
+
+        /** Adds an empty profile unless one by that name exists. */
+        public Builder addProfile(String name) {
+            if (!profiles.containsKey(name)) {
+                profiles.put(name, new HashSet<String>());
+            }
+            return this;
+        }
+
+        /** Removing the active profile activates the first remaining one; the last cannot be removed. */
+        public Builder removeProfile(String name) {
+            if (!profiles.containsKey(name)) {
+                return this;
+            }
+            if (profiles.size() == 1) {
+                throw new IllegalArgumentException("Cannot remove the only profile");
+            }
+            profiles.remove(name);
+            if (name.equals(activeProfile)) {
+                setActiveProfile(profiles.keySet().iterator().next());
+            }
+            return this;
+        }
+
+        public String activeProfile() {
+            return activeProfile;
+        }
+
+        public boolean hasProfile(String name) {
+            return profiles.containsKey(name);
+        }
+
+        /** The restricted-app methods below act on the active profile. */
+        public Builder setActiveProfile(String name) {
+            Set<String> apps = profiles.get(name);
+            if (apps == null) {
+                throw new IllegalArgumentException("No profile named " + name);
+            }
+            activeProfile = name;
+            restrictedApps = apps;
+            return this;
+        }
+
+        public Builder setRestrictedApps(Set<String> packageNames) {
+            restrictedApps.clear();
+            restrictedApps.addAll(packageNames);
+            return this;
+        }
+
+        public Builder addRestrictedApp(String packageName) {
+            restrictedApps.add(packageName);
+            return this;
+        }
+
+        public Builder removeRestrictedApp(String packageName) {
+            restrictedApps.remove(packageName);
+            return this;
+        }
+
+        /** A null strategy removes the entry. */
+        public Builder setStrategy(String packageName, EnforcementStrategy strategy) {
+            if (strategy == null) {
+                strategies.remove(packageName);
+            } else {
+                strategies.put(packageName, strategy);
+            }
+            return this;
+        }
+
+        public Builder setSessionDebounceMs(long sessionDebounceMs) {
+            this.sessionDebounceMs = sessionDebounceMs;
+            return this;
+        }
+
+        public Builder setObserveAllEvents(boolean observeAllEvents) {
+            this.observeAllEvents = observeAllEvents;
+            return this;
+        }
+
+        public Builder setScheduleRules(String scheduleRules) {
+            this.scheduleRules = scheduleRules != null ? scheduleRules : "";
+            return this;
+        }
+
+        public Builder setTraceRecording(boolean traceRecording) {
+            this.traceRecording = traceRecording;
+            return this;
+        }
+
+        public Builder setArchiveRetentionDays(int archiveRetentionDays) {
+            this.archiveRetentionDays = Math.max(1, archiveRetentionDays);
+            return this;
+        }
+
+        public Builder setContentRules(String contentRules) {
+            this.contentRules = contentRules != null ? contentRules : "";
+            return this;
+        }
+
+        /** Negative values turn restoring off. */
+        public Builder setWifiRestoreGraceMs(long wifiRestoreGraceMs) {
+            this.wifiRestoreGraceMs = wifiRestoreGraceMs < 0 ? WIFI_RESTORE_OFF : wifiRestoreGraceMs;
+            return this;
+        }
+
+        public Builder setMaxWifiTogglesPerMinute(int maxWifiTogglesPerMinute) {
+            this.maxWifiTogglesPerMinute = Math.max(1, maxWifiTogglesPerMinute);
+            return this;
+        }
+
+        public MonitorConfig build() {
+            return new MonitorConfig(this);
+        }
+    }
+}
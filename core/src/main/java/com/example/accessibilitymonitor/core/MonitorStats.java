@@ -0,0 +1,85 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and per-stage latency histograms for the event path, from the accessibility
+ * callback to the enforcement action. Every method is lock-free and safe to call from any
+ * thread; one instance lives for the whole process.
+ */
+public final class MonitorStats {
+    /** Time spent in the accessibility callback before it returns. */
+    public final LatencyHistogram dispatch = new LatencyHistogram();
+    /** Time an event waits in the ring before the worker picks it up. */
+    public final LatencyHistogram queue = new LatencyHistogram();
+    /** Worker time per event: session tracking, the policy check and journaling. */
+    public final LatencyHistogram handle = new LatencyHistogram();
+    /** Time spent in {@link EnforcementAction#apply}, e.g. turning Wi-Fi off. */
+    public final LatencyHistogram action = new LatencyHistogram();
+    /** Time spent walking a window for {@link ContentRules} keywords, on the accessibility thread. */
+    public final LatencyHistogram contentScan = new LatencyHistogram();
+
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong matches = new AtomicLong();
+    private final AtomicLong drops = new AtomicLong();
+    private final AtomicLong enforcements = new AtomicLong();
+    private final AtomicLong wakeups = new AtomicLong();
+
+    public void countEvent() {
+        events.incrementAndGet();
+    }
+
+    /** A foreground session of a restricted app or restricted content, while the schedule is active. */
+    public void countMatch() {
+        matches.incrementAndGet();
+    }
+
+    /** An event lost because the ring was full. */
+    public void countDrop() {
+        drops.incrementAndGet();
+    }
+
+    /** An enforcement action that completed. */
+    public void countEnforcement() {
+        enforcements.incrementAndGet();
+    }
+
+    /** A maintenance wakeup of the service. */
+    public void countWakeup() {
+        wakeups.incrementAndGet();
+    }
+
+    public long eventCount() {
+        return events.get();
+    }
+
+    public long matchCount() {
+        return matches.get();
+    }
+
+    public long dropCount() {
+        return drops.get();
+    }
+
+    public long enforcementCount() {
+        return enforcements.get();
+    }
+
+    public long wakeupCount() {
+        return wakeups.get();
+    }
+
+    public void dump(PrintWriter writer) {
+        writer.println("Monitor stats since " + new Date(startedAt) + ":");
+        writer.println("  events=" + eventCount() + " matches=" + matchCount() + " drops=" + dropCount()
+                + " enforcements=" + enforcementCount() + " wakeups=" + wakeupCount());
+        writer.println("  dispatch: " + dispatch.summary());
+        writer.println("  queue:    " + queue.summary());
+        writer.println("  handle:   " + handle.summary());
+        writer.println("  action:   " + action.summary());
+        writer.println("  content:  " + contentScan.summary());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps package names to dense integer ids. When backed by a file, every newly interned
+ * name is appended to it so ids stay stable across process restarts. A torn trailing
+ * entry left by a crash is cut off on open, so later appends start on an entry boundary.
+ */
+public final class PackageDictionary {
+    public static final int NO_ID = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final File file;
+
+    public PackageDictionary() {
+        this.file = null;
+    }
+
+    private PackageDictionary(File file) {
+        this.file = file;
+    }
+
+    public static PackageDictionary open(File file) throws IOException {
+        PackageDictionary dictionary = new PackageDictionary(file);
+        if (!file.exists()) {
+            return dictionary;
+        }
+        // Small enough to read whole: a few dozen bytes per installed app
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int complete = 0;
+        while (complete < bytes.length) {
+            try {
+                dictionary.add(in.readUTF());
+            } catch (EOFException | UTFDataFormatException e) {
+                break;
+            }
+            complete = bytes.length - in.available();
+        }
+        if (complete < bytes.length) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(complete);
+            }
+        }
+        return dictionary;
+    }
+
+    public synchronized int intern(String name) throws IOException {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (file != null) {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true))) {
+                out.writeUTF(name);
+            }
+        }
+        return add(name);
+    }
+
+    public synchronized int idOf(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : NO_ID;
+    }
+
+    public synchronized String nameOf(int id) {
+        return id >= 0 && id < names.size() ? names.get(id) : null;
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    private int add(String name) {
+        int id = names.size();
+        names.add(name);
+        ids.put(name, id);
+        return id;
+    }
+}
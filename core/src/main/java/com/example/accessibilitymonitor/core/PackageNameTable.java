@@ -0,0 +1,69 @@
+package com.example.accessibilitymonitor.core;
+
+/**
+ * One canonical {@link String} per package name seen on the event path, looked up by
+ * {@link CharSequence} so an event's name is compared in place instead of copied. A name
+ * is converted to a String the first time it is seen and never again, so in steady state
+ * resolving the package of an event allocates nothing, and everything downstream (the
+ * ring, policy lookups, session tracking) works on the same instance with its hash cached.
+ * Open addressing over a fixed table; once {@code maxNames} names are held, further new
+ * names are copied per call rather than stored. Not thread-safe.
+ */
+public final class PackageNameTable {
+    private final String[] names;
+    private final int[] hashes;
+    private final int maxNames;
+    private int size;
+    private long overflows;
+
+    public PackageNameTable(int maxNames) {
+        // At most half full, so probe runs stay short
+        int capacity = Integer.highestOneBit(Math.max(2, maxNames) * 2 - 1) << 1;
+        this.names = new String[capacity];
+        this.hashes = new int[capacity];
+        this.maxNames = maxNames;
+    }
+
+    /** The canonical instance for {@code name}; null becomes the empty string. */
+    public String intern(CharSequence name) {
+        if (name == null) {
+            return "";
+        }
+        int hash = hash(name);
+        int mask = names.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            String candidate = names[i];
+            if (candidate == null) {
+                String value = name.toString();
+                if (size >= maxNames) {
+                    overflows++;
+                    return value;
+                }
+                names[i] = value;
+                hashes[i] = hash;
+                size++;
+                return value;
+            }
+            if (hashes[i] == hash && candidate.contentEquals(name)) {
+                return candidate;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Lookups of a new name after the table filled up, each of which allocated a copy. */
+    public long overflowCount() {
+        return overflows;
+    }
+
+    private static int hash(CharSequence name) {
+        int h = 0;
+        for (int i = 0, n = name.length(); i < n; i++) {
+            h = 31 * h + name.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+}
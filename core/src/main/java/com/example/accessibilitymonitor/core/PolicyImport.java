@@ -0,0 +1,139 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the entries of an imported document and compares them with the current config.
+ * The import is applied as a single {@link ConfigStore#update}, so the service sees it as one
+ * policy change however many apps it touches.
+ */
+public final class PolicyImport implements PolicyTransfer.Visitor {
+    /** Rejected entries beyond this are counted but not kept. */
+    public static final int MAX_REPORTED_REJECTIONS = 20;
+
+    private final Map<String, EnforcementStrategy> entries = new LinkedHashMap<>();
+    private final List<String> rejections = new ArrayList<>();
+    private int rejectedCount;
+    private int duplicateCount;
+
+    @Override
+    public void onEntry(String packageName, EnforcementStrategy strategy) {
+        if (entries.containsKey(packageName)) {
+            duplicateCount++;
+            if (strategy == null) {
+                return;
+            }
+        }
+        entries.put(packageName, strategy);
+    }
+
+    @Override
+    public void onRejected(String where, String reason) {
+        rejectedCount++;
+        if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+            rejections.add(where + ": " + reason);
+        }
+    }
+
+    public int entryCount() {
+        return entries.size();
+    }
+
+    public int rejectedCount() {
+        return rejectedCount;
+    }
+
+    /** The first {@link #MAX_REPORTED_REJECTIONS} rejected entries, as {@code "where: reason"}. */
+    public List<String> rejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    public int duplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * Merging only adds apps and sets the actions the document names. Replacing also removes
+     * restricted apps missing from the document and resets actions it leaves unspecified.
+     * {@code installed} may be null to skip the installed check.
+     */
+    public Diff diff(MonitorConfig current, Set<String> installed, boolean replace) {
+        Diff diff = new Diff(replace);
+        for (Map.Entry<String, EnforcementStrategy> entry : entries.entrySet()) {
+            String packageName = entry.getKey();
+            EnforcementStrategy imported = entry.getValue();
+            EnforcementStrategy existing = current.strategies.get(packageName);
+            boolean wasRestricted = current.restrictedApps.contains(packageName);
+            if (!wasRestricted) {
+                diff.added.add(packageName);
+            }
+            if ((imported != null || replace) && imported != existing) {
+                diff.strategyChanges.put(packageName, imported);
+            } else if (wasRestricted) {
+                diff.unchangedCount++;
+            }
+            if (installed != null && !installed.contains(packageName)) {
+                diff.notInstalled.add(packageName);
+            }
+        }
+        if (replace) {
+            for (String packageName : current.restrictedApps) {
+                if (!entries.containsKey(packageName)) {
+                    diff.removed.add(packageName);
+                }
+            }
+        }
+        Collections.sort(diff.added);
+        Collections.sort(diff.removed);
+        Collections.sort(diff.notInstalled);
+        return diff;
+    }
+
+    /**
+     * Diffs against the builder's own state and applies the result, for use inside
+     * {@link ConfigStore#update} so edits made after {@link #diff} was previewed are kept.
+     */
+    public Diff applyTo(MonitorConfig.Builder builder, boolean replace) {
+        Diff diff = diff(builder.build(), null, replace);
+        diff.applyTo(builder);
+        return diff;
+    }
+
+    public static final class Diff {
+        public final boolean replace;
+        public final List<String> added = new ArrayList<>();
+        public final List<String> removed = new ArrayList<>();
+        /** New action per app; null resets the app to {@link EnforcementStrategy#DEFAULT}. */
+        public final Map<String, EnforcementStrategy> strategyChanges = new LinkedHashMap<>();
+        /** Imported apps that are not in the installed catalog; they are still restricted. */
+        public final List<String> notInstalled = new ArrayList<>();
+        public int unchangedCount;
+
+        private Diff(boolean replace) {
+            this.replace = replace;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && strategyChanges.isEmpty();
+        }
+
+        /** Suitable as a {@link ConfigStore.Editor}. */
+        public void applyTo(MonitorConfig.Builder builder) {
+            for (String packageName : added) {
+                builder.addRestrictedApp(packageName);
+            }
+            for (String packageName : removed) {
+                builder.removeRestrictedApp(packageName);
+                builder.setStrategy(packageName, null);
+            }
+            for (Map.Entry<String, EnforcementStrategy> change : strategyChanges.entrySet()) {
+                builder.setStrategy(change.getKey(), change.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable view of the monitoring policy. A new snapshot is compiled whenever the
+ * stored policy changes, so readers on the event path never touch SharedPreferences.
+ */
+public final class PolicySnapshot {
+    public static final long DEFAULT_DEBOUNCE_MS = 2000;
+    public static final PolicySnapshot EMPTY = new PolicySnapshot(false, ProfileSet.EMPTY,
+            ProfileSet.EMPTY.profile(MonitorConfig.DEFAULT_PROFILE), DEFAULT_DEBOUNCE_MS, true,
+            Collections.<String, EnforcementStrategy>emptyMap(), WeeklySchedule.ALWAYS, ContentRules.NONE);
+
+    public final boolean monitoringEnabled;
+    /** How long a package may leave the foreground and still count as the same session. */
+    public final long debounceMs;
+    /** Whether the service should receive events from every package, not only restricted ones. */
+    public final boolean observeAllEvents;
+    private final ProfileSet profiles;
+    private final ProfileSet.Profile activeProfile;
+    private final Map<String, EnforcementStrategy> strategies;
+    private final WeeklySchedule schedule;
+    private final ContentRules contentRules;
+
+    private PolicySnapshot(boolean monitoringEnabled, ProfileSet profiles, ProfileSet.Profile activeProfile, long debounceMs,
+                           boolean observeAllEvents, Map<String, EnforcementStrategy> strategies, WeeklySchedule schedule,
+                           ContentRules contentRules) {
+        this.monitoringEnabled = monitoringEnabled;
+        this.profiles = profiles;
+        this.activeProfile = activeProfile;
+        this.debounceMs = debounceMs;
+        this.observeAllEvents = observeAllEvents;
+        this.strategies = strategies;
+        this.schedule = schedule;
+        this.contentRules = contentRules;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** The same policy with another profile active; the compiled profiles are shared, not rebuilt. */
+    public PolicySnapshot withActiveProfile(String name) {
+        ProfileSet.Profile profile = profiles.profile(name);
+        if (profile == null) {
+            throw new IllegalArgumentException("No profile named " + name);
+        }
+        return new PolicySnapshot(monitoringEnabled, profiles, profile, debounceMs, observeAllEvents, strategies, schedule,
+                contentRules);
+    }
+
+    public boolean isRestricted(String packageName) {
+        return monitoringEnabled && activeProfile.contains(packageName);
+    }
+
+    /** Like {@link #isRestricted(String)}, but only while the schedule is active at {@code timestamp}. */
+    public boolean isRestricted(String packageName, long timestamp) {
+        return isRestricted(packageName) && schedule.isActive(timestamp);
+    }
+
+    /** Whether monitoring is on and the schedule is active at {@code timestamp}, whatever the app. */
+    public boolean isEnforcing(long timestamp) {
+        return monitoringEnabled && schedule.isActive(timestamp);
+    }
+
+    public WeeklySchedule schedule() {
+        return schedule;
+    }
+
+    public ContentRules contentRules() {
+        return contentRules;
+    }
+
+    public ProfileSet profiles() {
+        return profiles;
+    }
+
+    public String activeProfile() {
+        return activeProfile.name;
+    }
+
+    public EnforcementStrategy strategyFor(String packageName) {
+        EnforcementStrategy strategy = strategies.get(packageName);
+        return strategy != null ? strategy : EnforcementStrategy.DEFAULT;
+    }
+
+    public String[] eventScope(String ownPackage) {
+        return eventScope(ownPackage, Collections.<String>emptySet());
+    }
+
+    /**
+     * Packages the system should deliver events for, sorted, or null to receive events from
+     * every package. The own package is always included so the filter is never empty,
+     * which the system would treat as "all packages". {@code exitPackages} are the ones
+     * users pass through when leaving an app, such as the launcher and System UI; without
+     * their windows a restricted app that was left and reopened would look like one
+     * continuous session and not be enforced again.
+     */
+    public String[] eventScope(String ownPackage, Collection<String> exitPackages) {
+        if (observeAllEvents || (monitoringEnabled && contentRules.coversAllPackages())) {
+            return null;
+        }
+        Set<String> scope = new TreeSet<>();
+        if (monitoringEnabled) {
+            Collections.addAll(scope, activeProfile.packageNames());
+            scope.addAll(contentRules.packages());
+            scope.addAll(exitPackages);
+        }
+        scope.add(ownPackage);
+        return scope.toArray(new String[0]);
+    }
+
+    public int restrictedCount() {
+        return activeProfile.size();
+    }
+
+    /**
+     * Collects the parts of a policy; unset parts default to a monitoring-enabled policy that
+     * restricts nothing, always, with the default debounce and no content rules.
+     */
+    public static final class Builder {
+        private boolean monitoringEnabled = true;
+        private ProfileSet profiles = ProfileSet.EMPTY;
+        private String activeProfile = MonitorConfig.DEFAULT_PROFILE;
+        private long debounceMs = DEFAULT_DEBOUNCE_MS;
+        private boolean observeAllEvents;
+        private Map<String, EnforcementStrategy> strategies;
+        private WeeklySchedule schedule = WeeklySchedule.ALWAYS;
+        private ContentRules contentRules = ContentRules.NONE;
+
+        private Builder() {
+        }
+
+        public Builder setMonitoringEnabled(boolean monitoringEnabled) {
+            this.monitoringEnabled = monitoringEnabled;
+            return this;
+        }
+
+        /** Restricts {@code restrictedApps} through a single default profile. */
+        public Builder setRestrictedApps(Set<String> restrictedApps) {
+            return setProfiles(ProfileSet.compile(Collections.singletonMap(MonitorConfig.DEFAULT_PROFILE,
+                    restrictedApps != null ? restrictedApps : Collections.<String>emptySet())),
+                    MonitorConfig.DEFAULT_PROFILE);
+        }
+
+        /** Restricts the apps of {@code activeProfile}, which must be one of {@code profiles}. */
+        public Builder setProfiles(ProfileSet profiles, String activeProfile) {
+            this.profiles = profiles;
+            this.activeProfile = activeProfile;
+            return this;
+        }
+
+        public Builder setDebounceMs(long debounceMs) {
+            this.debounceMs = debounceMs;
+            return this;
+        }
+
+        public Builder setObserveAllEvents(boolean observeAllEvents) {
+            this.observeAllEvents = observeAllEvents;
+            return this;
+        }
+
+        /** Copied on {@link #build}; may be null. */
+        public Builder setStrategies(Map<String, EnforcementStrategy> strategies) {
+            this.strategies = strategies;
+            return this;
+        }
+
+        public Builder setSchedule(WeeklySchedule schedule) {
+            this.schedule = schedule != null ? schedule : WeeklySchedule.ALWAYS;
+            return this;
+        }
+
+        /** Also restricts apps while they show a keyword from {@code contentRules}. */
+        public Builder setContentRules(ContentRules contentRules) {
+            this.contentRules = contentRules != null ? contentRules : ContentRules.NONE;
+            return this;
+        }
+
+        public PolicySnapshot build() {
+            ProfileSet.Profile active = profiles.profile(activeProfile);
+            if (active == null) {
+                throw new IllegalArgumentException("No profile named " + activeProfile);
+            }
+            Map<String, EnforcementStrategy> strategyMap = strategies == null || strategies.isEmpty()
+                    ? Collections.<String, EnforcementStrategy>emptyMap()
+                    : Collections.unmodifiableMap(new HashMap<>(strategies));
+            return new PolicySnapshot(monitoringEnabled, profiles, active, debounceMs, observeAllEvents, strategyMap,
+                    schedule, contentRules);
+        }
+    }
+}
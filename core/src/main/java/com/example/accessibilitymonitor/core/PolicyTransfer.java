@@ -0,0 +1,173 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads and writes the restricted-app list as text: one {@code package} or
+ * {@code package=action} per line, {@code #} starts a comment. Other formats map their
+ * entries through {@link #visitEntry}, so every format validates entries the same way.
+ * <p>
+ * The reader is consumed a character at a time and entries are handed to the visitor as they
+ * are parsed, so nothing proportional to the document size is held in memory. Entries that do
+ * not validate are reported and skipped.
+ */
+public final class PolicyTransfer {
+    private static final int MAX_LINE_LENGTH = 1024;
+
+    public interface Visitor {
+        /** {@code strategy} is null when the entry does not name one. */
+        void onEntry(String packageName, EnforcementStrategy strategy);
+
+        /** {@code where} is {@code "Line n"} or the like, depending on the format. */
+        void onRejected(String where, String reason);
+    }
+
+    private PolicyTransfer() {
+    }
+
+    public static void readLines(Reader reader, Visitor visitor) throws IOException {
+        Source source = new Source(reader instanceof BufferedReader ? reader : new BufferedReader(reader));
+        if (source.peek() == '\uFEFF') {
+            source.read();
+        }
+        StringBuilder line = new StringBuilder();
+        while (source.peek() != -1) {
+            int lineNumber = source.line;
+            line.setLength(0);
+            boolean tooLong = false;
+            int c;
+            while ((c = source.read()) != -1 && c != '\n') {
+                if (line.length() < MAX_LINE_LENGTH) {
+                    line.append((char) c);
+                } else {
+                    tooLong = true;
+                }
+            }
+            String where = "Line " + lineNumber;
+            if (tooLong) {
+                visitor.onRejected(where, "line too long");
+                continue;
+            }
+            int comment = line.indexOf("#");
+            if (comment >= 0) {
+                line.setLength(comment);
+            }
+            String text = line.toString().trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            int separator = text.indexOf('=');
+            if (separator < 0) {
+                visitEntry(text, null, where, visitor);
+            } else {
+                visitEntry(text.substring(0, separator).trim(), text.substring(separator + 1).trim(), where, visitor);
+            }
+        }
+    }
+
+    /** Restricted apps in package order, with the action for apps that have their own. */
+    public static void writeLines(Writer out, MonitorConfig config) throws IOException {
+        out.write("# Restricted apps, one per line: package or package=action\n");
+        for (String packageName : exportOrder(config)) {
+            out.write(packageName);
+            EnforcementStrategy strategy = config.strategies.get(packageName);
+            if (strategy != null) {
+                out.write('=');
+                out.write(strategy.key);
+            }
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /** Dot-separated segments, at least two, each a letter followed by letters, digits or '_'. */
+    public static boolean isValidPackageName(CharSequence name) {
+        int segments = 0;
+        boolean segmentStart = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '.') {
+                if (segmentStart) {
+                    return false;
+                }
+                segmentStart = true;
+            } else if (segmentStart) {
+                if (!isAsciiLetter(c)) {
+                    return false;
+                }
+                segments++;
+                segmentStart = false;
+            } else if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '_') {
+                return false;
+            }
+        }
+        return segments >= 2 && !segmentStart;
+    }
+
+    /** Validates one entry and hands it to the visitor, or reports it as rejected at {@code where}. */
+    public static void visitEntry(String packageName, String strategyKey, String where, Visitor visitor) {
+        if (!isValidPackageName(packageName)) {
+            visitor.onRejected(where, "not a package name: " + abbreviate(packageName));
+            return;
+        }
+        EnforcementStrategy strategy = null;
+        if (strategyKey != null && !strategyKey.isEmpty()) {
+            strategy = EnforcementStrategy.findByKey(strategyKey);
+            if (strategy == null) {
+                visitor.onRejected(where, "unknown action \"" + abbreviate(strategyKey) + "\" for " + packageName);
+                return;
+            }
+        }
+        visitor.onEntry(packageName, strategy);
+    }
+
+    private static boolean isAsciiLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static String abbreviate(String value) {
+        return value.length() <= 64 ? value : value.substring(0, 64) + "...";
+    }
+
+    /** The restricted apps in the order every format writes them: by package name. */
+    public static List<String> exportOrder(MonitorConfig config) {
+        List<String> packages = new ArrayList<>(config.restrictedApps);
+        Collections.sort(packages);
+        return packages;
+    }
+
+    /** One character of lookahead over the reader, counting lines as they are consumed. */
+    private static final class Source {
+        private static final int NONE = -2;
+
+        private final Reader in;
+        private int next = NONE;
+        int line = 1;
+
+        Source(Reader in) {
+            this.in = in;
+        }
+
+        int peek() throws IOException {
+            if (next == NONE) {
+                next = in.read();
+            }
+            return next;
+        }
+
+        int read() throws IOException {
+            int c = peek();
+            next = NONE;
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The restricted-app lists of every profile, compiled together. Package names from all
+ * profiles are interned once to dense ids and each profile is a {@link BitSet} over those
+ * ids, so a membership check is one hash lookup and a bit test, another profile costs one
+ * bit per known package, and switching profiles reuses the compiled sets. Immutable.
+ */
+public final class ProfileSet {
+    public static final ProfileSet EMPTY = compile(Collections.singletonMap(MonitorConfig.DEFAULT_PROFILE,
+            Collections.<String>emptySet()));
+
+    private final Map<String, Integer> ids;
+    private final String[] names;
+    private final Map<String, Profile> profiles;
+
+    private ProfileSet(Map<String, Integer> ids, String[] names, Map<String, ? extends Set<String>> source) {
+        this.ids = ids;
+        this.names = names;
+        Map<String, Profile> compiled = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends Set<String>> entry : source.entrySet()) {
+            BitSet members = new BitSet(names.length);
+            for (String packageName : entry.getValue()) {
+                members.set(ids.get(packageName));
+            }
+            compiled.put(entry.getKey(), new Profile(entry.getKey(), members));
+        }
+        this.profiles = Collections.unmodifiableMap(compiled);
+    }
+
+    public static ProfileSet compile(Map<String, ? extends Set<String>> profiles) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (Set<String> members : profiles.values()) {
+            for (String packageName : members) {
+                if (!ids.containsKey(packageName)) {
+                    ids.put(packageName, names.size());
+                    names.add(packageName);
+                }
+            }
+        }
+        return new ProfileSet(ids, names.toArray(new String[0]), profiles);
+    }
+
+    /** Returns null when there is no profile by that name. */
+    public Profile profile(String name) {
+        return profiles.get(name);
+    }
+
+    /** Profile names in the order they were compiled. */
+    public Set<String> profileNames() {
+        return profiles.keySet();
+    }
+
+    /** Returns {@link PackageDictionary#NO_ID} for a package in no profile. */
+    public int idOf(String packageName) {
+        Integer id = ids.get(packageName);
+        return id != null ? id : PackageDictionary.NO_ID;
+    }
+
+    public String nameOf(int id) {
+        return id >= 0 && id < names.length ? names[id] : null;
+    }
+
+    /** Distinct packages across all profiles. */
+    public int packageCount() {
+        return names.length;
+    }
+
+    /** Whether compiling {@code source} would give the same sets, checked without allocating. */
+    public boolean isCompiledFrom(Map<String, ? extends Set<String>> source) {
+        if (source.size() != profiles.size()) {
+            return false;
+        }
+        for (Map.Entry<String, ? extends Set<String>> entry : source.entrySet()) {
+            Profile profile = profiles.get(entry.getKey());
+            if (profile == null || profile.size != entry.getValue().size()) {
+                return false;
+            }
+            for (String packageName : entry.getValue()) {
+                if (!profile.contains(packageName)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public final class Profile {
+        public final String name;
+        private final BitSet members;
+        private final int size;
+
+        private Profile(String name, BitSet members) {
+            this.name = name;
+            this.members = members;
+            this.size = members.cardinality();
+        }
+
+        public boolean contains(String packageName) {
+            return contains(idOf(packageName));
+        }
+
+        public boolean contains(int id) {
+            return id >= 0 && members.get(id);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public String[] packageNames() {
+            String[] result = new String[size];
+            int i = 0;
+            for (int id = members.nextSetBit(0); id >= 0; id = members.nextSetBit(id + 1)) {
+                result[i++] = names[id];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * What the monitor is doing right now, for a live status view in the same process: whether
+ * it is connected and enforcing, the current foreground package and the last few
+ * enforcement decisions, kept in a fixed ring. Writers push changes as they happen and
+ * listeners are told on the writing thread, so a view never has to poll or re-query system
+ * settings; it takes a {@link #snapshot()} when told. Nothing is allocated while no one is
+ * listening and the foreground has not changed. Thread-safe.
+ */
+public final class StatusFeed {
+    public interface Listener {
+        /** Called on the thread that made the change; keep it short. */
+        void onStatusChanged();
+    }
+
+    public static final class Decision {
+        public final long timestamp;
+        public final String packageName;
+        /** One of the {@link JournalRecord} actions. */
+        public final int action;
+
+        Decision(long timestamp, String packageName, int action) {
+            this.timestamp = timestamp;
+            this.packageName = packageName;
+            this.action = action;
+        }
+    }
+
+    public static final class Snapshot {
+        /** Increases with every change, so a view can skip redundant redraws. */
+        public final long version;
+        public final boolean connected;
+        public final boolean monitoringEnabled;
+        public final String activeProfile;
+        /** Null until the first foreground change is seen. */
+        public final String foregroundPackage;
+        public final long foregroundSince;
+        /** Newest first. */
+        public final List<Decision> decisions;
+
+        Snapshot(long version, boolean connected, boolean monitoringEnabled, String activeProfile,
+                 String foregroundPackage, long foregroundSince, List<Decision> decisions) {
+            this.version = version;
+            this.connected = connected;
+            this.monitoringEnabled = monitoringEnabled;
+            this.activeProfile = activeProfile;
+            this.foregroundPackage = foregroundPackage;
+            this.foregroundSince = foregroundSince;
+            this.decisions = decisions;
+        }
+    }
+
+    private final long[] decisionTimes;
+    private final String[] decisionPackages;
+    private final int[] decisionActions;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Oldest decision at decisionHead
+    private int decisionHead;
+    private int decisionCount;
+    private long version;
+    private boolean connected;
+    private boolean monitoringEnabled;
+    private String activeProfile = "";
+    private String foregroundPackage;
+    private long foregroundSince;
+
+    public StatusFeed(int maxDecisions) {
+        this.decisionTimes = new long[maxDecisions];
+        this.decisionPackages = new String[maxDecisions];
+        this.decisionActions = new int[maxDecisions];
+    }
+
+    public void setState(boolean connected, boolean monitoringEnabled, String activeProfile) {
+        synchronized (this) {
+            if (connected == this.connected && monitoringEnabled == this.monitoringEnabled
+                    && activeProfile.equals(this.activeProfile)) {
+                return;
+            }
+            this.connected = connected;
+            this.monitoringEnabled = monitoringEnabled;
+            this.activeProfile = activeProfile;
+            version++;
+        }
+        notifyListeners();
+    }
+
+    public void onForeground(String packageName, long timestamp) {
+        synchronized (this) {
+            if (packageName.equals(foregroundPackage)) {
+                return;
+            }
+            foregroundPackage = packageName;
+            foregroundSince = timestamp;
+            version++;
+        }
+        notifyListeners();
+    }
+
+    /** Records an enforcement decision, dropping the oldest once the ring is full. */
+    public void onDecision(String packageName, long timestamp, int action) {
+        synchronized (this) {
+            int slot;
+            if (decisionCount < decisionTimes.length) {
+                slot = (decisionHead + decisionCount++) % decisionTimes.length;
+            } else {
+                slot = decisionHead;
+                decisionHead = (decisionHead + 1) % decisionTimes.length;
+            }
+            decisionTimes[slot] = timestamp;
+            decisionPackages[slot] = packageName;
+            decisionActions[slot] = action;
+            version++;
+        }
+        notifyListeners();
+    }
+
+    public synchronized Snapshot snapshot() {
+        List<Decision> decisions = new ArrayList<>(decisionCount);
+        for (int i = decisionCount - 1; i >= 0; i--) {
+            int slot = (decisionHead + i) % decisionTimes.length;
+            decisions.add(new Decision(decisionTimes[slot], decisionPackages[slot], decisionActions[slot]));
+        }
+        return new Snapshot(version, connected, monitoringEnabled, activeProfile, foregroundPackage, foregroundSince,
+                Collections.unmodifiableList(decisions));
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        // Iterating allocates, so skip it while no view is open
+        if (listeners.isEmpty()) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.onStatusChanged();
+        }
+    }
+}
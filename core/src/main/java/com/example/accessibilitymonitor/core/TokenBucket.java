@@ -0,0 +1,38 @@
+package com.example.accessibilitymonitor.core;
+
+/**
+ * Classic token bucket: up to {@code capacity} actions in a burst, refilled at one token
+ * per {@code refillIntervalMs}. Time is passed in by the caller. Not thread-safe.
+ */
+public final class TokenBucket {
+    private final int capacity;
+    private final long refillIntervalMs;
+    private int tokens;
+    private long lastRefill;
+
+    public TokenBucket(int capacity, long refillIntervalMs, long now) {
+        this.capacity = capacity;
+        this.refillIntervalMs = refillIntervalMs;
+        this.tokens = capacity;
+        this.lastRefill = now;
+    }
+
+    public boolean tryAcquire(long now) {
+        refill(now);
+        if (tokens == 0) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed < refillIntervalMs) {
+            return;
+        }
+        long refilled = elapsed / refillIntervalMs;
+        tokens = (int) Math.min(capacity, tokens + refilled);
+        lastRefill = tokens == capacity ? now : lastRefill + refilled * refillIntervalMs;
+    }
+}
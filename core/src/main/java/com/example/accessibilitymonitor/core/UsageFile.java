@@ -0,0 +1,94 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Binary on-disk form of a {@link UsageRollup}: the checkpoint, the sessions open at it and
+ * the daily totals. Writes go to a temp file that is renamed over the old one.
+ */
+public final class UsageFile {
+    private static final int MAGIC = 0x41555347; // "AUSG"
+    private static final int VERSION = 1;
+
+    private final File file;
+
+    public UsageFile(File file) {
+        this.file = file;
+    }
+
+    /** Returns an empty rollup, checkpoint 0, when the file is missing or damaged. */
+    public UsageRollup read(TimeZone zone, int retentionDays) {
+        UsageRollup rollup = new UsageRollup(zone, retentionDays);
+        if (!file.exists()) {
+            return rollup;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return rollup;
+            }
+            long checkpoint = in.readLong();
+            Map<String, Long> openSessions = readTotals(in);
+            Map<Integer, Map<String, Long>> days = new HashMap<>();
+            int dayCount = in.readInt();
+            for (int i = 0; i < dayCount; i++) {
+                int day = in.readInt();
+                days.put(day, readTotals(in));
+            }
+            rollup.restore(checkpoint, openSessions, days);
+        } catch (IOException e) {
+            // Starting over only loses history, the system still has recent events
+        }
+        return rollup;
+    }
+
+    public void write(UsageRollup rollup) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(rollup.checkpoint());
+            writeTotals(out, rollup.openSessions());
+            out.writeInt(rollup.closedDays().size());
+            for (Map.Entry<Integer, Map<String, Long>> day : rollup.closedDays().entrySet()) {
+                out.writeInt(day.getKey());
+                writeTotals(out, day.getValue());
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+
+    private static Map<String, Long> readTotals(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Bad count " + count);
+        }
+        Map<String, Long> totals = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            totals.put(in.readUTF(), in.readLong());
+        }
+        return totals;
+    }
+
+    private static void writeTotals(DataOutputStream out, Map<String, Long> totals) throws IOException {
+        out.writeInt(totals.size());
+        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * Per-app foreground time, summed per local calendar day from a stream of foreground and
+ * background transitions. The stream is consumed in pieces: {@link #checkpoint()} is where
+ * the last piece ended, and sessions still open at that point are carried over to the next
+ * piece, so each event is processed exactly once. Sessions are split at local midnight.
+ * Not thread-safe.
+ */
+public final class UsageRollup {
+    public static final long DAY_MS = 24L * 60 * 60 * 1000;
+    /** Sessions longer than this are assumed to have lost their background event. */
+    public static final long MAX_SESSION_MS = 8L * 60 * 60 * 1000;
+
+    private final TimeZone zone;
+    private final int retentionDays;
+    private long checkpoint;
+    private final Map<String, Long> openSessions = new HashMap<>();
+    private final TreeMap<Integer, Map<String, Long>> days = new TreeMap<>();
+
+    public UsageRollup(TimeZone zone, int retentionDays) {
+        this.zone = zone;
+        this.retentionDays = retentionDays;
+    }
+
+    public void onForeground(String packageName, long timestamp) {
+        if (!openSessions.containsKey(packageName)) {
+            openSessions.put(packageName, timestamp);
+        }
+    }
+
+    public void onBackground(String packageName, long timestamp) {
+        Long start = openSessions.remove(packageName);
+        if (start != null) {
+            add(packageName, start, timestamp);
+        }
+    }
+
+    /** Closes every open session, for screen-off and shutdown. */
+    public void onAllBackground(long timestamp) {
+        for (Map.Entry<String, Long> session : openSessions.entrySet()) {
+            add(session.getKey(), session.getValue(), timestamp);
+        }
+        openSessions.clear();
+    }
+
+    /** Marks everything before {@code timestamp} as consumed and drops days past retention. */
+    public void advanceTo(long timestamp) {
+        checkpoint = Math.max(checkpoint, timestamp);
+        int oldest = dayOf(checkpoint) - retentionDays + 1;
+        days.headMap(oldest).clear();
+        Iterator<Map.Entry<String, Long>> sessions = openSessions.entrySet().iterator();
+        while (sessions.hasNext()) {
+            Map.Entry<String, Long> session = sessions.next();
+            if (checkpoint - session.getValue() > MAX_SESSION_MS) {
+                add(session.getKey(), session.getValue(), session.getValue() + MAX_SESSION_MS);
+                sessions.remove();
+            }
+        }
+    }
+
+    /** End of the last consumed piece of the stream; the next piece starts here. */
+    public long checkpoint() {
+        return checkpoint;
+    }
+
+    /** Local day number, counted from 1970-01-01. */
+    public int dayOf(long timestamp) {
+        return (int) Math.floorDiv(timestamp + zone.getOffset(timestamp), DAY_MS);
+    }
+
+    /**
+     * Foreground time per app on {@code day}, including sessions still open at the
+     * checkpoint as if they ended there.
+     */
+    public Map<String, Long> totalsFor(int day) {
+        Map<String, Long> totals = new HashMap<>();
+        Map<String, Long> closed = days.get(day);
+        if (closed != null) {
+            totals.putAll(closed);
+        }
+        for (Map.Entry<String, Long> session : openSessions.entrySet()) {
+            long start = Math.max(session.getValue(), startOfDay(day));
+            long end = Math.min(checkpoint, startOfDay(day + 1));
+            if (end > start) {
+                Long previous = totals.get(session.getKey());
+                totals.put(session.getKey(), (previous != null ? previous : 0) + end - start);
+            }
+        }
+        return totals;
+    }
+
+    /** Days with recorded usage, oldest first. */
+    public List<Integer> days() {
+        return Collections.unmodifiableList(new ArrayList<>(days.keySet()));
+    }
+
+    int retentionDays() {
+        return retentionDays;
+    }
+
+    Map<String, Long> openSessions() {
+        return openSessions;
+    }
+
+    Map<Integer, Map<String, Long>> closedDays() {
+        return days;
+    }
+
+    void restore(long checkpoint, Map<String, Long> openSessions, Map<Integer, Map<String, Long>> days) {
+        this.checkpoint = checkpoint;
+        this.openSessions.putAll(openSessions);
+        this.days.putAll(days);
+    }
+
+    private void add(String packageName, long start, long end) {
+        end = Math.min(end, start + MAX_SESSION_MS);
+        while (start < end) {
+            int day = dayOf(start);
+            long chunkEnd = Math.min(end, startOfDay(day + 1));
+            if (chunkEnd <= start) {
+                chunkEnd = end; // Offset change right at midnight; keep the rest on this day
+            }
+            Map<String, Long> totals = days.get(day);
+            if (totals == null) {
+                totals = new HashMap<>();
+                days.put(day, totals);
+            }
+            Long previous = totals.get(packageName);
+            totals.put(packageName, (previous != null ? previous : 0) + chunkEnd - start);
+            start = chunkEnd;
+        }
+    }
+
+    private long startOfDay(int day) {
+        long utcMidnight = day * DAY_MS;
+        // Second lookup corrects the estimate on days whose offset changes
+        long guess = utcMidnight - zone.getOffset(utcMidnight);
+        return utcMidnight - zone.getOffset(guess);
+    }
+}
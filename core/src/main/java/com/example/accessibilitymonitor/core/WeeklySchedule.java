@@ -0,0 +1,291 @@
+package com.example.accessibilitymonitor.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * When restrictions apply, compiled from text rules into a minute-resolution bitmap
+ * covering one week, Monday 00:00 first. Answering {@link #isActive} is a bit test plus a
+ * check against the (usually empty) list of one-off exceptions; the zone offset is cached
+ * so there is no calendar arithmetic or allocation per event.
+ *
+ * <p>Rules, one per line:
+ * <pre>
+ * Mon-Fri 09:00-17:00
+ * Sat,Sun 22:00-07:00
+ * Daily 12:00-13:00
+ * except 2026-12-24 09:00-17:00
+ * except 2026-12-25
+ * </pre>
+ * A window whose end is not after its start runs past midnight into the next day.
+ * {@code except} lines lift restrictions for a stretch of local time. With no window
+ * lines at all, restrictions apply around the clock.
+ */
+public final class WeeklySchedule {
+    public static final WeeklySchedule ALWAYS = new WeeklySchedule(null, new long[0], new long[0], TimeZone.getTimeZone("UTC"), "");
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    // 1970-01-01 was a Thursday, three days after the Monday the bitmap starts on
+    private static final int EPOCH_MINUTE_OF_WEEK = 3 * MINUTES_PER_DAY;
+    // Offsets only change on quarter-hour boundaries, so a cached one stays valid until the next
+    private static final long OFFSET_WINDOW_MS = 15 * MILLIS_PER_MINUTE;
+    private static final String[] DAY_NAMES = {"mon", "tue", "wed", "thu", "fri", "sat", "sun"};
+
+    private static final class ZoneWindow {
+        final long start;
+        final long end;
+        final int offsetMs;
+
+        ZoneWindow(long start, long end, int offsetMs) {
+            this.start = start;
+            this.end = end;
+            this.offsetMs = offsetMs;
+        }
+    }
+
+    // Null when there are no window rules
+    private final long[] minutes;
+    // Sorted and non-overlapping
+    private final long[] exceptionStarts;
+    private final long[] exceptionEnds;
+    private final TimeZone zone;
+    private final String source;
+    private volatile ZoneWindow zoneWindow = new ZoneWindow(0, 0, 0);
+
+    private WeeklySchedule(long[] minutes, long[] exceptionStarts, long[] exceptionEnds, TimeZone zone, String source) {
+        this.minutes = minutes;
+        this.exceptionStarts = exceptionStarts;
+        this.exceptionEnds = exceptionEnds;
+        this.zone = zone;
+        this.source = source;
+    }
+
+    /**
+     * Compiles {@code rules}. Exceptions that ended before {@code now} are dropped.
+     *
+     * @throws IllegalArgumentException naming the first line that does not parse
+     */
+    public static WeeklySchedule parse(String rules, TimeZone zone, long now) {
+        if (rules == null || rules.trim().isEmpty()) {
+            return ALWAYS;
+        }
+        long[] minutes = null;
+        List<long[]> exceptions = new ArrayList<>();
+        String[] lines = rules.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                String[] parts = line.split("\\s+");
+                if (parts[0].equalsIgnoreCase("except")) {
+                    long[] interval = parseException(parts, zone);
+                    if (interval[1] > now) {
+                        exceptions.add(interval);
+                    }
+                } else {
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException("expected days and a time range");
+                    }
+                    if (minutes == null) {
+                        minutes = new long[(MINUTES_PER_WEEK + 63) / 64];
+                    }
+                    int[] range = parseTimeRange(parts[1]);
+                    for (int day : parseDays(parts[0])) {
+                        setWindow(minutes, day * MINUTES_PER_DAY + range[0], day * MINUTES_PER_DAY + range[1]);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        mergeExceptions(exceptions);
+        return new WeeklySchedule(minutes, column(exceptions, 0), column(exceptions, 1), zone, rules);
+    }
+
+    /** Whether restrictions apply at {@code timestamp}. */
+    public boolean isActive(long timestamp) {
+        if (minutes != null) {
+            ZoneWindow window = zoneWindow;
+            if (timestamp < window.start || timestamp >= window.end) {
+                window = refreshZone(timestamp);
+            }
+            long localMinute = Math.floorDiv(timestamp + window.offsetMs, MILLIS_PER_MINUTE);
+            int minuteOfWeek = (int) Math.floorMod(localMinute + EPOCH_MINUTE_OF_WEEK, MINUTES_PER_WEEK);
+            if ((minutes[minuteOfWeek >>> 6] & (1L << minuteOfWeek)) == 0) {
+                return false;
+            }
+        }
+        return !inException(timestamp);
+    }
+
+    public boolean isAlways() {
+        return minutes == null && exceptionStarts.length == 0;
+    }
+
+    /** Whether parsing {@code rules} for {@code zone} would give this schedule back. */
+    public boolean isCompiledFor(String rules, TimeZone zone) {
+        if (rules == null || rules.trim().isEmpty()) {
+            return this == ALWAYS;
+        }
+        return rules.equals(source) && zone.hasSameRules(this.zone);
+    }
+
+    private ZoneWindow refreshZone(long timestamp) {
+        long start = timestamp - Math.floorMod(timestamp, OFFSET_WINDOW_MS);
+        ZoneWindow window = new ZoneWindow(start, start + OFFSET_WINDOW_MS, zone.getOffset(timestamp));
+        zoneWindow = window;
+        return window;
+    }
+
+    private boolean inException(long timestamp) {
+        int low = 0;
+        int high = exceptionStarts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (timestamp < exceptionStarts[mid]) {
+                high = mid - 1;
+            } else if (timestamp >= exceptionEnds[mid]) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void setWindow(long[] minutes, int from, int to) {
+        if (to <= from) {
+            // Runs past midnight; Sunday night wraps to Monday morning
+            to += MINUTES_PER_DAY;
+        }
+        for (int minute = from; minute < to; minute++) {
+            int bit = minute % MINUTES_PER_WEEK;
+            minutes[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static int[] parseDays(String spec) {
+        String lower = spec.toLowerCase(Locale.US);
+        if (lower.equals("daily") || lower.equals("*")) {
+            return new int[]{0, 1, 2, 3, 4, 5, 6};
+        }
+        boolean[] days = new boolean[7];
+        for (String part : lower.split(",")) {
+            int dash = part.indexOf('-');
+            if (dash < 0) {
+                days[dayIndex(part)] = true;
+                continue;
+            }
+            int from = dayIndex(part.substring(0, dash));
+            int to = dayIndex(part.substring(dash + 1));
+            for (int day = from; ; day = (day + 1) % 7) {
+                days[day] = true;
+                if (day == to) {
+                    break;
+                }
+            }
+        }
+        int count = 0;
+        int[] result = new int[7];
+        for (int day = 0; day < 7; day++) {
+            if (days[day]) {
+                result[count++] = day;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int dayIndex(String name) {
+        for (int i = 0; i < DAY_NAMES.length; i++) {
+            if (name.startsWith(DAY_NAMES[i])) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unknown day '" + name + "'");
+    }
+
+    private static int[] parseTimeRange(String spec) {
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            throw new IllegalArgumentException("expected a range like 09:00-17:00");
+        }
+        int from = parseTime(spec.substring(0, dash));
+        int to = parseTime(spec.substring(dash + 1));
+        if (from == MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("a window cannot start at 24:00");
+        }
+        return new int[]{from, to};
+    }
+
+    private static int parseTime(String spec) {
+        int colon = spec.indexOf(':');
+        try {
+            int hours = Integer.parseInt(colon < 0 ? spec : spec.substring(0, colon));
+            int mins = colon < 0 ? 0 : Integer.parseInt(spec.substring(colon + 1));
+            int minute = hours * 60 + mins;
+            if (hours < 0 || mins < 0 || mins >= 60 || minute > MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("bad time '" + spec + "'");
+            }
+            return minute;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad time '" + spec + "'");
+        }
+    }
+
+    private static long[] parseException(String[] parts, TimeZone zone) {
+        if (parts.length != 2 && parts.length != 3) {
+            throw new IllegalArgumentException("expected 'except yyyy-MM-dd [HH:mm-HH:mm]'");
+        }
+        String[] date = parts[1].split("-");
+        if (date.length != 3) {
+            throw new IllegalArgumentException("bad date '" + parts[1] + "'");
+        }
+        int[] range = parts.length == 3 ? parseTimeRange(parts[2]) : new int[]{0, MINUTES_PER_DAY};
+        Calendar calendar = Calendar.getInstance(zone, Locale.US);
+        calendar.clear();
+        calendar.setLenient(false);
+        try {
+            calendar.set(Integer.parseInt(date[0]), Integer.parseInt(date[1]) - 1, Integer.parseInt(date[2]));
+            long midnight = calendar.getTimeInMillis();
+            calendar.add(Calendar.MINUTE, range[0]);
+            long start = calendar.getTimeInMillis();
+            calendar.setTimeInMillis(midnight);
+            calendar.add(Calendar.MINUTE, range[1] <= range[0] ? range[1] + MINUTES_PER_DAY : range[1]);
+            return new long[]{start, calendar.getTimeInMillis()};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("bad date '" + parts[1] + "'");
+        }
+    }
+
+    private static long[] column(List<long[]> intervals, int index) {
+        long[] values = new long[intervals.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = intervals.get(i)[index];
+        }
+        return values;
+    }
+
+    /** Sorts by start and folds overlapping intervals together, in place. */
+    private static void mergeExceptions(List<long[]> exceptions) {
+        exceptions.sort((a, b) -> Long.compare(a[0], b[0]));
+        List<long[]> merged = new ArrayList<>(exceptions.size());
+        for (long[] interval : exceptions) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && interval[0] <= last[1]) {
+                last[1] = Math.max(last[1], interval[1]);
+            } else {
+                merged.add(interval);
+            }
+        }
+        exceptions.clear();
+        exceptions.addAll(merged);
+    }
+}
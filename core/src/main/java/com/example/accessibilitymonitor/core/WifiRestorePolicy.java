@@ -0,0 +1,192 @@
+package com.example.accessibilitymonitor.core;
+
+/**
+ * Decides when Wi-Fi that enforcement turned off should come back on. The radio is only
+ * restored if enforcement turned it off, and only once no app that needs it off has been
+ * in the foreground for the grace period, so hopping between a restricted app and
+ * another one does not toggle the radio each time. Restores are further held back while
+ * the last minute already saw {@code maxTogglesPerMinute} toggles, counting both
+ * directions. A restore the system rejects is retried with backoff a few times, then given
+ * up. Thread-safe; times are in milliseconds from any one monotonic clock.
+ */
+public final class WifiRestorePolicy {
+    public static final long NEVER = Long.MAX_VALUE;
+    static final long TOGGLE_WINDOW_MS = 60_000;
+    static final int MAX_RESTORE_ATTEMPTS = 3;
+    static final long RETRY_BACKOFF_MS = 5_000;
+
+    private long graceMs;
+    // Times of the last toggles, oldest at toggleHead
+    private long[] toggles;
+    private int toggleHead;
+    private int toggleCount;
+    private boolean owned;
+    private String holder;
+    private long releasedAt = NEVER;
+    // Rejected restore attempts since the radio was turned off, and when the next may run
+    private int rejectedAttempts;
+    private long retryAt = Long.MIN_VALUE;
+
+    private long disableCount;
+    private long restoreCount;
+    private long cancelledCount;
+    private long deferredCount;
+    private long rejectedCount;
+    private long abandonedCount;
+
+    public WifiRestorePolicy(long graceMs, int maxTogglesPerMinute) {
+        this.graceMs = graceMs;
+        this.toggles = new long[Math.max(1, maxTogglesPerMinute)];
+    }
+
+    /** Applies new settings; what is owed and held carries over. */
+    public synchronized void configure(long graceMs, int maxTogglesPerMinute) {
+        this.graceMs = graceMs;
+        if (Math.max(1, maxTogglesPerMinute) != toggles.length) {
+            toggles = new long[Math.max(1, maxTogglesPerMinute)];
+            toggleHead = 0;
+            toggleCount = 0;
+        }
+    }
+
+    /** Enforcement turned the radio off while it was on. */
+    public synchronized void onDisabled(long now) {
+        owned = true;
+        disableCount++;
+        clearRetry();
+        recordToggle(now);
+    }
+
+    /**
+     * An app that needs Wi-Fi off is in the foreground; a pending restore is called off.
+     * Returns whether {@link #restoreAt()} may have changed.
+     */
+    public synchronized boolean onHold(String packageName) {
+        if (packageName.equals(holder)) {
+            return false;
+        }
+        if (holder == null && releasedAt != NEVER && owned) {
+            cancelledCount++;
+        }
+        holder = packageName;
+        releasedAt = NEVER;
+        clearRetry();
+        return true;
+    }
+
+    /**
+     * The foreground moved to an app that does not need Wi-Fi off. Returns whether
+     * {@link #restoreAt()} may have changed.
+     */
+    public synchronized boolean onRelease(long now) {
+        if (holder == null) {
+            return false;
+        }
+        holder = null;
+        releasedAt = now;
+        return true;
+    }
+
+    /** Someone else turned the radio back on, so there is nothing left to restore. */
+    public synchronized void onEnabledElsewhere() {
+        owned = false;
+        releasedAt = NEVER;
+        clearRetry();
+    }
+
+    /** When to restore, or {@link #NEVER} while nothing is owed or an app still holds the radio. */
+    public synchronized long restoreAt() {
+        if (!owned || holder != null || releasedAt == NEVER) {
+            return NEVER;
+        }
+        return Math.max(Math.max(releasedAt + graceMs, retryAt), nextToggleAllowedAt());
+    }
+
+    /** Whether to turn the radio on now; if so the caller must follow with {@link #onRestored}. */
+    public synchronized boolean shouldRestore(long now) {
+        long at = restoreAt();
+        if (at == NEVER || now < releasedAt + graceMs || now < retryAt) {
+            return false;
+        }
+        if (now < at) {
+            deferredCount++;
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized void onRestored(long now) {
+        owned = false;
+        releasedAt = NEVER;
+        restoreCount++;
+        clearRetry();
+        recordToggle(now);
+    }
+
+    /**
+     * The system refused to turn the radio on. Returns true if a retry is scheduled through
+     * {@link #restoreAt()}, false if this was the last attempt and nothing is owed any more.
+     */
+    public synchronized boolean onRestoreRejected(long now) {
+        rejectedCount++;
+        if (++rejectedAttempts >= MAX_RESTORE_ATTEMPTS) {
+            abandonedCount++;
+            owned = false;
+            releasedAt = NEVER;
+            clearRetry();
+            return false;
+        }
+        retryAt = now + (RETRY_BACKOFF_MS << (rejectedAttempts - 1));
+        return true;
+    }
+
+    public synchronized boolean isOwed() {
+        return owned;
+    }
+
+    public synchronized long disableCount() {
+        return disableCount;
+    }
+
+    public synchronized long restoreCount() {
+        return restoreCount;
+    }
+
+    /** Restores called off because a restricted app came back within the grace period. */
+    public synchronized long cancelledCount() {
+        return cancelledCount;
+    }
+
+    /** Restore attempts held back by the toggle cap. */
+    public synchronized long deferredCount() {
+        return deferredCount;
+    }
+
+    /** Restore calls the system rejected. */
+    public synchronized long rejectedCount() {
+        return rejectedCount;
+    }
+
+    /** Restores given up after {@link #MAX_RESTORE_ATTEMPTS} rejections. */
+    public synchronized long abandonedCount() {
+        return abandonedCount;
+    }
+
+    private void clearRetry() {
+        rejectedAttempts = 0;
+        retryAt = Long.MIN_VALUE;
+    }
+
+    private long nextToggleAllowedAt() {
+        return toggleCount < toggles.length ? Long.MIN_VALUE : toggles[toggleHead] + TOGGLE_WINDOW_MS;
+    }
+
+    private void recordToggle(long now) {
+        if (toggleCount < toggles.length) {
+            toggles[(toggleHead + toggleCount++) % toggles.length] = now;
+        } else {
+            toggles[toggleHead] = now;
+            toggleHead = (toggleHead + 1) % toggles.length;
+        }
+    }
+}
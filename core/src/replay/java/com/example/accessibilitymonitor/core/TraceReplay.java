@@ -0,0 +1,250 @@
+package com.example.accessibilitymonitor.core;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feeds a recorded or synthetic event trace through the same pipeline the service runs
+ * (ring, worker, session tracking, policy check, action executor) with stubbed actions,
+ * as fast as the pipeline accepts it, and prints throughput, decisions and latencies.
+ *
+ * <pre>
+ * ./gradlew :core:replay --args="--trace trace-20260101-120000.bin --restricted com.example.game"
+ * ./gradlew :core:replay --args="--synthetic 2000000 --action-micros 200 --lossy"
+ * </pre>
+ */
+public final class TraceReplay {
+    private static final int WINDOW_STATE_CHANGED = 0x20;
+
+    private long[] timestamps = new long[1024];
+    private String[] packages = new String[1024];
+    private int[] eventTypes = new int[1024];
+    private int size;
+
+    private TraceReplay() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        TraceReplay trace = new TraceReplay();
+        Set<String> restricted = new HashSet<>();
+        if (options.containsKey("trace")) {
+            try (InputStream in = new FileInputStream(options.get("trace"))) {
+                EventTrace.read(in, (timestamp, packageName, className, eventType) ->
+                        trace.add(timestamp, packageName, eventType));
+            }
+        } else {
+            int events = Integer.parseInt(options.getOrDefault("synthetic", "1000000"));
+            trace.synthesize(events, new Random(Long.parseLong(options.getOrDefault("seed", "1"))), restricted);
+        }
+        if (options.containsKey("restricted")) {
+            restricted = new HashSet<>(Arrays.asList(options.get("restricted").split(",")));
+        }
+        EnforcementStrategy strategy = EnforcementStrategy.fromKey(options.getOrDefault("strategy", EnforcementStrategy.DEFAULT.key));
+        Map<String, EnforcementStrategy> strategies = new HashMap<>();
+        for (String packageName : restricted) {
+            strategies.put(packageName, strategy);
+        }
+        String rules = options.getOrDefault("schedule", "").replace(';', '\n');
+        PolicySnapshot policy = PolicySnapshot.builder()
+                .setRestrictedApps(restricted)
+                .setDebounceMs(Long.parseLong(options.getOrDefault("debounce", String.valueOf(PolicySnapshot.DEFAULT_DEBOUNCE_MS))))
+                .setObserveAllEvents(true)
+                .setStrategies(strategies)
+                .setSchedule(WeeklySchedule.parse(rules, TimeZone.getDefault(), 0))
+                .build();
+
+        int repeat = Integer.parseInt(options.getOrDefault("repeat", "1"));
+        for (int i = 0; i < repeat; i++) {
+            trace.run(policy, Integer.parseInt(options.getOrDefault("ring", "256")),
+                    Long.parseLong(options.getOrDefault("action-micros", "0")), options.containsKey("lossy"));
+        }
+    }
+
+    private void run(PolicySnapshot policy, int ringCapacity, long actionMicros, boolean lossy) throws InterruptedException {
+        MonitorStats stats = new MonitorStats();
+        ScheduledExecutorService actionThread = Executors.newSingleThreadScheduledExecutor();
+        ActionExecutor executor = new ActionExecutor(actionThread, 4, 500, 8000, stats);
+        StubActions actions = new StubActions(actionMicros);
+        AtomicLong decisions = new AtomicLong();
+        EnforcementEngine engine = new EnforcementEngine(() -> policy, actions, executor, stats, new EnforcementEngine.Listener() {
+            @Override
+            public void onRestricted(String packageName, long timestamp, EnforcementStrategy strategy) {
+                decisions.incrementAndGet();
+            }
+
+            @Override
+            public void onRestrictedContent(String packageName, long timestamp, EnforcementStrategy strategy) {
+                decisions.incrementAndGet();
+            }
+
+            @Override
+            public void onBatchEnd(int batchSize) {
+            }
+        });
+        EventPipeline pipeline = new EventPipeline("ReplayWorker", ringCapacity, engine, stats.queue);
+        pipeline.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            long publishStart = System.nanoTime();
+            stats.countEvent();
+            while (!pipeline.publish(timestamps[i], packages[i], eventTypes[i])) {
+                if (lossy) {
+                    stats.countDrop();
+                    break;
+                }
+                // Stand-in for the device's callback thread being blocked
+                Thread.yield();
+            }
+            stats.dispatch.recordSince(publishStart);
+        }
+        pipeline.stop();
+        long pipelineNanos = System.nanoTime() - start;
+        actionThread.shutdown();
+        actionThread.awaitTermination(1, TimeUnit.MINUTES);
+
+        PrintWriter out = new PrintWriter(System.out);
+        out.println(String.format(Locale.US, "Replayed %d events in %.1f ms: %.0f events/s%s",
+                size, pipelineNanos / 1e6, size / (pipelineNanos / 1e9), lossy ? " (lossy)" : ""));
+        out.println("Decisions: restricted=" + decisions.get() + " batches=" + pipeline.batchCount()
+                + " maxBatch=" + pipeline.maxBatchSize() + " backpressure=" + pipeline.ring().backpressureCount());
+        out.println("Actions: submitted=" + executor.submittedCount() + " deduplicated=" + executor.deduplicatedCount()
+                + " succeeded=" + executor.succeededCount() + " failed=" + executor.failedCount());
+        stats.dump(out);
+        out.flush();
+    }
+
+    private void add(long timestamp, String packageName, int eventType) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            packages = Arrays.copyOf(packages, size * 2);
+            eventTypes = Arrays.copyOf(eventTypes, size * 2);
+        }
+        timestamps[size] = timestamp;
+        packages[size] = packageName;
+        eventTypes[size] = eventType;
+        size++;
+    }
+
+    /**
+     * Mostly unrestricted traffic: apps switch every few seconds, each switch brings a
+     * burst of windows from the same package, and now and then a system dialog steals
+     * focus for a moment before the app comes back.
+     */
+    private void synthesize(int events, Random random, Set<String> restricted) {
+        String[] apps = new String[40];
+        for (int i = 0; i < apps.length; i++) {
+            apps[i] = i % 10 == 0 ? "com.restricted.app" + i : "com.normal.app" + i;
+            if (i % 10 == 0) {
+                restricted.add(apps[i]);
+            }
+        }
+        long clock = 1_700_000_000_000L;
+        while (size < events) {
+            String app = apps[random.nextInt(apps.length)];
+            int burst = 1 + random.nextInt(6);
+            for (int i = 0; i < burst && size < events; i++) {
+                clock += random.nextInt(40);
+                add(clock, app, WINDOW_STATE_CHANGED);
+            }
+            if (random.nextInt(8) == 0 && size + 1 < events) {
+                clock += 200;
+                add(clock, "com.android.systemui", WINDOW_STATE_CHANGED);
+                clock += 300;
+                add(clock, app, WINDOW_STATE_CHANGED);
+            }
+            clock += 500 + random.nextInt(5000);
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            String name = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(name, args[++i]);
+            } else {
+                options.put(name, "");
+            }
+        }
+        return options;
+    }
+
+    /** Same keys as the device's actions, so de-duplication behaves the same; apply just burns time. */
+    private static final class StubActions implements EnforcementEngine.ActionFactory {
+        private static final EnforcementAction[] NONE = new EnforcementAction[0];
+
+        private final EnforcementAction[] wifiOff;
+        private final EnforcementAction[] notifyOnly;
+        private final EnforcementAction[] goHome;
+
+        StubActions(long actionMicros) {
+            EnforcementAction notify = new StubAction(null, actionMicros);
+            wifiOff = new EnforcementAction[]{new StubAction("wifi_off", actionMicros), notify};
+            notifyOnly = new EnforcementAction[]{notify};
+            goHome = new EnforcementAction[]{new StubAction("go_home", actionMicros), notify};
+        }
+
+        @Override
+        public EnforcementAction[] forStrategy(EnforcementStrategy strategy) {
+            switch (strategy) {
+                case WIFI_OFF:
+                    return wifiOff;
+                case NOTIFY_ONLY:
+                    return notifyOnly;
+                case GO_HOME:
+                    return goHome;
+                case LOG_ONLY:
+                default:
+                    return NONE;
+            }
+        }
+    }
+
+    private static final class StubAction implements EnforcementAction {
+        // Null means one key per package, like notifications
+        private final String key;
+        private final long costNanos;
+
+        StubAction(String key, long costMicros) {
+            this.key = key;
+            this.costNanos = TimeUnit.MICROSECONDS.toNanos(costMicros);
+        }
+
+        @Override
+        public String key(String packageName) {
+            return key != null ? key : "notify:" + packageName;
+        }
+
+        @Override
+        public boolean isSatisfied(String packageName) {
+            return false;
+        }
+
+        @Override
+        public boolean apply(String packageName) {
+            long end = System.nanoTime() + costNanos;
+            while (System.nanoTime() < end) {
+                // Busy-wait: sleeping would round up to the scheduler tick
+            }
+            return true;
+        }
+    }
+}
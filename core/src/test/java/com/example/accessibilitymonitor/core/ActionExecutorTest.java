@@ -0,0 +1,190 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ActionExecutorTest {
+    private final ManualScheduler scheduler = new ManualScheduler();
+
+    @Test
+    public void failingAction_isRetriedWithCappedBackoffUntilAttemptsRunOut() {
+        ActionExecutor executor = new ActionExecutor(scheduler, 5, 100, 300);
+        FakeAction action = new FakeAction("wifi", false);
+
+        assertTrue(executor.submit(action, "com.game"));
+        scheduler.runAll();
+
+        assertEquals(5, action.applied);
+        assertEquals(Arrays.asList(0L, 100L, 200L, 300L, 300L), scheduler.delays);
+        assertEquals(4, executor.retriedCount());
+        assertEquals(1, executor.failedCount());
+        assertEquals(0, executor.succeededCount());
+        assertTrue("Key released after giving up", executor.submit(action, "com.game"));
+    }
+
+    @Test
+    public void actionThatSucceedsLater_stopsRetrying() {
+        ActionExecutor executor = new ActionExecutor(scheduler, 5, 100, 1000);
+        FakeAction action = new FakeAction("wifi", false);
+        action.succeedOnAttempt = 2;
+
+        executor.submit(action, "com.game");
+        scheduler.runAll();
+
+        assertEquals(2, action.applied);
+        assertEquals(1, executor.succeededCount());
+        assertEquals(0, executor.failedCount());
+    }
+
+    @Test
+    public void duplicateKeyWhilePending_isDropped() {
+        ActionExecutor executor = new ActionExecutor(scheduler, 3, 100, 1000);
+        FakeAction action = new FakeAction("wifi", false);
+        action.succeedOnAttempt = 1;
+
+        assertTrue(executor.submit(action, "com.game"));
+        // Same key for another package: one radio, one pending action
+        assertFalse(executor.submit(action, "com.video"));
+        scheduler.runAll();
+        assertTrue(executor.submit(action, "com.video"));
+        scheduler.runAll();
+
+        assertEquals(2, action.applied);
+        assertEquals(1, executor.deduplicatedCount());
+        assertEquals(2, executor.submittedCount());
+    }
+
+    @Test
+    public void satisfiedAction_isNeverApplied() {
+        ActionExecutor executor = new ActionExecutor(scheduler, 3, 100, 1000);
+        FakeAction action = new FakeAction("wifi", true);
+
+        executor.submit(action, "com.game");
+        scheduler.runAll();
+
+        assertEquals(0, action.applied);
+        assertEquals(1, executor.skippedCount());
+        assertEquals(0, executor.retriedCount());
+    }
+
+    @Test
+    public void throwingAction_countsAsFailedAttempt() {
+        ActionExecutor executor = new ActionExecutor(scheduler, 2, 100, 1000);
+        FakeAction action = new FakeAction("home", false);
+        action.fail = new IllegalStateException("service gone");
+
+        executor.submit(action, "com.game");
+        scheduler.runAll();
+
+        assertEquals(2, action.applied);
+        assertEquals(1, executor.failedCount());
+    }
+
+    private static final class FakeAction implements EnforcementAction {
+        private final String key;
+        private final boolean satisfied;
+        int applied;
+        int succeedOnAttempt = Integer.MAX_VALUE;
+        RuntimeException fail;
+
+        FakeAction(String key, boolean satisfied) {
+            this.key = key;
+            this.satisfied = satisfied;
+        }
+
+        @Override
+        public String key(String packageName) {
+            return key;
+        }
+
+        @Override
+        public boolean isSatisfied(String packageName) {
+            return satisfied;
+        }
+
+        @Override
+        public boolean apply(String packageName) {
+            applied++;
+            if (fail != null) {
+                throw fail;
+            }
+            return applied >= succeedOnAttempt;
+        }
+    }
+
+    /** Queues tasks instead of running them and records each delay, so time never passes for real. */
+    private static final class ManualScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+        final List<Long> delays = new ArrayList<>();
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.poll().run();
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delays.add(0L);
+            queue.add(command);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            delays.add(unit.toMillis(delay));
+            queue.add(command);
+            return null;
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AlertCoalescerTest {
+    private static final long MINUTE = 60_000;
+
+    @Test
+    public void tokenBucket_allowsBurstThenRefillsOnePerInterval() {
+        TokenBucket bucket = new TokenBucket(3, MINUTE, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(1));
+        assertTrue(bucket.tryAcquire(2));
+        assertFalse("Burst used up", bucket.tryAcquire(3));
+
+        assertFalse(bucket.tryAcquire(MINUTE - 1));
+        assertTrue(bucket.tryAcquire(MINUTE));
+        assertFalse(bucket.tryAcquire(MINUTE + 1));
+        // Two intervals later two tokens, not one
+        assertTrue(bucket.tryAcquire(3 * MINUTE));
+        assertTrue(bucket.tryAcquire(3 * MINUTE));
+        assertFalse(bucket.tryAcquire(3 * MINUTE));
+    }
+
+    @Test
+    public void tokenBucket_refillIsCappedAtCapacity() {
+        TokenBucket bucket = new TokenBucket(2, MINUTE, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+
+        long later = 60 * MINUTE;
+        assertTrue(bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later));
+        assertFalse(bucket.tryAcquire(later));
+        // The partial interval before the idle hour does not carry over
+        assertFalse(bucket.tryAcquire(later + MINUTE - 1));
+        assertTrue(bucket.tryAcquire(later + MINUTE));
+    }
+
+    @Test
+    public void coalescer_limitsAlertsButCountsEveryHitInWindow() {
+        AlertCoalescer coalescer = new AlertCoalescer(5 * MINUTE, 2, MINUTE);
+        assertEquals(1, coalescer.record("com.game", 0));
+        assertEquals(2, coalescer.record("com.game", 1_000));
+        assertEquals("Rate limited", 0, coalescer.record("com.game", 2_000));
+        assertEquals(0, coalescer.record("com.game", 3_000));
+        assertEquals("Suppressed hits still counted", 4, coalescer.recentCount("com.game"));
+        assertEquals(0, coalescer.recentCount("com.video"));
+        // The refill lets the next alert through, reporting the suppressed hits too
+        assertEquals(5, coalescer.record("com.game", MINUTE));
+        // Packages are limited independently
+        assertEquals(1, coalescer.record("com.video", MINUTE));
+    }
+
+    @Test
+    public void coalescer_slidingWindowDropsOldHits() {
+        AlertCoalescer coalescer = new AlertCoalescer(5 * MINUTE, 10, MINUTE);
+        coalescer.record("com.game", 0);
+        coalescer.record("com.game", MINUTE);
+        coalescer.record("com.game", 2 * MINUTE);
+
+        assertEquals("Hit exactly a window ago still counts", 4, coalescer.record("com.game", 5 * MINUTE));
+        assertEquals(4, coalescer.record("com.game", 5 * MINUTE + 1));
+        assertEquals(1, coalescer.record("com.game", 20 * MINUTE));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BoundedTreeWalkTest {
+    /** Complete binary tree over heap indexes 0 .. size - 1 that counts outstanding nodes. */
+    private static final class HeapTree implements BoundedTreeWalk.Tree<Integer> {
+        final int size;
+        int fetched;
+        int released;
+
+        HeapTree(int size) {
+            this.size = size;
+        }
+
+        Integer root() {
+            fetched++;
+            return 0;
+        }
+
+        @Override
+        public int childCount(Integer node) {
+            return Math.max(0, Math.min(2, size - (2 * node + 1)));
+        }
+
+        @Override
+        public Integer child(Integer node, int index) {
+            fetched++;
+            return 2 * node + 1 + index;
+        }
+
+        @Override
+        public void release(Integer node) {
+            released++;
+        }
+    }
+
+    @Test
+    public void walk_visitsPreOrderAndReleasesEverything() {
+        HeapTree tree = new HeapTree(7);
+        BoundedTreeWalk<Integer> walk = new BoundedTreeWalk<>(tree, 100, Long.MAX_VALUE / 2);
+        final List<Integer> order = new ArrayList<>();
+
+        assertEquals(BoundedTreeWalk.COMPLETE, walk.walk(tree.root(), node -> {
+            order.add(node);
+            return false;
+        }));
+        assertEquals("[0, 1, 3, 4, 2, 5, 6]", order.toString());
+        assertEquals(7, walk.visitedCount());
+        assertEquals(tree.fetched, tree.released);
+    }
+
+    @Test
+    public void walk_stopsAtVisitorOrBudgetWithoutLeaking() {
+        HeapTree tree = new HeapTree(1 << 12);
+        BoundedTreeWalk<Integer> walk = new BoundedTreeWalk<>(tree, 50, Long.MAX_VALUE / 2);
+
+        assertEquals(BoundedTreeWalk.STOPPED, walk.walk(tree.root(), node -> node == 7));
+        assertEquals(tree.fetched, tree.released);
+
+        assertEquals(BoundedTreeWalk.OUT_OF_BUDGET, walk.walk(tree.root(), node -> false));
+        assertEquals(50, walk.visitedCount());
+        assertEquals(tree.fetched, tree.released);
+
+        BoundedTreeWalk<Integer> timed = new BoundedTreeWalk<>(tree, Integer.MAX_VALUE, 0);
+        assertEquals(BoundedTreeWalk.OUT_OF_BUDGET, timed.walk(tree.root(), node -> false));
+        assertEquals(tree.fetched, tree.released);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CatalogIndexTest {
+    private static final List<CatalogEntry> ENTRIES = Arrays.asList(
+            entry("com.android.calendar", "Calendar"),
+            entry("com.example.cafe", "Caf\u00e9 Finder"),
+            entry("com.google.android.apps.maps", "Google Maps"),
+            entry("com.google.android.gm", "Gmail"),
+            entry("org.videolan.vlc", "VLC media player"),
+            entry("com.google.android.youtube", "YouTube"),
+            entry("com.example.photo_editor", "Snapseed"));
+
+    private static CatalogEntry entry(String packageName, String label) {
+        return new CatalogEntry(packageName, label, 1, 1);
+    }
+
+    private static List<String> packages(List<CatalogEntry> entries) {
+        List<String> names = new ArrayList<>();
+        for (CatalogEntry entry : entries) {
+            names.add(entry.packageName);
+        }
+        return names;
+    }
+
+    @Test
+    public void search_matchesWordAndSegmentPrefixes() {
+        CatalogIndex index = CatalogIndex.build(ENTRIES);
+        Set<String> none = Collections.emptySet();
+
+        assertEquals(Arrays.asList("com.google.android.apps.maps"), packages(index.search("ma", none, true)));
+        assertEquals(Arrays.asList("com.google.android.apps.maps", "com.google.android.gm", "com.google.android.youtube"),
+                packages(index.search("goo", none, true)));
+        assertEquals(Arrays.asList("com.example.cafe"), packages(index.search("cafe fin", none, true)));
+        assertEquals(Arrays.asList("org.videolan.vlc"), packages(index.search("  MEDIA ", none, true)));
+        assertEquals(Arrays.asList("com.google.android.gm"), packages(index.search("com.google.android.g", none, true)));
+        assertEquals(ENTRIES.size(), index.search("", none, true).size());
+    }
+
+    @Test
+    public void search_matchesCamelCaseHumpsAndUnderscoreSegments() {
+        CatalogIndex index = CatalogIndex.build(ENTRIES);
+        Set<String> none = Collections.emptySet();
+
+        assertEquals(Arrays.asList("com.google.android.youtube"), packages(index.search("tube", none, true)));
+        assertEquals(Arrays.asList("com.example.photo_editor"), packages(index.search("edit", none, true)));
+        // Text inside a word starts no key, and there is no substring scan behind the index
+        assertTrue(index.search("lend", none, true).isEmpty());
+        assertTrue(index.search("seed", none, true).isEmpty());
+    }
+
+    @Test
+    public void search_ordersRestrictedFirst() {
+        CatalogIndex index = CatalogIndex.build(ENTRIES);
+        Set<String> restricted = new HashSet<>(Arrays.asList("com.google.android.gm", "org.videolan.vlc"));
+
+        assertEquals(Arrays.asList("com.google.android.gm", "org.videolan.vlc", "com.android.calendar",
+                "com.example.cafe", "com.google.android.apps.maps", "com.google.android.youtube",
+                "com.example.photo_editor"), packages(index.search("", restricted, true)));
+        assertEquals(Arrays.asList("com.google.android.gm", "com.google.android.apps.maps", "com.google.android.youtube"),
+                packages(index.search("g", restricted, true)));
+        assertEquals(packages(ENTRIES), packages(index.search("", restricted, false)));
+        assertTrue(index.search("zzz", restricted, true).isEmpty());
+    }
+
+    @Test
+    public void search_agreesWithFullScanOnLargeCatalog() {
+        String[] words = {"Mail", "Maps", "Photos", "Music", "Camera", "Notes", "Chat", "Video"};
+        List<CatalogEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            entries.add(entry("com.vendor" + (i % 50) + ".app" + i, words[i % words.length] + " " + words[i / 7 % words.length] + " " + i));
+        }
+        CatalogIndex index = CatalogIndex.build(entries);
+        for (String query : new String[]{"ma", "photos", "vendor4", "com.vendor12.app", "12"}) {
+            int expected = 0;
+            for (CatalogEntry entry : entries) {
+                boolean match = entry.packageName.startsWith(query) || entry.packageName.contains("." + query);
+                for (String word : entry.label.toLowerCase().split(" ")) {
+                    match |= word.startsWith(query);
+                }
+                if (match) {
+                    expected++;
+                }
+            }
+            assertEquals(query, expected, index.search(query, Collections.<String>emptySet(), false).size());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConfigStoreTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void update_publishesCopyAndPersistsIt() throws Exception {
+        ConfigFile file = new ConfigFile(tmp.newFile("config.bin"));
+        ConfigStore store = new ConfigStore(file, MonitorConfig.DEFAULTS, Runnable::run);
+        List<MonitorConfig> seen = new ArrayList<>();
+        store.addListener(seen::add);
+
+        MonitorConfig before = store.get();
+        store.update(builder -> builder
+                .addRestrictedApp("com.a")
+                .setStrategy("com.a", EnforcementStrategy.GO_HOME)
+                .setMonitoringEnabled(false)
+                .setScheduleRules("Mon-Fri 09:00-17:00"));
+
+        assertTrue(before.restrictedApps.isEmpty());
+        assertEquals(1, seen.size());
+        assertSame(store.get(), seen.get(0));
+
+        MonitorConfig read = file.read();
+        assertNotNull(read);
+        assertFalse(read.monitoringEnabled);
+        assertTrue(read.restrictedApps.contains("com.a"));
+        assertEquals(EnforcementStrategy.GO_HOME, read.strategies.get("com.a"));
+        assertEquals("Mon-Fri 09:00-17:00", read.scheduleRules);
+        assertEquals(0, store.writeFailureCount());
+    }
+
+    @Test
+    public void read_rejectsDamagedFile() throws Exception {
+        File damaged = tmp.newFile("config.bin");
+        Files.write(damaged.toPath(), new byte[]{0x41, 0x43, 0x46, 0x47, 0, 0, 0, 1, 1});
+        assertNull(new ConfigFile(damaged).read());
+    }
+
+    @Test
+    public void moveAside_keepsUnreadableFileForRecovery() throws Exception {
+        File damaged = tmp.newFile("config.bin");
+        byte[] bytes = {0x41, 0x43, 0x46, 0x47, 0, 0, 0, 99};
+        Files.write(damaged.toPath(), bytes);
+        ConfigFile file = new ConfigFile(damaged);
+        assertNull("Newer version", file.read());
+
+        File backup = file.moveAside();
+        assertNotNull(backup);
+        assertFalse(file.exists());
+        assertArrayEquals(bytes, Files.readAllBytes(backup.toPath()));
+    }
+}
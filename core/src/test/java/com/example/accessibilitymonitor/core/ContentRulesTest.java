@@ -0,0 +1,89 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ContentRulesTest {
+    @Test
+    public void matcher_findsOverlappingKeywordsIgnoringCase() {
+        KeywordMatcher matcher = KeywordMatcher.compile(Arrays.asList("he", "she", "hers", "his"));
+
+        assertEquals(1, matcher.find("uSHErs"));
+        assertEquals(3, matcher.find("this"));
+        assertEquals(-1, matcher.find("hxs"));
+        assertEquals(-1, KeywordMatcher.EMPTY.find("anything"));
+    }
+
+    @Test
+    public void matcher_agreesWithNaiveSearch() {
+        List<String> keywords = Arrays.asList("ab", "abc", "bca", "cab", "aab", "bb");
+        KeywordMatcher matcher = KeywordMatcher.compile(keywords);
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(12); i > 0; i--) {
+                text.append((char) ('a' + random.nextInt(3)));
+            }
+            boolean expected = false;
+            for (String keyword : keywords) {
+                expected |= text.indexOf(keyword) >= 0;
+            }
+            int found = matcher.find(text);
+            assertEquals(text.toString(), expected, found >= 0);
+            if (found >= 0) {
+                assertTrue(text.indexOf(keywords.get(found)) >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void parse_scopesKeywordsToPackages() {
+        ContentRules rules = ContentRules.parse("# browsers\ncom.android.chrome: YouTube.com, casino\n*: spoiler\n");
+
+        assertEquals("youtube.com", rules.match("com.android.chrome", "https://m.youtube.com/watch"));
+        assertEquals("spoiler", rules.match("com.android.chrome", "Spoiler alert"));
+        assertNull(rules.match("com.reader", "casino night"));
+        assertEquals("spoiler", rules.match("com.reader", "no spoilers"));
+        assertTrue(rules.appliesTo("com.reader"));
+        assertTrue(rules.coversAllPackages());
+        assertEquals(Collections.singleton("com.android.chrome"), rules.packages());
+        assertEquals(3, rules.keywordCount());
+    }
+
+    @Test
+    public void parse_rejectsBadLines() {
+        assertSame(ContentRules.NONE, ContentRules.parse("  \n"));
+        try {
+            ContentRules.parse("com.a: x\nnot a rule");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Line 2"));
+        }
+        try {
+            ContentRules.parse("com.a: , ");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Line 1"));
+        }
+    }
+
+    @Test
+    public void snapshot_widensEventScopeForContentRules() {
+        ContentRules rules = ContentRules.parse("com.browser: casino");
+        PolicySnapshot snapshot = PolicySnapshot.builder()
+                .setRestrictedApps(Collections.singleton("com.game"))
+                .setContentRules(rules)
+                .build();
+
+        assertArrayEquals(new String[]{"com.browser", "com.game", "com.own"}, snapshot.eventScope("com.own"));
+        assertFalse(snapshot.isRestricted("com.browser"));
+        assertNull(snapshot.withActiveProfile(MonitorConfig.DEFAULT_PROFILE)
+                .contentRules().match("com.game", "casino"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+
+public class EnforcementEngineTest {
+    private static final List<String> EXIT_PACKAGES = Arrays.asList("com.android.launcher", "com.android.systemui");
+
+    private final ScheduledExecutorService actionThread = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        actionThread.shutdownNow();
+    }
+
+    @Test
+    public void reopeningRestrictedApp_isEnforcedAgainUnderNarrowedScope() {
+        PolicySnapshot policy = PolicySnapshot.builder()
+                .setRestrictedApps(Collections.singleton("com.game"))
+                .build();
+        // Game, home, another app, home again, game, then straight from the shade into the game
+        String[] device = {"com.game", "com.android.launcher", "com.example.mail", "com.android.launcher",
+                "com.game", "com.android.systemui", "com.example.maps", "com.android.systemui", "com.game"};
+
+        assertEquals(3, restrictedSessions(policy, policy.eventScope("com.own", EXIT_PACKAGES), device).size());
+    }
+
+    @Test
+    public void scopeWithoutExitPackages_missesTheLeave() {
+        PolicySnapshot policy = PolicySnapshot.builder()
+                .setRestrictedApps(Collections.singleton("com.game"))
+                .build();
+        String[] device = {"com.game", "com.android.launcher", "com.example.mail", "com.game"};
+
+        assertEquals(1, restrictedSessions(policy, policy.eventScope("com.own"), device).size());
+        assertEquals(2, restrictedSessions(policy, null, device).size());
+    }
+
+    @Test
+    public void exitPackagesAreOnlyScopedWhileMonitoring() {
+        PolicySnapshot off = PolicySnapshot.builder()
+                .setMonitoringEnabled(false)
+                .setRestrictedApps(Collections.singleton("com.game"))
+                .build();
+
+        assertArrayEquals(new String[]{"com.own"}, off.eventScope("com.own", EXIT_PACKAGES));
+    }
+
+    /** Feeds the engine the window events of {@code device} that {@code scope} lets through, 10 s apart. */
+    private List<Long> restrictedSessions(PolicySnapshot policy, String[] scope, String[] device) {
+        final List<Long> restricted = new ArrayList<>();
+        MonitorStats stats = new MonitorStats();
+        EnforcementEngine engine = new EnforcementEngine(() -> policy, strategy -> new EnforcementAction[0],
+                new ActionExecutor(actionThread, 1, 0, 0, stats), stats, new EnforcementEngine.Listener() {
+                    @Override
+                    public void onRestricted(String packageName, long timestamp, EnforcementStrategy strategy) {
+                        restricted.add(timestamp);
+                    }
+
+                    @Override
+                    public void onRestrictedContent(String packageName, long timestamp, EnforcementStrategy strategy) {
+                    }
+
+                    @Override
+                    public void onBatchEnd(int batchSize) {
+                    }
+                });
+        Collection<String> delivered = scope != null ? Arrays.asList(scope) : null;
+        for (int i = 0; i < device.length; i++) {
+            if (delivered == null || delivered.contains(device[i])) {
+                engine.accept(i * 10_000L, device[i], 32);
+            }
+        }
+        return restricted;
+    }
+}
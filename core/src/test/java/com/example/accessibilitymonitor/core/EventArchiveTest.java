@@ -0,0 +1,121 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class EventArchiveTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long DAY = UsageRollup.DAY_MS;
+    private static final long DAY_START = 19_000 * DAY;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void scan_filtersByPackageAndRangeAcrossBlocks() throws Exception {
+        EventArchive.Writer writer = new EventArchive.Writer();
+        int records = EventArchive.BLOCK_RECORDS * 2 + 100;
+        for (int i = 0; i < records; i++) {
+            // Slightly out of order, as the journal can be
+            long timestamp = DAY_START + i * 1000L + (i % 7 == 0 ? 1500 : 0);
+            writer.add(timestamp, i % 10 == 0 ? "com.rare" : "com.common", i < 1500 ? 1 : 2);
+        }
+        File file = tmp.newFile("day.arc");
+        writer.writeTo(file);
+        assertEquals(records, EventArchive.recordCount(file));
+
+        List<long[]> seen = new ArrayList<>();
+        assertTrue(EventArchive.scan(file, new JournalPager.Query(DAY_START + 1_000_000, DAY_START + 1_800_000, "com.rare"),
+                (timestamp, packageName, action) -> {
+                    assertEquals("com.rare", packageName);
+                    seen.add(new long[]{timestamp, action});
+                    return true;
+                }));
+        assertEquals(81, seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i)[0] >= seen.get(i - 1)[0]);
+        }
+        assertEquals(1, seen.get(0)[1]);
+        assertEquals(2, seen.get(seen.size() - 1)[1]);
+
+        int[] all = new int[1];
+        EventArchive.scan(file, new JournalPager.Query(Long.MIN_VALUE, Long.MAX_VALUE, null), (t, p, a) -> {
+            all[0]++;
+            return true;
+        });
+        assertEquals(records, all[0]);
+        assertTrue(EventArchive.scan(file, new JournalPager.Query(Long.MIN_VALUE, Long.MAX_VALUE, "com.absent"),
+                (t, p, a) -> {
+                    fail();
+                    return false;
+                }));
+        // A few bytes per record instead of the journal's sixteen
+        assertTrue(file.length() < records * 4L);
+    }
+
+    @Test
+    public void compact_archivesClosedDaysOnceAndAppliesRetention() throws Exception {
+        EventJournal journal = new EventJournal(tmp.newFolder("journal"), 1024, 8);
+        for (int day = 0; day < 5; day++) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(DAY_START + day * DAY + i * 60_000L, "com.app" + (i % 3), JournalRecord.ACTION_RESTRICTED_APP);
+            }
+        }
+        ArchiveStore store = new ArchiveStore(tmp.newFolder("archive"), UTC);
+        long now = DAY_START + 4 * DAY + 12 * 60 * 60 * 1000L;
+
+        assertEquals(3, store.compact(journal, now, 4));
+        assertEquals(0, store.compact(journal, now, 4));
+        int first = store.dayOf(DAY_START);
+        assertEquals(first + 1, (int) store.days().get(0));
+
+        int[] count = new int[1];
+        store.scan(new JournalPager.Query(DAY_START, now, "com.app1"), (t, p, a) -> {
+            count[0]++;
+            return true;
+        });
+        assertEquals(9, count[0]);
+
+        // The clock was set back into an archived day: only that day is rewritten, merged
+        journal.append(DAY_START + 2 * DAY + 30_000L, "com.app1", JournalRecord.ACTION_RESTRICTED_APP);
+        assertEquals(1, store.compact(journal, now, 4));
+        assertEquals(0, store.compact(journal, now, 4));
+        assertEquals(11, EventArchive.recordCount(store.fileFor(first + 2)));
+
+        assertEquals(1, store.applyRetention(now + DAY, 4));
+        assertEquals(2, store.days().size());
+    }
+
+    @Test
+    public void scan_rejectsCorruptPackageIdWithIOException() throws Exception {
+        EventArchive.Writer writer = new EventArchive.Writer();
+        writer.add(DAY_START, "com.app", 1);
+        writer.add(DAY_START + 1, "com.app", 1);
+        File file = tmp.newFile("corrupt.arc");
+        writer.writeTo(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // After the 8-byte header and the one-byte time column: the first package id
+            raf.seek(9);
+            assertEquals(0, raf.read());
+            raf.seek(9);
+            raf.write(5);
+        }
+
+        try {
+            EventArchive.scan(file, new JournalPager.Query(Long.MIN_VALUE, Long.MAX_VALUE, null), (t, p, a) -> true);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Bad package id 5"));
+        }
+    }
+}
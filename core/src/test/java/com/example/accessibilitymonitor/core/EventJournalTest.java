@@ -0,0 +1,73 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventJournalTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void readRecent_returnsNewestFirstAcrossReopen() throws Exception {
+        File dir = tmp.newFolder("journal");
+        EventJournal journal = new EventJournal(dir, 100, 4);
+        journal.append(1, "com.a", JournalRecord.ACTION_RESTRICTED_APP);
+        journal.append(2, "com.b", JournalRecord.ACTION_RESTRICTED_APP);
+        journal.close();
+
+        EventJournal reopened = new EventJournal(dir, 100, 4);
+        reopened.append(3, "com.a", JournalRecord.ACTION_RESTRICTED_APP);
+        List<JournalRecord> recent = reopened.readRecent(2);
+
+        assertEquals(2, recent.size());
+        assertEquals(3, recent.get(0).timestamp);
+        assertEquals("com.a", recent.get(0).packageName);
+        assertEquals("com.b", recent.get(1).packageName);
+    }
+
+    @Test
+    public void rotation_keepsOnlyNewestSegments() throws Exception {
+        EventJournal journal = new EventJournal(tmp.newFolder("journal"), 10, 3);
+        for (int i = 0; i < 100; i++) {
+            journal.append(i, "com.a", JournalRecord.ACTION_RESTRICTED_APP);
+        }
+        final long[] oldest = {Long.MAX_VALUE};
+        final int[] count = {0};
+        journal.scan((timestamp, packageId, action) -> {
+            oldest[0] = Math.min(oldest[0], timestamp);
+            count[0]++;
+            return true;
+        });
+
+        assertEquals(30, count[0]);
+        assertEquals(70, oldest[0]);
+    }
+
+    @Test
+    public void dictionary_cutsTornEntryBeforeAppending() throws Exception {
+        File file = new File(tmp.getRoot(), "packages.dict");
+        PackageDictionary dictionary = PackageDictionary.open(file);
+        dictionary.intern("com.a");
+        dictionary.intern("com.b");
+        // Length prefix of 10 followed by only three bytes of the name
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[] {0, 10, 'c', 'o', 'm'});
+        }
+
+        PackageDictionary torn = PackageDictionary.open(file);
+        assertEquals(2, torn.size());
+        assertEquals(2, torn.intern("com.c"));
+
+        PackageDictionary reopened = PackageDictionary.open(file);
+        assertEquals(3, reopened.size());
+        assertEquals("com.c", reopened.nameOf(2));
+        assertEquals(1, reopened.idOf("com.b"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventPipelineTest {
+    @Test
+    public void parkedWorker_wakesPromptlyOnPublish() throws InterruptedException {
+        LinkedBlockingQueue<Long> received = new LinkedBlockingQueue<>();
+        EventPipeline pipeline = new EventPipeline("test-worker", 64, new EventPipeline.Handler() {
+            @Override
+            public void accept(long timestamp, String packageName, int eventType) {
+                received.add(System.nanoTime() - timestamp);
+            }
+
+            @Override
+            public void onBatchEnd(int batchSize) {
+            }
+        });
+        pipeline.start();
+        try {
+            long worst = 0;
+            for (int i = 0; i < 50; i++) {
+                // Long enough for the worker to find the ring empty and park
+                Thread.sleep(2);
+                assertTrue(pipeline.publish(System.nanoTime(), "com.app", 32));
+                Long latency = received.poll(2, TimeUnit.SECONDS);
+                assertNotNull("Event " + i + " never delivered", latency);
+                worst = Math.max(worst, latency);
+            }
+            // A missed wakeup costs the full one-second idle park
+            assertTrue("Worst wakeup " + TimeUnit.NANOSECONDS.toMillis(worst) + " ms",
+                    worst < TimeUnit.MILLISECONDS.toNanos(500));
+        } finally {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    public void stop_drainsWhatWasPublished() {
+        int[] handled = new int[1];
+        EventPipeline pipeline = new EventPipeline("test-worker", 64, new EventPipeline.Handler() {
+            @Override
+            public void accept(long timestamp, String packageName, int eventType) {
+                handled[0]++;
+            }
+
+            @Override
+            public void onBatchEnd(int batchSize) {
+            }
+        });
+        pipeline.start();
+        for (int i = 0; i < 40; i++) {
+            pipeline.publish(i, "com.app", 32);
+        }
+        pipeline.stop();
+
+        assertEquals(40, handled[0]);
+        assertTrue(pipeline.ring().isEmpty());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventRingTest {
+    @Test
+    public void fullRing_dropsAndCountsOverflowAndBackpressure() {
+        EventRing ring = new EventRing(8);
+        for (int i = 0; i < 10; i++) {
+            boolean accepted = ring.offer(i, "com.app" + i, 32);
+            assertEquals("offer " + i, i < 8, accepted);
+        }
+
+        assertEquals(8, ring.size());
+        assertEquals(8, ring.publishedCount());
+        assertEquals(2, ring.overflowCount());
+        // Offers 6 and 7 found the ring at least three quarters full
+        assertEquals(2, ring.backpressureCount());
+    }
+
+    @Test
+    public void drain_deliversInOrderInBatchesAndFreesSlots() {
+        EventRing ring = new EventRing(4);
+        List<String> seen = new ArrayList<>();
+        EventRing.Consumer consumer = (timestamp, packageName, eventType) -> seen.add(packageName + "@" + timestamp);
+        for (int i = 0; i < 4; i++) {
+            ring.offer(i, "com.app" + i, 32);
+        }
+
+        assertEquals(3, ring.drain(consumer, 3));
+        assertTrue(ring.offer(4, "com.app4", 32));
+        assertEquals(2, ring.drain(consumer, 64));
+        assertTrue(ring.isEmpty());
+        assertEquals("[com.app0@0, com.app1@1, com.app2@2, com.app3@3, com.app4@4]", seen.toString());
+        assertEquals(0, ring.overflowCount());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventTraceTest {
+    @Test
+    public void read_returnsRecordsInOrderAndIgnoresTornTail() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (EventTrace.Writer writer = new EventTrace.Writer(bytes)) {
+            writer.append(1_700_000_000_000L, "com.a", "com.a.MainActivity", 32);
+            writer.append(1_700_000_000_050L, "com.b", null, 32);
+            // Clock stepped back, e.g. after a time sync
+            writer.append(1_699_999_999_000L, "com.a", "com.a.MainActivity", 32);
+        }
+        byte[] full = bytes.toByteArray();
+        byte[] torn = Arrays.copyOf(full, full.length - 1);
+
+        List<String> seen = new ArrayList<>();
+        long count = EventTrace.read(new ByteArrayInputStream(full),
+                (timestamp, packageName, className, eventType) -> seen.add(timestamp + " " + packageName + " " + className));
+
+        assertEquals(3, count);
+        assertEquals(Arrays.asList(
+                "1700000000000 com.a com.a.MainActivity",
+                "1700000000050 com.b null",
+                "1699999999000 com.a com.a.MainActivity"), seen);
+        assertEquals(2, EventTrace.read(new ByteArrayInputStream(torn), (timestamp, packageName, className, eventType) -> {
+        }));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ForegroundSessionTrackerTest {
+    private final List<String> transitions = new ArrayList<>();
+    private final ForegroundSessionTracker tracker = new ForegroundSessionTracker(1000, new ForegroundSessionTracker.Listener() {
+        @Override
+        public void onEnter(String packageName, long timestamp) {
+            transitions.add("enter " + packageName);
+        }
+
+        @Override
+        public void onLeave(String packageName, long timestamp) {
+            transitions.add("leave " + packageName);
+        }
+
+        @Override
+        public void onResume(String packageName, long timestamp) {
+            transitions.add("resume " + packageName);
+        }
+    });
+
+    @Test
+    public void repeatedWindowsOfSamePackage_areOneSession() {
+        tracker.onWindowStateChanged("com.a", 0);
+        tracker.onWindowStateChanged("com.a", 10);
+        tracker.onWindowStateChanged("com.a", 20);
+
+        assertEquals(1, transitions.size());
+        assertEquals("enter com.a", transitions.get(0));
+    }
+
+    @Test
+    public void quickReturn_resumesInsteadOfEntering() {
+        tracker.onWindowStateChanged("com.a", 0);
+        tracker.onWindowStateChanged("com.keyboard", 100);
+        tracker.onWindowStateChanged("com.a", 500);
+        tracker.onWindowStateChanged("com.b", 600);
+        tracker.onWindowStateChanged("com.a", 5000);
+
+        assertEquals("resume com.a", transitions.get(4));
+        assertEquals("enter com.a", transitions.get(transitions.size() - 1));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Guards the promise that an event matching no rule allocates nothing between the
+ * accessibility callback and the policy decision. Counts bytes allocated by the test
+ * thread with the HotSpot {@link com.sun.management.ThreadMXBean}, after a warm-up so
+ * one-time costs such as interning a new package are not counted.
+ */
+public class HotPathAllocationTest {
+    private static final int WARMUP = 20_000;
+    private static final int EVENTS = 100_000;
+    // Total over all events, not per event, so even one allocation per batch of events fails
+    private static final long TOLERANCE_BYTES = 256;
+
+    private com.sun.management.ThreadMXBean threads;
+    private ScheduledExecutorService actionThread;
+
+    @Before
+    public void setUp() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        actionThread = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        if (actionThread != null) {
+            actionThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void nonMatchingEvent_allocatesNothingFromNameToDecision() {
+        final PolicySnapshot policy = PolicySnapshot.builder()
+                .setRestrictedApps(Collections.singleton("com.restricted"))
+                .build();
+        MonitorStats stats = new MonitorStats();
+        ActionExecutor executor = new ActionExecutor(actionThread, 4, 500, 8000, stats);
+        EnforcementEngine engine = new EnforcementEngine(() -> policy, strategy -> new EnforcementAction[0],
+                executor, stats, new EnforcementEngine.Listener() {
+                    @Override
+                    public void onRestricted(String packageName, long timestamp, EnforcementStrategy strategy) {
+                        fail("No event should match");
+                    }
+
+                    @Override
+                    public void onRestrictedContent(String packageName, long timestamp, EnforcementStrategy strategy) {
+                        fail("No event should match");
+                    }
+
+                    @Override
+                    public void onBatchEnd(int batchSize) {
+                    }
+                });
+        EventRing ring = new EventRing(64, stats.queue);
+        PackageNameTable names = new PackageNameTable(16);
+        // Accessibility events hand out names as CharSequences that are not necessarily Strings
+        StringBuilder[] incoming = {new StringBuilder("com.android.launcher"), new StringBuilder("com.example.mail"),
+                new StringBuilder("com.example.maps")};
+
+        Runnable events = new Runnable() {
+            long clock;
+
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                // Far enough apart that every switch is a new session and reaches the policy check
+                clock += 10_000;
+                String packageName = names.intern(incoming[(int) (clock / 10_000 % incoming.length)]);
+                stats.countEvent();
+                ring.offer(clock, packageName, 32);
+                ring.drain(engine, 64);
+                stats.dispatch.recordSince(start);
+            }
+        };
+        assertAllocationFree(events);
+        assertEquals(incoming.length, names.size());
+    }
+
+    @Test
+    public void contentRules_allocateNothingWithoutMatch() {
+        final ContentRules rules = ContentRules.parse("com.browser: casino, youtube.com\n*: spoiler");
+        final StringBuilder text = new StringBuilder("https://example.com/news/today?ref=home");
+
+        assertAllocationFree(() -> assertNull(rules.match("com.browser", text)));
+    }
+
+    private void assertAllocationFree(Runnable event) {
+        for (int i = 0; i < WARMUP; i++) {
+            event.run();
+        }
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        // Whatever reading the counter costs by itself is not charged to the events
+        long overhead = threads.getThreadAllocatedBytes(id) - before;
+        before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < EVENTS; i++) {
+            event.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before - overhead;
+        assertTrue(allocated + " bytes allocated over " + EVENTS + " events", allocated <= TOLERANCE_BYTES);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class JournalPagerTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void readPage_walksRangeNewestFirstAcrossSegments() throws Exception {
+        EventJournal journal = new EventJournal(tmp.newFolder("journal"), 300, 8);
+        for (int i = 0; i < 1000; i++) {
+            journal.append(i, i % 2 == 0 ? "com.even" : "com.odd", JournalRecord.ACTION_RESTRICTED_APP);
+        }
+        JournalPager pager = new JournalPager(journal);
+        JournalPager.Query query = new JournalPager.Query(100, 899, null);
+
+        int seen = 0;
+        long previous = Long.MAX_VALUE;
+        JournalPager.Cursor cursor = null;
+        do {
+            JournalPager.Page page = pager.readPage(query, cursor, 64);
+            for (JournalRecord record : page.records) {
+                assertTrue(record.timestamp < previous);
+                previous = record.timestamp;
+                seen++;
+            }
+            cursor = page.next;
+        } while (cursor != null);
+
+        assertEquals(800, seen);
+        assertEquals(100, previous);
+    }
+
+    @Test
+    public void readPage_filtersByPackage() throws Exception {
+        EventJournal journal = new EventJournal(tmp.newFolder("journal"), 300, 8);
+        for (int i = 0; i < 1000; i++) {
+            journal.append(i, i % 2 == 0 ? "com.even" : "com.odd", JournalRecord.ACTION_RESTRICTED_APP);
+        }
+        JournalPager.Page page = new JournalPager(journal)
+                .readPage(new JournalPager.Query(Long.MIN_VALUE, Long.MAX_VALUE, "com.odd"), null, 10);
+
+        assertEquals(10, page.records.size());
+        assertEquals(999, page.records.get(0).timestamp);
+        for (JournalRecord record : page.records) {
+            assertEquals("com.odd", record.packageName);
+        }
+        assertNotNull(page.next);
+    }
+
+    @Test
+    public void readPage_findsRecordsWrittenBeforeAClockSetBack() throws Exception {
+        EventJournal journal = new EventJournal(tmp.newFolder("journal"), 300, 8);
+        for (int i = 0; i < 600; i++) {
+            journal.append(10_000 + i, "com.app", JournalRecord.ACTION_RESTRICTED_APP);
+        }
+        // The clock was set back an hour; newer records now carry older timestamps
+        for (int i = 0; i < 400; i++) {
+            journal.append(5_000 + i, "com.app", JournalRecord.ACTION_RESTRICTED_APP);
+        }
+        JournalPager pager = new JournalPager(journal);
+
+        assertEquals(600, countAll(pager, new JournalPager.Query(10_000, Long.MAX_VALUE, null)));
+        assertEquals(101, countAll(pager, new JournalPager.Query(5_100, 5_200, null)));
+        assertEquals(1000, countAll(pager, new JournalPager.Query(Long.MIN_VALUE, Long.MAX_VALUE, null)));
+        // Newest means most recently appended
+        JournalPager.Page first = pager.readPage(new JournalPager.Query(Long.MIN_VALUE, Long.MAX_VALUE, null), null, 1);
+        assertEquals(5_399, first.records.get(0).timestamp);
+    }
+
+    @Test
+    public void readPage_seesRecordsAppendedAfterTheActiveSegmentWasIndexed() throws Exception {
+        EventJournal journal = new EventJournal(tmp.newFolder("journal"), 1000, 8);
+        JournalPager pager = new JournalPager(journal);
+        JournalPager.Query all = new JournalPager.Query(Long.MIN_VALUE, Long.MAX_VALUE, null);
+        for (int i = 0; i < 100; i++) {
+            journal.append(i, "com.app", JournalRecord.ACTION_RESTRICTED_APP);
+        }
+        assertEquals(100, countAll(pager, all));
+
+        for (int i = 100; i < 400; i++) {
+            journal.append(i, "com.app", JournalRecord.ACTION_RESTRICTED_APP);
+        }
+        assertEquals(400, countAll(pager, all));
+        assertEquals(300, countAll(pager, new JournalPager.Query(100, 399, null)));
+    }
+
+    private static int countAll(JournalPager pager, JournalPager.Query query) throws Exception {
+        int count = 0;
+        JournalPager.Cursor cursor = null;
+        do {
+            JournalPager.Page page = pager.readPage(query, cursor, 64);
+            count += page.records.size();
+            cursor = page.next;
+        } while (cursor != null);
+        return count;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void percentiles_stayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(10_000, histogram.count());
+        assertEquals(10_000_000, histogram.maxNanos());
+        assertEquals(5_000_000, histogram.valueAtPercentile(50), 5_000_000 * 0.035);
+        assertEquals(9_900_000, histogram.valueAtPercentile(99), 9_900_000 * 0.035);
+        assertEquals(10_000_000, histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    public void buckets_coverEveryValueContiguously() {
+        long previousUpper = -1;
+        for (int i = 0; i <= LatencyHistogram.indexOf(LatencyHistogram.MAX_TRACKABLE_NANOS); i++) {
+            assertEquals(i, LatencyHistogram.indexOf(previousUpper + 1));
+            assertEquals(i, LatencyHistogram.indexOf(LatencyHistogram.upperBound(i)));
+            previousUpper = LatencyHistogram.upperBound(i);
+        }
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, previousUpper);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MaintenanceSchedulerTest {
+    private static final class FakeTimer implements MaintenanceScheduler.Timer {
+        long delay = -1;
+
+        @Override
+        public void schedule(long delayMs) {
+            delay = delayMs;
+        }
+
+        @Override
+        public void cancel() {
+            delay = -1;
+        }
+    }
+
+    @Test
+    public void onWakeup_coalescesNearlyDueTasksAndBacksOffWhenIdle() {
+        FakeTimer timer = new FakeTimer();
+        MaintenanceScheduler scheduler = new MaintenanceScheduler(timer, null);
+        int[] runs = new int[2];
+        scheduler.addTask("a", 1000, () -> runs[0]++);
+        scheduler.addTask("b", 1100, () -> runs[1]++);
+        scheduler.start(0);
+        assertEquals(1000, timer.delay);
+
+        // b is 100ms short of due, well inside a quarter period, so it rides along
+        scheduler.onWakeup(1000, true);
+        assertArrayEquals(new int[]{1, 1}, runs);
+        assertEquals(1000, timer.delay);
+
+        scheduler.onWakeup(2000, false);
+        assertEquals(2, scheduler.backoffFactor());
+        assertEquals(2000, timer.delay);
+        assertEquals(2, scheduler.wakeupCount());
+    }
+
+    @Test
+    public void screenOff_cancelsWakeupsAndScreenOnRunsOverdueTasks() {
+        FakeTimer timer = new FakeTimer();
+        MaintenanceScheduler scheduler = new MaintenanceScheduler(timer, null);
+        int[] runs = new int[1];
+        scheduler.addTask("a", 1000, () -> runs[0]++);
+        scheduler.start(0);
+
+        scheduler.setScreenOn(false, 500);
+        assertEquals(-1, timer.delay);
+        scheduler.onWakeup(1000, true);
+        assertEquals(0, runs[0]);
+
+        scheduler.setScreenOn(true, 5000);
+        assertEquals(1, runs[0]);
+        assertEquals(1000, timer.delay);
+        assertEquals(0, scheduler.wakeupCount());
+    }
+}
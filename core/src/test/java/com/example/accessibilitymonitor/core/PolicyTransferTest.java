@@ -0,0 +1,93 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class PolicyTransferTest {
+    @Test
+    public void read_linesWithActionsCommentsAndRejects() throws Exception {
+        PolicyImport result = new PolicyImport();
+        PolicyTransfer.readLines(new StringReader("\uFEFF# exported\n"
+                + "com.a\n"
+                + "\n"
+                + "com.b = go_home   # evenings only\n"
+                + "not a package\n"
+                + "com.c=teleport\n"
+                + "com.a\n"), result);
+
+        assertEquals(2, result.entryCount());
+        assertEquals(2, result.rejectedCount());
+        assertEquals(1, result.duplicateCount());
+        assertTrue(result.rejections().get(0).startsWith("Line 5:"));
+        assertTrue(result.rejections().get(1).startsWith("Line 6:"));
+    }
+
+    @Test
+    public void diff_mergeAndReplace() throws Exception {
+        MonitorConfig current = MonitorConfig.DEFAULTS.edit()
+                .addRestrictedApp("com.keep")
+                .addRestrictedApp("com.drop")
+                .setStrategy("com.keep", EnforcementStrategy.LOG_ONLY)
+                .build();
+        PolicyImport result = new PolicyImport();
+        PolicyTransfer.readLines(new StringReader("com.keep\ncom.new=go_home\n"), result);
+
+        PolicyImport.Diff merge = result.diff(current, Collections.singleton("com.keep"), false);
+        assertEquals(Collections.singletonList("com.new"), merge.added);
+        assertTrue(merge.removed.isEmpty());
+        assertEquals(1, merge.unchangedCount);
+        assertEquals(Collections.singletonList("com.new"), merge.notInstalled);
+
+        PolicyImport.Diff replace = result.diff(current, null, true);
+        assertEquals(Collections.singletonList("com.drop"), replace.removed);
+        assertTrue(replace.strategyChanges.containsKey("com.keep"));
+
+        MonitorConfig.Builder builder = current.edit();
+        replace.applyTo(builder);
+        MonitorConfig applied = builder.build();
+        assertEquals(new HashSet<>(Arrays.asList("com.keep", "com.new")), applied.restrictedApps);
+        assertNull(applied.strategies.get("com.keep"));
+        assertEquals(EnforcementStrategy.GO_HOME, applied.strategies.get("com.new"));
+    }
+
+    @Test
+    public void applyTo_diffsAgainstTheBuilderNotThePreview() throws Exception {
+        PolicyImport result = new PolicyImport();
+        PolicyTransfer.readLines(new StringReader("com.a\n"), result);
+        // Restricted after the preview was computed against the defaults
+        MonitorConfig.Builder builder = MonitorConfig.DEFAULTS.edit()
+                .addRestrictedApp("com.later")
+                .setStrategy("com.later", EnforcementStrategy.GO_HOME);
+
+        PolicyImport.Diff merged = result.applyTo(builder, false);
+        MonitorConfig applied = builder.build();
+
+        assertEquals(Collections.singletonList("com.a"), merged.added);
+        assertTrue(applied.restrictedApps.contains("com.later"));
+        assertEquals(EnforcementStrategy.GO_HOME, applied.strategies.get("com.later"));
+        assertEquals(Collections.singletonList("com.later"), result.applyTo(builder, true).removed);
+    }
+
+    @Test
+    public void write_roundTrips() throws Exception {
+        MonitorConfig config = MonitorConfig.DEFAULTS.edit()
+                .addRestrictedApp("com.b")
+                .addRestrictedApp("com.a")
+                .setStrategy("com.b", EnforcementStrategy.GO_HOME)
+                .build();
+        StringWriter lines = new StringWriter();
+        PolicyTransfer.writeLines(lines, config);
+
+        PolicyImport result = new PolicyImport();
+        PolicyTransfer.readLines(new StringReader(lines.toString()), result);
+        assertEquals(0, result.rejectedCount());
+        assertTrue(result.diff(config, null, true).isEmpty());
+    }
+}
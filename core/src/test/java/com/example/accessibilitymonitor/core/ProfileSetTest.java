@@ -0,0 +1,89 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class ProfileSetTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static MonitorConfig twoProfiles() {
+        return MonitorConfig.DEFAULTS.edit()
+                .addRestrictedApp("com.game")
+                .addRestrictedApp("com.social")
+                .addProfile("work")
+                .setActiveProfile("work")
+                .addRestrictedApp("com.social")
+                .addRestrictedApp("com.video")
+                .build();
+    }
+
+    @Test
+    public void compile_sharesIdsAcrossProfiles() {
+        MonitorConfig config = twoProfiles();
+        ProfileSet profiles = ProfileSet.compile(config.profiles);
+
+        assertEquals(3, profiles.packageCount());
+        assertTrue(profiles.profile("work").contains("com.video"));
+        assertFalse(profiles.profile("work").contains("com.game"));
+        assertTrue(profiles.profile(MonitorConfig.DEFAULT_PROFILE).contains(profiles.idOf("com.social")));
+        assertEquals(PackageDictionary.NO_ID, profiles.idOf("com.unknown"));
+        assertEquals(new HashSet<>(Arrays.asList("com.social", "com.video")),
+                new HashSet<>(Arrays.asList(profiles.profile("work").packageNames())));
+
+        assertTrue(profiles.isCompiledFrom(config.profiles));
+        assertTrue(profiles.isCompiledFrom(config.edit().setActiveProfile(MonitorConfig.DEFAULT_PROFILE).build().profiles));
+        assertFalse(profiles.isCompiledFrom(config.edit().addRestrictedApp("com.news").build().profiles));
+    }
+
+    @Test
+    public void withActiveProfile_swapsMembershipOnly() {
+        MonitorConfig config = twoProfiles();
+        PolicySnapshot work = PolicySnapshot.builder()
+                .setProfiles(ProfileSet.compile(config.profiles), config.activeProfile)
+                .setStrategies(config.strategies)
+                .build();
+        PolicySnapshot home = work.withActiveProfile(MonitorConfig.DEFAULT_PROFILE);
+
+        assertTrue(work.isRestricted("com.video"));
+        assertFalse(home.isRestricted("com.video"));
+        assertTrue(home.isRestricted("com.game"));
+        assertSame(work.profiles(), home.profiles());
+        assertArrayEquals(new String[]{"com.example", "com.game", "com.social"}, home.eventScope("com.example"));
+    }
+
+    @Test
+    public void removeProfile_activatesRemainingAndKeepsLast() {
+        MonitorConfig config = twoProfiles().edit().removeProfile("work").build();
+        assertEquals(MonitorConfig.DEFAULT_PROFILE, config.activeProfile);
+        assertEquals(Collections.singleton(MonitorConfig.DEFAULT_PROFILE), config.profiles.keySet());
+        try {
+            config.edit().removeProfile(MonitorConfig.DEFAULT_PROFILE);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void configFile_roundTripsProfiles() throws Exception {
+        MonitorConfig config = twoProfiles().edit()
+                .addProfile("kids")
+                .removeProfile(MonitorConfig.DEFAULT_PROFILE)
+                .build();
+        ConfigFile file = new ConfigFile(tmp.newFile("config.bin"));
+        file.write(config);
+
+        MonitorConfig read = file.read();
+        assertNotNull(read);
+        assertEquals("work", read.activeProfile);
+        assertEquals(config.profiles, read.profiles);
+        assertEquals(config.restrictedApps, read.restrictedApps);
+    }
+}
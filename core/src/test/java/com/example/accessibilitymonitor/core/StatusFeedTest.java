@@ -0,0 +1,47 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StatusFeedTest {
+    @Test
+    public void keepsTheLastDecisionsNewestFirst() {
+        StatusFeed feed = new StatusFeed(3);
+        for (int i = 1; i <= 5; i++) {
+            feed.onDecision("com.app" + i, i * 1000L, JournalRecord.ACTION_RESTRICTED_APP);
+        }
+
+        StatusFeed.Snapshot snapshot = feed.snapshot();
+        assertEquals(3, snapshot.decisions.size());
+        assertEquals("com.app5", snapshot.decisions.get(0).packageName);
+        assertEquals("com.app3", snapshot.decisions.get(2).packageName);
+        assertEquals(3000L, snapshot.decisions.get(2).timestamp);
+    }
+
+    @Test
+    public void notifiesOnlyOnChange() {
+        StatusFeed feed = new StatusFeed(4);
+        AtomicInteger changes = new AtomicInteger();
+        StatusFeed.Listener listener = changes::incrementAndGet;
+        feed.addListener(listener);
+
+        feed.setState(true, true, "default");
+        feed.setState(true, true, "default");
+        feed.onForeground("com.game", 10);
+        feed.onForeground("com.game", 20);
+        assertEquals(2, changes.get());
+
+        StatusFeed.Snapshot snapshot = feed.snapshot();
+        assertEquals("com.game", snapshot.foregroundPackage);
+        assertEquals(10, snapshot.foregroundSince);
+        assertTrue(snapshot.connected);
+
+        feed.removeListener(listener);
+        feed.onDecision("com.game", 30, JournalRecord.ACTION_RESTRICTED_APP);
+        assertEquals(2, changes.get());
+        assertTrue(feed.snapshot().version > snapshot.version);
+    }
+}
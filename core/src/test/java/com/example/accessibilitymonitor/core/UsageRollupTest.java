@@ -0,0 +1,68 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class UsageRollupTest {
+    private static final TimeZone BERLIN = TimeZone.getTimeZone("Europe/Berlin");
+    private static final long MINUTE = 60 * 1000;
+    // 2024-03-04 00:00 in Berlin (UTC+1)
+    private static final long MIDNIGHT = 1709506800000L;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void sessionsSplitAtLocalMidnight() {
+        UsageRollup rollup = new UsageRollup(BERLIN, 14);
+        rollup.onForeground("com.a", MIDNIGHT - 10 * MINUTE);
+        rollup.onBackground("com.a", MIDNIGHT + 25 * MINUTE);
+        rollup.advanceTo(MIDNIGHT + 60 * MINUTE);
+
+        int today = rollup.dayOf(MIDNIGHT);
+        assertEquals(today - 1, rollup.dayOf(MIDNIGHT - 1));
+        assertEquals(Long.valueOf(10 * MINUTE), rollup.totalsFor(today - 1).get("com.a"));
+        assertEquals(Long.valueOf(25 * MINUTE), rollup.totalsFor(today).get("com.a"));
+    }
+
+    @Test
+    public void openSessionsCarryAcrossCheckpointAndFile() throws Exception {
+        UsageFile file = new UsageFile(tmp.newFile("usage.bin"));
+        UsageRollup first = file.read(BERLIN, 14);
+        first.onForeground("com.a", MIDNIGHT + 10 * MINUTE);
+        first.advanceTo(MIDNIGHT + 30 * MINUTE);
+        int day = first.dayOf(MIDNIGHT);
+        // Open sessions count up to the checkpoint
+        assertEquals(Long.valueOf(20 * MINUTE), first.totalsFor(day).get("com.a"));
+        file.write(first);
+
+        UsageRollup second = file.read(BERLIN, 14);
+        assertEquals(MIDNIGHT + 30 * MINUTE, second.checkpoint());
+        second.onBackground("com.a", MIDNIGHT + 40 * MINUTE);
+        second.onForeground("com.b", MIDNIGHT + 41 * MINUTE);
+        second.onAllBackground(MIDNIGHT + 46 * MINUTE);
+        second.advanceTo(MIDNIGHT + 50 * MINUTE);
+
+        Map<String, Long> totals = second.totalsFor(day);
+        assertEquals(Long.valueOf(30 * MINUTE), totals.get("com.a"));
+        assertEquals(Long.valueOf(5 * MINUTE), totals.get("com.b"));
+    }
+
+    @Test
+    public void advanceTo_dropsOldDaysAndCapsLostSessions() {
+        UsageRollup rollup = new UsageRollup(BERLIN, 2);
+        rollup.onForeground("com.a", MIDNIGHT - UsageRollup.DAY_MS);
+        rollup.onBackground("com.a", MIDNIGHT - UsageRollup.DAY_MS + MINUTE);
+        rollup.onForeground("com.stuck", MIDNIGHT);
+        rollup.advanceTo(MIDNIGHT + 2 * UsageRollup.DAY_MS - MINUTE);
+
+        assertEquals(1, rollup.days().size());
+        assertEquals(Long.valueOf(UsageRollup.MAX_SESSION_MS), rollup.totalsFor(rollup.dayOf(MIDNIGHT)).get("com.stuck"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class WeeklyScheduleTest {
+    private static final TimeZone BERLIN = TimeZone.getTimeZone("Europe/Berlin");
+
+    private static long at(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(BERLIN, Locale.US);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void isActive_followsLocalWindowsAcrossDaylightSaving() {
+        WeeklySchedule schedule = WeeklySchedule.parse("Mon-Fri 09:00-17:00\nSun 22:00-01:00", BERLIN, 0);
+
+        // 2026-03-27 is a Friday in CET, 2026-03-30 a Monday in CEST
+        assertFalse(schedule.isActive(at(2026, 3, 27, 8, 59)));
+        assertTrue(schedule.isActive(at(2026, 3, 27, 9, 0)));
+        assertTrue(schedule.isActive(at(2026, 3, 30, 16, 59)));
+        assertFalse(schedule.isActive(at(2026, 3, 30, 17, 0)));
+        assertFalse(schedule.isActive(at(2026, 3, 28, 12, 0)));
+        // Sunday night window spills into Monday
+        assertTrue(schedule.isActive(at(2026, 3, 29, 23, 30)));
+        assertTrue(schedule.isActive(at(2026, 3, 30, 0, 30)));
+        assertFalse(schedule.isActive(at(2026, 3, 30, 1, 0)));
+    }
+
+    @Test
+    public void isActive_liftsRestrictionsDuringExceptions() {
+        WeeklySchedule schedule = WeeklySchedule.parse(
+                "Daily 00:00-24:00\nexcept 2026-12-24 12:00-18:00\nexcept 2026-12-25", BERLIN, 0);
+
+        assertTrue(schedule.isActive(at(2026, 12, 24, 11, 59)));
+        assertFalse(schedule.isActive(at(2026, 12, 24, 12, 0)));
+        assertTrue(schedule.isActive(at(2026, 12, 24, 18, 0)));
+        assertFalse(schedule.isActive(at(2026, 12, 25, 23, 59)));
+        assertTrue(schedule.isActive(at(2026, 12, 26, 0, 0)));
+    }
+
+    @Test
+    public void parse_reportsTheOffendingLine() {
+        try {
+            WeeklySchedule.parse("Mon 09:00-10:00\nFunday 09:00-10:00", BERLIN, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Line 2:"));
+        }
+        assertTrue(WeeklySchedule.parse("", BERLIN, 0).isAlways());
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.accessibilitymonitor.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WifiRestorePolicyTest {
+    private static final long GRACE = 10_000;
+
+    @Test
+    public void restoresAfterGraceOnlyWhenEnforcementTurnedItOff() {
+        WifiRestorePolicy policy = new WifiRestorePolicy(GRACE, 4);
+        policy.onHold("com.game");
+        policy.onRelease(1_000);
+        assertEquals("Nothing owed", WifiRestorePolicy.NEVER, policy.restoreAt());
+
+        policy.onHold("com.game");
+        policy.onDisabled(2_000);
+        assertEquals(WifiRestorePolicy.NEVER, policy.restoreAt());
+        assertTrue(policy.onRelease(5_000));
+        assertEquals(5_000 + GRACE, policy.restoreAt());
+        assertFalse(policy.shouldRestore(5_000 + GRACE - 1));
+        assertTrue(policy.shouldRestore(5_000 + GRACE));
+
+        policy.onRestored(5_000 + GRACE);
+        assertFalse(policy.isOwed());
+        assertEquals(WifiRestorePolicy.NEVER, policy.restoreAt());
+        assertEquals(1, policy.restoreCount());
+    }
+
+    @Test
+    public void returningWithinGraceCancelsTheRestore() {
+        WifiRestorePolicy policy = new WifiRestorePolicy(GRACE, 4);
+        policy.onHold("com.game");
+        policy.onDisabled(0);
+        policy.onRelease(1_000);
+        assertTrue(policy.onHold("com.video"));
+        assertFalse(policy.onHold("com.video"));
+
+        assertEquals(WifiRestorePolicy.NEVER, policy.restoreAt());
+        assertEquals(1, policy.cancelledCount());
+        assertTrue(policy.isOwed());
+    }
+
+    @Test
+    public void toggleCapDefersRestores() {
+        WifiRestorePolicy policy = new WifiRestorePolicy(0, 2);
+        policy.onHold("com.game");
+        policy.onDisabled(0);
+        policy.onRelease(1_000);
+        assertTrue(policy.shouldRestore(1_000));
+        policy.onRestored(1_000);
+
+        // Second disable fills the cap of two toggles in a minute
+        policy.onHold("com.game");
+        policy.onDisabled(2_000);
+        policy.onRelease(3_000);
+        assertEquals(WifiRestorePolicy.TOGGLE_WINDOW_MS + 1_000, policy.restoreAt());
+        assertFalse(policy.shouldRestore(3_000));
+        assertEquals(1, policy.deferredCount());
+        assertTrue(policy.shouldRestore(WifiRestorePolicy.TOGGLE_WINDOW_MS + 1_000));
+    }
+
+    @Test
+    public void enabledElsewhereClearsTheDebt() {
+        WifiRestorePolicy policy = new WifiRestorePolicy(GRACE, 4);
+        policy.onHold("com.game");
+        policy.onDisabled(0);
+        policy.onRelease(1_000);
+        policy.onEnabledElsewhere();
+
+        assertFalse(policy.isOwed());
+        assertEquals(WifiRestorePolicy.NEVER, policy.restoreAt());
+    }
+
+    @Test
+    public void rejectedRestoreBacksOffThenGivesUp() {
+        WifiRestorePolicy policy = new WifiRestorePolicy(0, 10);
+        policy.onHold("com.game");
+        policy.onDisabled(0);
+        policy.onRelease(1_000);
+        assertTrue(policy.shouldRestore(1_000));
+
+        assertTrue(policy.onRestoreRejected(1_000));
+        assertTrue("Still owed after a rejection", policy.isOwed());
+        assertEquals(1_000 + WifiRestorePolicy.RETRY_BACKOFF_MS, policy.restoreAt());
+        assertFalse(policy.shouldRestore(1_000 + WifiRestorePolicy.RETRY_BACKOFF_MS - 1));
+        assertEquals("Waiting out a backoff is not a toggle-cap deferral", 0, policy.deferredCount());
+
+        long second = 1_000 + WifiRestorePolicy.RETRY_BACKOFF_MS;
+        assertTrue(policy.onRestoreRejected(second));
+        assertEquals(second + 2 * WifiRestorePolicy.RETRY_BACKOFF_MS, policy.restoreAt());
+        assertFalse(policy.onRestoreRejected(second + 2 * WifiRestorePolicy.RETRY_BACKOFF_MS));
+
+        assertFalse(policy.isOwed());
+        assertEquals(WifiRestorePolicy.NEVER, policy.restoreAt());
+        assertEquals(0, policy.restoreCount());
+        assertEquals(3, policy.rejectedCount());
+        assertEquals(1, policy.abandonedCount());
+    }
+}